@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.MatrixCursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.widget.AbsListView;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TestAppSettings extends AndroidTestCase {
+    private static final String LOG_TAG = TestAppSettings.class.getSimpleName();
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+
+    private SharedPreferences mPrefs;
+    private String mUnitsKey;
+    private String mArtPackKey;
+    private String mSavedUnits;
+    private String mSavedArtPack;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mPrefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        mUnitsKey = mContext.getString(R.string.pref_units_key);
+        mArtPackKey = mContext.getString(R.string.pref_art_pack_key);
+        mSavedUnits = mPrefs.getString(mUnitsKey, null);
+        mSavedArtPack = mPrefs.getString(mArtPackKey, null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        SharedPreferences.Editor editor = mPrefs.edit();
+        restore(editor, mUnitsKey, mSavedUnits);
+        restore(editor, mArtPackKey, mSavedArtPack);
+        editor.commit();
+        AppSettings.invalidate();
+        super.tearDown();
+    }
+
+    private static void restore(SharedPreferences.Editor editor, String key, String value) {
+        if (null == value) {
+            editor.remove(key);
+        } else {
+            editor.putString(key, value);
+        }
+    }
+
+    /*
+        Writes from this thread reach the listeners in a message to the main thread, so anything
+        posted after the write runs after them.
+     */
+    private void waitForListeners() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        assertTrue("Error: Main thread didn't get to the listeners",
+                latch.await(5, TimeUnit.SECONDS));
+    }
+
+    public void testSnapshotFollowsPreferences() throws InterruptedException {
+        mPrefs.edit()
+                .putString(mUnitsKey, mContext.getString(R.string.pref_units_metric))
+                .commit();
+        waitForListeners();
+        AppSettings metric = AppSettings.get(mContext);
+        assertTrue("Error: Snapshot not metric", metric.metric);
+        assertSame("Error: Snapshot read again with nothing changed", metric,
+                AppSettings.get(mContext));
+
+        mPrefs.edit()
+                .putString(mUnitsKey, mContext.getString(R.string.pref_units_imperial))
+                .commit();
+        waitForListeners();
+        AppSettings imperial = AppSettings.get(mContext);
+        assertFalse("Error: Snapshot didn't follow the units", imperial.metric);
+        assertFalse("Error: Changed units look the same", imperial.sameDisplayAs(metric));
+        assertFalse("Error: Utility didn't follow the units", Utility.isMetric(mContext));
+
+        // The location status changes with every sync and isn't in the snapshot
+        Utility.resetLocationStatus(mContext);
+        waitForListeners();
+        assertSame("Error: Snapshot replaced for a preference it doesn't hold", imperial,
+                AppSettings.get(mContext));
+    }
+
+    /*
+        Logs what binding a forecast row costs now, and what the preference reads it no longer
+        makes cost on their own.  The rows are formatted before binding, as ForecastLoader does.  The timings are for reading on a device; nothing is asserted on
+        them.
+     */
+    public void testBindCost() {
+        mPrefs.edit()
+                .putString(mArtPackKey, mContext.getString(R.string.pref_art_pack_sunshine))
+                .commit();
+        AppSettings.invalidate();
+
+        Context context = new ContextThemeWrapper(mContext, R.style.AppTheme);
+        RecyclerView recyclerView = new RecyclerView(context);
+        recyclerView.setLayoutManager(new LinearLayoutManager(context));
+        ForecastAdapter adapter = new ForecastAdapter(context, null, new View(context),
+                AbsListView.CHOICE_MODE_NONE);
+        adapter.setUseTodayLayout(false);
+        adapter.swapItems(createForecastItems(context, 14));
+        ForecastAdapter.ForecastAdapterViewHolder holder =
+                adapter.onCreateViewHolder(recyclerView, adapter.getItemViewType(1));
+
+        final int rounds = 100;
+        int rows = adapter.getItemCount();
+        long bindStart = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (int position = 0; position < rows; position++) {
+                adapter.onBindViewHolder(holder, position);
+            }
+        }
+        long bindNanos = (System.nanoTime() - bindStart) / (rounds * rows);
+
+        // What a row used to read: the units for each temperature and the art pack for the icon
+        boolean sink = false;
+        long readStart = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (int position = 0; position < rows; position++) {
+                sink ^= isMetricFromPreferences(mContext);
+                sink ^= isMetricFromPreferences(mContext);
+                sink ^= usingLocalGraphicsFromPreferences(mContext);
+            }
+        }
+        long readNanos = (System.nanoTime() - readStart) / (rounds * rows);
+        Log.i(LOG_TAG, "bind " + bindNanos + " ns per row; the preference reads a row used to "
+                + "make " + readNanos + " ns (" + sink + ")");
+    }
+
+    static List<ForecastItem> createForecastItems(Context context, int days) {
+        AppSettings settings = AppSettings.get(context);
+        ConditionTable conditions = ConditionTable.getInstance(context);
+        MatrixCursor cursor = createForecastCursor(days);
+        List<ForecastItem> items = new ArrayList<ForecastItem>(days);
+        while (cursor.moveToNext()) {
+            items.add(ForecastItem.fromCursor(context, cursor, settings, conditions));
+        }
+        cursor.close();
+        return items;
+    }
+
+    private static MatrixCursor createForecastCursor(int days) {
+        MatrixCursor cursor = new MatrixCursor(new String[]{
+                WeatherContract.WeatherEntry._ID,
+                WeatherContract.WeatherEntry.COLUMN_DATE,
+                WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+                WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+                WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+                WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
+                WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+                WeatherContract.LocationEntry.COLUMN_COORD_LAT,
+                WeatherContract.LocationEntry.COLUMN_COORD_LONG
+        });
+        long today = WeatherContract.normalizeDate(System.currentTimeMillis());
+        int[] weatherIds = {200, 301, 500, 511, 601, 741, 800, 801, 803};
+        for (int i = 0; i < days; i++) {
+            cursor.addRow(new Object[]{i, today + i * DAY_IN_MILLIS, "Clear", 20.5 + i, 10.5 - i,
+                    "94043", weatherIds[i % weatherIds.length], 37.4, -122.1});
+        }
+        return cursor;
+    }
+
+    /*
+        Utility's code from before the snapshot.
+     */
+
+    static boolean isMetricFromPreferences(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        return prefs.getString(context.getString(R.string.pref_units_key),
+                context.getString(R.string.pref_units_metric))
+                .equals(context.getString(R.string.pref_units_metric));
+    }
+
+    static boolean usingLocalGraphicsFromPreferences(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String sunshineArtPack = context.getString(R.string.pref_art_pack_sunshine);
+        return prefs.getString(context.getString(R.string.pref_art_pack_key),
+                sunshineArtPack).equals(sunshineArtPack);
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import java.util.Locale;
+
+/*
+    Checks the condition table against the chains of range checks Utility used to run, for every
+    code either of them knows and some either side, and logs what a row's lookups cost each way.
+ */
+public class TestConditionTable extends AndroidTestCase {
+    private static final String LOG_TAG = TestConditionTable.class.getSimpleName();
+
+    private static final int FIRST_CHECKED_ID = 0;
+    private static final int LAST_CHECKED_ID = 1100;
+
+    private String mArtPackKey;
+    private String mSavedArtPack;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mArtPackKey = mContext.getString(R.string.pref_art_pack_key);
+        mSavedArtPack = PreferenceManager.getDefaultSharedPreferences(mContext)
+                .getString(mArtPackKey, null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        SharedPreferences.Editor editor =
+                PreferenceManager.getDefaultSharedPreferences(mContext).edit();
+        if (null == mSavedArtPack) {
+            editor.remove(mArtPackKey);
+        } else {
+            editor.putString(mArtPackKey, mSavedArtPack);
+        }
+        editor.commit();
+        AppSettings.invalidate();
+        super.tearDown();
+    }
+
+    private void setArtPack(int artPack) {
+        PreferenceManager.getDefaultSharedPreferences(mContext).edit()
+                .putString(mArtPackKey, mContext.getString(artPack))
+                .commit();
+        // The snapshot's listener only hears about it later, on the main thread
+        AppSettings.invalidate();
+    }
+
+    public void testMatchesChainsForEveryCode() {
+        checkEveryCode(R.string.pref_art_pack_sunshine, true);
+        checkEveryCode(R.string.pref_art_pack_cute_dogs, false);
+    }
+
+    private void checkEveryCode(int artPack, boolean localGraphics) {
+        setArtPack(artPack);
+        ConditionTable table = ConditionTable.getInstance(mContext);
+        assertEquals("Error: Wrong graphics for the art pack", localGraphics,
+                table.isUsingLocalGraphics());
+        assertEquals("Error: Utility disagrees on the graphics", localGraphics,
+                Utility.usingLocalGraphics(mContext));
+
+        for (int id = FIRST_CHECKED_ID; id <= LAST_CHECKED_ID; id++) {
+            ConditionTable.Condition condition = table.get(id);
+            assertEquals("Error: Wrong icon for " + id, getIconFromChain(id),
+                    condition.iconResource);
+            assertEquals("Error: Wrong icon from Utility for " + id, getIconFromChain(id),
+                    Utility.getIconResourceForWeatherCondition(id));
+            assertEquals("Error: Wrong art for " + id, getArtFromChain(id),
+                    condition.artResource);
+            assertEquals("Error: Wrong art from Utility for " + id, getArtFromChain(id),
+                    Utility.getArtResourceForWeatherCondition(id));
+            assertEquals("Error: Wrong art URL for " + id, getArtUrlFromChain(mContext, id),
+                    condition.artUrl);
+            assertEquals("Error: Wrong art URL from Utility for " + id,
+                    getArtUrlFromChain(mContext, id),
+                    Utility.getArtUrlForWeatherCondition(mContext, id));
+            assertEquals("Error: Wrong description for " + id, getStringFromChain(mContext, id),
+                    table.getDescription(id));
+            assertEquals("Error: Wrong description from Utility for " + id,
+                    getStringFromChain(mContext, id),
+                    Utility.getStringForWeatherCondition(mContext, id));
+            assertEquals("Error: Wrong Muzei image for " + id, getImageUrlFromChain(id),
+                    Utility.getImageUrlForWeatherCondition(id));
+        }
+    }
+
+    public void testBuiltOncePerArtPack() {
+        setArtPack(R.string.pref_art_pack_sunshine);
+        ConditionTable table = ConditionTable.getInstance(mContext);
+        assertSame("Error: Table built again with nothing changed", table,
+                ConditionTable.getInstance(mContext));
+
+        setArtPack(R.string.pref_art_pack_cute_dogs);
+        ConditionTable dogs = ConditionTable.getInstance(mContext);
+        assertNotSame("Error: Table not rebuilt for a new art pack", table, dogs);
+        assertEquals("Error: Art URL not from the new art pack",
+                String.format(Locale.US, mContext.getString(R.string.pref_art_pack_cute_dogs),
+                        "clear"),
+                dogs.get(800).artUrl);
+    }
+
+    public void testCompassMatchesChain() {
+        float[] boundaries = {0, 22.5f, 67.5f, 112.5f, 157.5f, 202.5f, 247.5f, 292.5f, 337.5f, 360};
+        for (float boundary : boundaries) {
+            checkCompass(boundary);
+            checkCompass(Math.nextUp(boundary));
+            checkCompass(-Math.nextUp(-boundary));
+        }
+        for (float degrees = -720; degrees <= 720; degrees += 0.1f) {
+            checkCompass(degrees);
+        }
+        checkCompass(Float.NaN);
+        checkCompass(Float.POSITIVE_INFINITY);
+        checkCompass(Float.NEGATIVE_INFINITY);
+    }
+
+    private void checkCompass(float degrees) {
+        assertEquals("Error: Wrong direction for " + degrees, getCompassFromChain(degrees),
+                Utility.getCompassDirection(degrees));
+    }
+
+    /*
+        Logs what one forecast row's icon, art, art URL and description cost through the chains
+        and through the table.  The timings are for reading on a device; nothing is asserted on
+        them.
+     */
+    public void testRowLookupCost() {
+        setArtPack(R.string.pref_art_pack_cute_dogs);
+        // Codes a forecast actually has
+        int[] ids = {200, 301, 500, 502, 511, 601, 701, 741, 781, 800, 801, 802, 803, 804};
+        final int rounds = 200;
+
+        int sum = 0;
+        long chainStart = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (int id : ids) {
+                sum += getIconFromChain(id) + getArtFromChain(id);
+                sum += getArtUrlFromChain(mContext, id).length();
+                sum += getStringFromChain(mContext, id).length();
+            }
+        }
+        long chainNanos = System.nanoTime() - chainStart;
+
+        long tableStart = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            ConditionTable table = ConditionTable.getInstance(mContext);
+            for (int id : ids) {
+                ConditionTable.Condition condition = table.get(id);
+                sum -= condition.iconResource + condition.artResource;
+                sum -= condition.artUrl.length();
+                sum -= table.getDescription(id).length();
+            }
+        }
+        long tableNanos = System.nanoTime() - tableStart;
+        // Also keeps the loops from being optimized away
+        assertEquals("Error: Table and chains disagree", 0, sum);
+
+        int rows = rounds * ids.length;
+        Log.i(LOG_TAG, "chains " + chainNanos / rows + " ns, table " + tableNanos / rows
+                + " ns per row");
+    }
+
+    /*
+        What follows is Utility's code from before the table, as the reference.
+     */
+
+    static int getIconFromChain(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return R.drawable.ic_storm;
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return R.drawable.ic_light_rain;
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return R.drawable.ic_rain;
+        } else if (weatherId == 511) {
+            return R.drawable.ic_snow;
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return R.drawable.ic_rain;
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return R.drawable.ic_snow;
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return R.drawable.ic_fog;
+        } else if (weatherId == 761 || weatherId == 781) {
+            return R.drawable.ic_storm;
+        } else if (weatherId == 800) {
+            return R.drawable.ic_clear;
+        } else if (weatherId == 801) {
+            return R.drawable.ic_light_clouds;
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return R.drawable.ic_cloudy;
+        }
+        return -1;
+    }
+
+    static int getArtFromChain(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return R.drawable.art_storm;
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return R.drawable.art_light_rain;
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return R.drawable.art_rain;
+        } else if (weatherId == 511) {
+            return R.drawable.art_snow;
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return R.drawable.art_rain;
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return R.drawable.art_snow;
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return R.drawable.art_fog;
+        } else if (weatherId == 761 || weatherId == 781) {
+            return R.drawable.art_storm;
+        } else if (weatherId == 800) {
+            return R.drawable.art_clear;
+        } else if (weatherId == 801) {
+            return R.drawable.art_light_clouds;
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return R.drawable.art_clouds;
+        }
+        return -1;
+    }
+
+    static String getArtUrlFromChain(Context context, int weatherId) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String formatArtUrl = prefs.getString(context.getString(R.string.pref_art_pack_key),
+                context.getString(R.string.pref_art_pack_sunshine));
+
+        if (weatherId >= 200 && weatherId <= 232) {
+            return String.format(Locale.US, formatArtUrl, "storm");
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return String.format(Locale.US, formatArtUrl, "light_rain");
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return String.format(Locale.US, formatArtUrl, "rain");
+        } else if (weatherId == 511) {
+            return String.format(Locale.US, formatArtUrl, "snow");
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return String.format(Locale.US, formatArtUrl, "rain");
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return String.format(Locale.US, formatArtUrl, "snow");
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return String.format(Locale.US, formatArtUrl, "fog");
+        } else if (weatherId == 761 || weatherId == 781) {
+            return String.format(Locale.US, formatArtUrl, "storm");
+        } else if (weatherId == 800) {
+            return String.format(Locale.US, formatArtUrl, "clear");
+        } else if (weatherId == 801) {
+            return String.format(Locale.US, formatArtUrl, "light_clouds");
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return String.format(Locale.US, formatArtUrl, "clouds");
+        }
+        return null;
+    }
+
+    static String getStringFromChain(Context context, int weatherId) {
+        int stringId;
+        if (weatherId >= 200 && weatherId <= 232) {
+            stringId = R.string.condition_2xx;
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            stringId = R.string.condition_3xx;
+        } else switch (weatherId) {
+            // Each of these has a string named after it, but 521 and 522 were never used
+            case 500: case 501: case 502: case 503: case 504: case 511: case 520: case 531:
+            case 600: case 601: case 602: case 611: case 612: case 615: case 616: case 620:
+            case 621: case 622:
+            case 701: case 711: case 721: case 731: case 741: case 751: case 761: case 762:
+            case 771: case 781:
+            case 800: case 801: case 802: case 803: case 804:
+            case 900: case 901: case 902: case 903: case 904: case 905: case 906:
+            case 951: case 952: case 953: case 954: case 955: case 956: case 957: case 958:
+            case 959: case 960: case 961: case 962:
+                stringId = context.getResources().getIdentifier("condition_" + weatherId,
+                        "string", context.getPackageName());
+                break;
+            default:
+                return context.getString(R.string.condition_unknown, weatherId);
+        }
+        return context.getString(stringId);
+    }
+
+    static String getImageUrlFromChain(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return "http://upload.wikimedia.org/wikipedia/commons/2/28/Thunderstorm_in_Annemasse,_France.jpg";
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return "http://upload.wikimedia.org/wikipedia/commons/a/a0/Rain_on_leaf_504605006.jpg";
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return "http://upload.wikimedia.org/wikipedia/commons/6/6c/Rain-on-Thassos.jpg";
+        } else if (weatherId == 511) {
+            return "http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG";
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return "http://upload.wikimedia.org/wikipedia/commons/6/6c/Rain-on-Thassos.jpg";
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return "http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG";
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return "http://upload.wikimedia.org/wikipedia/commons/e/e6/Westminster_fog_-_London_-_UK.jpg";
+        } else if (weatherId == 761 || weatherId == 781) {
+            return "http://upload.wikimedia.org/wikipedia/commons/d/dc/Raised_dust_ahead_of_a_severe_thunderstorm_1.jpg";
+        } else if (weatherId == 800) {
+            return "http://upload.wikimedia.org/wikipedia/commons/7/7e/A_few_trees_and_the_sun_(6009964513).jpg";
+        } else if (weatherId == 801) {
+            return "http://upload.wikimedia.org/wikipedia/commons/e/e7/Cloudy_Blue_Sky_(5031259890).jpg";
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return "http://upload.wikimedia.org/wikipedia/commons/5/54/Cloudy_hills_in_Elis,_Greece_2.jpg";
+        }
+        return null;
+    }
+
+    static String getCompassFromChain(float degrees) {
+        String direction = "Unknown";
+        if (degrees >= 337.5 || degrees < 22.5) {
+            direction = "N";
+        } else if (degrees >= 22.5 && degrees < 67.5) {
+            direction = "NE";
+        } else if (degrees >= 67.5 && degrees < 112.5) {
+            direction = "E";
+        } else if (degrees >= 112.5 && degrees < 157.5) {
+            direction = "SE";
+        } else if (degrees >= 157.5 && degrees < 202.5) {
+            direction = "S";
+        } else if (degrees >= 202.5 && degrees < 247.5) {
+            direction = "SW";
+        } else if (degrees >= 247.5 && degrees < 292.5) {
+            direction = "W";
+        } else if (degrees >= 292.5 && degrees < 337.5) {
+            direction = "NW";
+        }
+        return direction;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.test.AndroidTestCase;
+import android.text.format.Time;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+public class TestDayFormatter extends AndroidTestCase {
+    private static final String LOG_TAG = TestDayFormatter.class.getSimpleName();
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    private static final long TODAY = WeatherContract.normalizeDate(System.currentTimeMillis());
+
+    public void testSameAsBefore() {
+        for (int day = -3; day < 21; day++) {
+            long date = TODAY + day * DAY_IN_MILLIS;
+            assertEquals("Error: Friendly day differs " + day + " days ahead",
+                    getFriendlyDayStringUncached(mContext, date, false),
+                    Utility.getFriendlyDayString(mContext, date, false));
+            assertEquals("Error: Long friendly day differs " + day + " days ahead",
+                    getFriendlyDayStringUncached(mContext, date, true),
+                    Utility.getFriendlyDayString(mContext, date, true));
+            assertEquals("Error: Day name differs " + day + " days ahead",
+                    getDayNameUncached(mContext, date), Utility.getDayName(mContext, date));
+            assertEquals("Error: Month and day differ " + day + " days ahead",
+                    getFormattedMonthDayUncached(date),
+                    Utility.getFormattedMonthDay(mContext, date));
+            assertEquals("Error: Full friendly day differs " + day + " days ahead",
+                    getFullFriendlyDayStringUncached(mContext, date),
+                    Utility.getFullFriendlyDayString(mContext, date));
+        }
+    }
+
+    public void testLocaleChangeForgetsDays() {
+        long date = TODAY + 10 * DAY_IN_MILLIS;
+        Locale saved = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.US);
+            assertEquals("Error: Wrong day in the US",
+                    new SimpleDateFormat("EEEE", Locale.US).format(date),
+                    Utility.getDayName(mContext, date));
+            Locale.setDefault(Locale.FRANCE);
+            assertEquals("Error: Day remembered from another locale",
+                    new SimpleDateFormat("EEEE", Locale.FRANCE).format(date),
+                    Utility.getDayName(mContext, date));
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+
+    /*
+        Logs the time for 10,000 calls over a two week forecast, before and after.  The timings
+        are for reading on a device; nothing is asserted on them.
+     */
+    public void testFormattingCost() {
+        final int calls = 10000;
+        final int days = 14;
+        int sink = 0;
+
+        long uncachedStart = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            long date = TODAY + (i % days) * DAY_IN_MILLIS;
+            sink += getFriendlyDayStringUncached(mContext, date, i % days == 0).length();
+        }
+        long uncachedNanos = System.nanoTime() - uncachedStart;
+
+        long cachedStart = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            long date = TODAY + (i % days) * DAY_IN_MILLIS;
+            sink += Utility.getFriendlyDayString(mContext, date, i % days == 0).length();
+        }
+        long cachedNanos = System.nanoTime() - cachedStart;
+
+        Log.i(LOG_TAG, calls + " friendly days: " + uncachedNanos / 1000000 + " ms before, "
+                + cachedNanos / 1000000 + " ms now (" + sink + ")");
+    }
+
+    /*
+        Utility's code from before DayFormatter.
+     */
+
+    static String getFriendlyDayStringUncached(Context context, long dateInMillis,
+                                               boolean displayLongToday) {
+        Time time = new Time();
+        time.setToNow();
+        long currentTime = System.currentTimeMillis();
+        int julianDay = Time.getJulianDay(dateInMillis, time.gmtoff);
+        int currentJulianDay = Time.getJulianDay(currentTime, time.gmtoff);
+
+        if (displayLongToday && julianDay == currentJulianDay) {
+            String today = context.getString(R.string.today);
+            int formatId = R.string.format_full_friendly_date;
+            return String.format(context.getString(
+                    formatId,
+                    today,
+                    getFormattedMonthDayUncached(dateInMillis)));
+        } else if ( julianDay < currentJulianDay + 7 ) {
+            return getDayNameUncached(context, dateInMillis);
+        } else {
+            SimpleDateFormat shortenedDateFormat = new SimpleDateFormat("EEE MMM dd");
+            return shortenedDateFormat.format(dateInMillis);
+        }
+    }
+
+    static String getFullFriendlyDayStringUncached(Context context, long dateInMillis) {
+        String day = getDayNameUncached(context, dateInMillis);
+        int formatId = R.string.format_full_friendly_date;
+        return String.format(context.getString(
+                formatId,
+                day,
+                getFormattedMonthDayUncached(dateInMillis)));
+    }
+
+    static String getDayNameUncached(Context context, long dateInMillis) {
+        Time t = new Time();
+        t.setToNow();
+        int julianDay = Time.getJulianDay(dateInMillis, t.gmtoff);
+        int currentJulianDay = Time.getJulianDay(System.currentTimeMillis(), t.gmtoff);
+        if (julianDay == currentJulianDay) {
+            return context.getString(R.string.today);
+        } else if ( julianDay == currentJulianDay +1 ) {
+            return context.getString(R.string.tomorrow);
+        } else {
+            SimpleDateFormat dayFormat = new SimpleDateFormat("EEEE");
+            return dayFormat.format(dateInMillis);
+        }
+    }
+
+    static String getFormattedMonthDayUncached(long dateInMillis) {
+        SimpleDateFormat monthDayFormat = new SimpleDateFormat("MMMM dd");
+        return monthDayFormat.format(dateInMillis);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.annotation.TargetApi;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Build;
+import android.support.v7.widget.RecyclerView;
+import android.test.ActivityInstrumentationTestCase2;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.ViewConfiguration;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.utils.PollingCheck;
+
+import java.util.Arrays;
+
+/*
+    Flings the forecast list and logs how long its frames took.  The timings are for reading on a
+    device; nothing is asserted on them.
+ */
+public class TestForecastScrolling extends ActivityInstrumentationTestCase2<MainActivity> {
+    private static final String LOG_TAG = TestForecastScrolling.class.getSimpleName();
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    private static final int DAYS = 60;
+    // One frame at 60 frames a second
+    private static final long FRAME_NANOS = 1000000000L / 60;
+    // Vsync timestamps jitter; a frame this far past the last one missed at least one vsync
+    private static final long JANK_NANOS = FRAME_NANOS * 3 / 2;
+
+    public TestForecastScrolling() {
+        super(MainActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        insertForecast(getInstrumentation().getTargetContext());
+    }
+
+    /*
+        Enough days for the preferred location that a fling has rows to bind all the way.
+     */
+    private static void insertForecast(Context context) {
+        String location = AppSettings.get(context).location;
+        long locationId;
+        Cursor cursor = context.getContentResolver().query(
+                WeatherContract.LocationEntry.CONTENT_URI,
+                new String[]{WeatherContract.LocationEntry._ID},
+                WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
+                new String[]{location}, null);
+        try {
+            if (cursor.moveToFirst()) {
+                locationId = cursor.getLong(0);
+            } else {
+                ContentValues values = new ContentValues();
+                values.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, location);
+                values.put(WeatherContract.LocationEntry.COLUMN_CITY_NAME, "Mountain View");
+                values.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT, 37.4);
+                values.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, -122.1);
+                locationId = Long.parseLong(context.getContentResolver().insert(
+                        WeatherContract.LocationEntry.CONTENT_URI, values).getLastPathSegment());
+            }
+        } finally {
+            cursor.close();
+        }
+
+        long today = WeatherContract.normalizeDate(System.currentTimeMillis());
+        int[] weatherIds = {200, 301, 500, 511, 601, 741, 800, 801, 803};
+        ContentValues[] days = new ContentValues[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            ContentValues values = new ContentValues();
+            values.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
+            values.put(WeatherContract.WeatherEntry.COLUMN_DATE, today + i * DAY_IN_MILLIS);
+            values.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, 1.1);
+            values.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, 1.2);
+            values.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, 1.3);
+            values.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, 20.5 + i % 10);
+            values.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, 10.5 - i % 10);
+            values.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, "Clear");
+            values.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, 5.5);
+            values.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+                    weatherIds[i % weatherIds.length]);
+            days[i] = values;
+        }
+        context.getContentResolver().bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, days);
+    }
+
+    public void testFlingFrameTimes() throws Throwable {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            Log.i(LOG_TAG, "No Choreographer to time frames with before Jelly Bean");
+            return;
+        }
+        final RecyclerView recyclerView =
+                (RecyclerView) getActivity().findViewById(R.id.recyclerview_forecast);
+        new PollingCheck(5000) {
+            @Override
+            protected boolean check() {
+                return recyclerView.getAdapter().getItemCount() >= DAYS;
+            }
+        }.run();
+
+        final FrameRecorder recorder = new FrameRecorder();
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                recorder.start();
+                recyclerView.fling(0, ViewConfiguration.get(getActivity())
+                        .getScaledMaximumFlingVelocity());
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+        new PollingCheck(10000) {
+            @Override
+            protected boolean check() {
+                return recyclerView.getScrollState() == RecyclerView.SCROLL_STATE_IDLE;
+            }
+        }.run();
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                recorder.stop();
+            }
+        });
+
+        long[] frames = recorder.getFrameNanos();
+        assertTrue("Error: The fling didn't draw a frame", frames.length > 0);
+        Arrays.sort(frames);
+        int janky = 0;
+        for (long frame : frames) {
+            if (frame > JANK_NANOS) {
+                janky++;
+            }
+        }
+        Log.i(LOG_TAG, frames.length + " frames; 50th percentile "
+                + percentile(frames, 50) / 1000 + " us, 90th " + percentile(frames, 90) / 1000
+                + " us, 99th " + percentile(frames, 99) / 1000 + " us; " + janky
+                + " missed a vsync");
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+
+    /*
+        Records the time between frames, from Choreographer's vsync timestamps.  A frame that took
+        longer than one vsync to produce pushes the next one back by a whole vsync or more.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class FrameRecorder implements Choreographer.FrameCallback {
+        private long[] mFrames = new long[256];
+        private int mCount;
+        private long mLastFrameNanos;
+        private boolean mRunning;
+
+        void start() {
+            mRunning = true;
+            mLastFrameNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        void stop() {
+            mRunning = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!mRunning) {
+                return;
+            }
+            if (0 != mLastFrameNanos) {
+                if (mCount == mFrames.length) {
+                    mFrames = Arrays.copyOf(mFrames, mCount * 2);
+                }
+                mFrames[mCount++] = frameTimeNanos - mLastFrameNanos;
+            }
+            mLastFrameNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        long[] getFrameNanos() {
+            return Arrays.copyOf(mFrames, mCount);
+        }
+    }
+}
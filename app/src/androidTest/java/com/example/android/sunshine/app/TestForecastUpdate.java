@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.database.MatrixCursor;
+import android.support.v7.widget.RecyclerView;
+import android.test.AndroidTestCase;
+import android.view.ViewGroup;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestForecastUpdate extends AndroidTestCase {
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    private static final long TODAY = WeatherContract.normalizeDate(System.currentTimeMillis());
+
+    /*
+        Days given as offsets from today, with their weather and high; the low is the same for
+        all of them.
+     */
+    private List<ForecastItem> createItems(String location, int[] days, int[] weatherIds,
+                                           int[] highs) {
+        AppSettings settings = AppSettings.get(mContext);
+        ConditionTable conditions = ConditionTable.getInstance(mContext);
+        MatrixCursor cursor = new MatrixCursor(new String[]{
+                WeatherContract.WeatherEntry._ID,
+                WeatherContract.WeatherEntry.COLUMN_DATE,
+                WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+                WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+                WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+                WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
+                WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+                WeatherContract.LocationEntry.COLUMN_COORD_LAT,
+                WeatherContract.LocationEntry.COLUMN_COORD_LONG
+        });
+        for (int i = 0; i < days.length; i++) {
+            cursor.addRow(new Object[]{i, TODAY + days[i] * DAY_IN_MILLIS, "Clear", highs[i], 10,
+                    location, weatherIds[i], 37.4, -122.1});
+        }
+        List<ForecastItem> items = new ArrayList<ForecastItem>(days.length);
+        while (cursor.moveToNext()) {
+            items.add(ForecastItem.fromCursor(mContext, cursor, settings, conditions));
+        }
+        cursor.close();
+        return items;
+    }
+
+    /*
+        Plays the notifications an update makes on a copy of the rows it follows, marking the
+        rows that would be bound again.
+     */
+    private static class RowTracker extends RecyclerView.AdapterDataObserver {
+        final List<Long> mRows = new ArrayList<Long>();
+        final List<Boolean> mRebound = new ArrayList<Boolean>();
+        boolean mDataSetChanged;
+
+        RowTracker(List<ForecastItem> items) {
+            for (ForecastItem item : items) {
+                mRows.add(item.date);
+                mRebound.add(false);
+            }
+        }
+
+        @Override
+        public void onChanged() {
+            mDataSetChanged = true;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            for (int i = positionStart; i < positionStart + itemCount; i++) {
+                mRebound.set(i, true);
+            }
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            for (int i = 0; i < itemCount; i++) {
+                // A placeholder until checked against the new items
+                mRows.add(positionStart + i, null);
+                mRebound.add(positionStart + i, true);
+            }
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            for (int i = 0; i < itemCount; i++) {
+                mRows.remove(positionStart);
+                mRebound.remove(positionStart);
+            }
+        }
+    }
+
+    private static class EmptyAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return null;
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return 0;
+        }
+    }
+
+    private RowTracker dispatch(List<ForecastItem> previous, ForecastUpdate update) {
+        RowTracker tracker = new RowTracker(previous);
+        EmptyAdapter adapter = new EmptyAdapter();
+        adapter.registerAdapterDataObserver(tracker);
+        update.dispatchTo(adapter);
+        return tracker;
+    }
+
+    private void assertRows(RowTracker tracker, List<ForecastItem> items) {
+        assertEquals("Error: Wrong number of rows after the update", items.size(),
+                tracker.mRows.size());
+        for (int i = 0; i < items.size(); i++) {
+            Long row = tracker.mRows.get(i);
+            assertTrue("Error: Row " + i + " is the wrong day after the update",
+                    null == row || row == items.get(i).date);
+        }
+    }
+
+    public void testNothingChanged() {
+        int[] days = {0, 1, 2, 3};
+        int[] weather = {800, 801, 500, 200};
+        int[] highs = {20, 21, 22, 23};
+        List<ForecastItem> previous = createItems("94043", days, weather, highs);
+        ForecastUpdate update = ForecastUpdate.compute(previous,
+                createItems("94043", days, weather, highs));
+        assertFalse("Error: Same days were replaced", update.isReplacement());
+        assertEquals("Error: Same days changed", 0, update.getChangeCount());
+    }
+
+    public void testOnlyChangedRowsRebind() {
+        List<ForecastItem> previous = createItems("94043",
+                new int[]{0, 1, 2, 3, 4, 5},
+                new int[]{800, 801, 500, 200, 800, 801},
+                new int[]{20, 21, 22, 23, 24, 25});
+        // Day 1 went; day 3 changed its weather and day 4 its high; days 6 and 7 came
+        List<ForecastItem> items = createItems("94043",
+                new int[]{0, 2, 3, 4, 5, 6, 7},
+                new int[]{800, 500, 600, 800, 801, 800, 800},
+                new int[]{20, 22, 23, 30, 25, 26, 27});
+        ForecastUpdate update = ForecastUpdate.compute(previous, items);
+        assertFalse("Error: Update for the same location replaced the rows",
+                update.isReplacement());
+
+        RowTracker tracker = dispatch(previous, update);
+        assertFalse("Error: Update rebound every row", tracker.mDataSetChanged);
+        assertRows(tracker, items);
+        boolean[] rebound = {false, false, true, true, false, true, true};
+        for (int i = 0; i < rebound.length; i++) {
+            assertEquals("Error: Row " + i + " rebound wrongly", rebound[i],
+                    (boolean) tracker.mRebound.get(i));
+        }
+        // Removal of day 1, change of days 3-4, insertion of days 6-7
+        assertEquals("Error: Runs of changes not gathered into ranges", 3,
+                update.getChangeCount());
+    }
+
+    public void testNewDay() {
+        List<ForecastItem> previous = createItems("94043",
+                new int[]{0, 1, 2},
+                new int[]{800, 801, 500},
+                new int[]{20, 21, 22});
+        // Yesterday's gone, and the first row is today's now
+        List<ForecastItem> items = createItems("94043",
+                new int[]{1, 2, 3},
+                new int[]{801, 500, 200},
+                new int[]{21, 22, 23});
+        ForecastUpdate update = ForecastUpdate.compute(previous, items);
+        RowTracker tracker = dispatch(previous, update);
+        assertRows(tracker, items);
+        assertTrue("Error: New last day not bound", tracker.mRebound.get(2));
+    }
+
+    public void testOtherLocationReplaces() {
+        int[] days = {0, 1};
+        int[] weather = {800, 801};
+        int[] highs = {20, 21};
+        ForecastUpdate update = ForecastUpdate.compute(
+                createItems("94043", days, weather, highs),
+                createItems("10001", days, weather, highs));
+        assertTrue("Error: Update for another location kept rows", update.isReplacement());
+        assertTrue("Error: First forecast not a replacement",
+                ForecastUpdate.compute(null, createItems("94043", days, weather, highs))
+                        .isReplacement());
+    }
+}
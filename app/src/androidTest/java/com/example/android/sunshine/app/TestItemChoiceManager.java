@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.support.v7.widget.RecyclerView;
+import android.test.AndroidTestCase;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestItemChoiceManager extends AndroidTestCase {
+
+    /*
+        Rows that are nothing but their ids, counting how often they're asked for one.
+     */
+    private static class IdAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        final List<Long> mIds = new ArrayList<Long>();
+        int mIdLookups;
+
+        IdAdapter(long firstId, int count) {
+            setHasStableIds(true);
+            for (int i = 0; i < count; i++) {
+                mIds.add(firstId + i);
+            }
+        }
+
+        @Override
+        public long getItemId(int position) {
+            mIdLookups++;
+            return mIds.get(position);
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return null;
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return mIds.size();
+        }
+    }
+
+    private static void check(ItemChoiceManager icm, IdAdapter adapter, int position) {
+        icm.mCheckStates.put(position, true);
+        icm.mCheckedIdStates.put(adapter.mIds.get(position), position);
+    }
+
+    public void testCheckedItemsFollowTheirIds() {
+        IdAdapter adapter = new IdAdapter(1000, 200);
+        ItemChoiceManager icm = new ItemChoiceManager(adapter);
+        icm.setChoiceMode(AbsListView.CHOICE_MODE_MULTIPLE);
+        check(icm, adapter, 5);
+        check(icm, adapter, 150);
+
+        // Far more rows come in ahead of them than a search around the old positions would cover
+        List<Long> earlier = new ArrayList<Long>();
+        for (int i = 0; i < 100; i++) {
+            earlier.add(500L + i);
+        }
+        adapter.mIds.addAll(0, earlier);
+        adapter.notifyItemRangeInserted(0, earlier.size());
+
+        assertTrue("Error: Checked item lost moving 100 rows", icm.isItemChecked(105));
+        assertTrue("Error: Checked item lost moving 100 rows", icm.isItemChecked(250));
+        assertFalse("Error: Checked item left at its old position", icm.isItemChecked(5));
+        assertEquals("Error: Wrong number of items checked", 2, icm.getCheckedItemCount());
+
+        // A checked item that goes is unchecked
+        adapter.mIds.remove(105);
+        adapter.notifyItemRemoved(105);
+        assertEquals("Error: Removed item still checked", 1, icm.getCheckedItemCount());
+        assertTrue("Error: Remaining checked item lost", icm.isItemChecked(249));
+        assertEquals("Error: Wrong id checked", 1150L, icm.getCheckedItemIds()[0]);
+    }
+
+    public void testPositionsWorkedOutOncePerChange() {
+        IdAdapter adapter = new IdAdapter(0, 500);
+        ItemChoiceManager icm = new ItemChoiceManager(adapter);
+        icm.setChoiceMode(AbsListView.CHOICE_MODE_MULTIPLE);
+        for (int position = 0; position < 500; position += 50) {
+            check(icm, adapter, position);
+        }
+
+        // An update that arrives as several notifications
+        adapter.mIds.remove(499);
+        adapter.mIds.add(0, -1L);
+        adapter.notifyItemRemoved(499);
+        adapter.notifyItemInserted(0);
+        adapter.notifyItemChanged(10);
+
+        adapter.mIdLookups = 0;
+        for (int position = 0; position < adapter.getItemCount(); position++) {
+            icm.isItemChecked(position);
+        }
+        assertEquals("Error: Ids looked up more than once a row", adapter.getItemCount(),
+                adapter.mIdLookups);
+        assertTrue("Error: Checked item lost", icm.isItemChecked(451));
+        assertEquals("Error: Wrong number of items checked", 10, icm.getCheckedItemCount());
+    }
+}
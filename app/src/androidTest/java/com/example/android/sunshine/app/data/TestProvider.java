@@ -24,12 +24,15 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Bundle;
 import android.test.AndroidTestCase;
 import android.util.Log;
 
 import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
 import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
 
+import java.util.Arrays;
+
 /*
     Note: This is not a complete set of tests of the Sunshine ContentProvider, but it does test
     that at least the basic functionality has been implemented correctly.
@@ -512,4 +515,323 @@ public class TestProvider extends AndroidTestCase {
         }
         cursor.close();
     }
+
+    /*
+        This test bulk inserts ten days of weather and checks that the summary URI aggregates
+        exactly the requested range in the database and returns it as a single row.
+     */
+    public void testWeatherSummaryQuery() {
+        ContentValues testValues = TestUtilities.createNorthPoleLocationValues();
+        Uri locationUri = mContext.getContentResolver().insert(LocationEntry.CONTENT_URI, testValues);
+        long locationRowId = ContentUris.parseId(locationUri);
+
+        ContentValues[] bulkInsertContentValues = createBulkInsertWeatherValues(locationRowId);
+        // Make one day stand out so that the dominant condition is not simply the only one.
+        bulkInsertContentValues[3].put(WeatherEntry.COLUMN_WEATHER_ID, 800);
+        mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI, bulkInsertContentValues);
+
+        final int summaryDays = 7;
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherEntry.buildWeatherSummaryUri(TestUtilities.TEST_LOCATION,
+                        TestUtilities.TEST_DATE, summaryDays),
+                null,
+                null,
+                null,
+                null
+        );
+
+        assertEquals("Error: Summary query should return exactly one row", 1, cursor.getCount());
+        assertTrue(cursor.moveToFirst());
+        assertEquals("Error: Summary covered the wrong number of days", summaryDays,
+                cursor.getInt(cursor.getColumnIndex(WeatherEntry.COLUMN_SUMMARY_DAYS)));
+        assertEquals("Error: Summary min should be the min of the daily mins", 65.0 - (summaryDays - 1),
+                cursor.getDouble(cursor.getColumnIndex(WeatherEntry.COLUMN_SUMMARY_MIN_TEMP)));
+        assertEquals("Error: Summary max should be the max of the daily maxes", 75.0 + (summaryDays - 1),
+                cursor.getDouble(cursor.getColumnIndex(WeatherEntry.COLUMN_SUMMARY_MAX_TEMP)));
+        assertEquals("Error: Summary humidity should be the average humidity", 1.23,
+                cursor.getDouble(cursor.getColumnIndex(WeatherEntry.COLUMN_SUMMARY_HUMIDITY)), 0.0001);
+        assertEquals("Error: Summary weather id should be the most frequent one", 321,
+                cursor.getInt(cursor.getColumnIndex(WeatherEntry.COLUMN_SUMMARY_WEATHER_ID)));
+        cursor.close();
+
+        // A projection selects from the aggregated row
+        cursor = mContext.getContentResolver().query(
+                WeatherEntry.buildWeatherSummaryUri(TestUtilities.TEST_LOCATION,
+                        TestUtilities.TEST_DATE, summaryDays),
+                new String[]{WeatherEntry.COLUMN_SUMMARY_MAX_TEMP},
+                null,
+                null,
+                null
+        );
+        assertTrue(cursor.moveToFirst());
+        assertEquals(1, cursor.getColumnCount());
+        assertEquals(75.0 + (summaryDays - 1), cursor.getDouble(0));
+        cursor.close();
+    }
+
+    /*
+        This test stores one day of weather for several locations and checks that the overview
+        URI returns one row per location for that day, and that paging splits it correctly.
+     */
+    public void testOverviewQuery() {
+        final int locationCount = 5;
+        for (int i = 0; i < locationCount; i++) {
+            ContentValues locationValues = TestUtilities.createNorthPoleLocationValues();
+            locationValues.put(LocationEntry.COLUMN_LOCATION_SETTING, TestUtilities.TEST_LOCATION + i);
+            locationValues.put(LocationEntry.COLUMN_CITY_NAME, "North Pole " + i);
+            Uri locationUri = mContext.getContentResolver().insert(LocationEntry.CONTENT_URI, locationValues);
+            long locationRowId = ContentUris.parseId(locationUri);
+            mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI,
+                    createBulkInsertWeatherValues(locationRowId));
+        }
+
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherContract.OverviewEntry.buildOverviewUri(TestUtilities.TEST_DATE),
+                null,
+                null,
+                null,
+                null
+        );
+        assertEquals("Error: Overview should have one row per location", locationCount, cursor.getCount());
+        int cityColumn = cursor.getColumnIndex(LocationEntry.COLUMN_CITY_NAME);
+        for (int i = 0; cursor.moveToNext(); i++) {
+            assertEquals("Error: Overview rows should be sorted by city name",
+                    "North Pole " + i, cursor.getString(cityColumn));
+        }
+        cursor.close();
+
+        cursor = mContext.getContentResolver().query(
+                WeatherContract.OverviewEntry.buildOverviewUri(TestUtilities.TEST_DATE, 3, 3),
+                null,
+                null,
+                null,
+                null
+        );
+        assertEquals("Error: Last overview page should hold the remaining locations",
+                locationCount - 3, cursor.getCount());
+        assertTrue(cursor.moveToFirst());
+        assertEquals("North Pole 3", cursor.getString(cursor.getColumnIndex(LocationEntry.COLUMN_CITY_NAME)));
+        cursor.close();
+    }
+
+    /*
+        This test stores a forecast through the replaceForecast call and checks that the existing
+        location was reused, every day was inserted, and weather on or before the cutoff went.
+     */
+    public void testReplaceForecastCall() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) return;
+
+        final long millisecondsInADay = 1000*60*60*24;
+        long locationRowId = TestUtilities.insertNorthPoleLocationValues(mContext);
+
+        // A day before the forecast that the call should clean up
+        ContentValues oldWeather = TestUtilities.createWeatherValues(locationRowId);
+        oldWeather.put(WeatherEntry.COLUMN_DATE, TestUtilities.TEST_DATE - millisecondsInADay);
+        mContext.getContentResolver().insert(WeatherEntry.CONTENT_URI, oldWeather);
+
+        TestUtilities.TestContentObserver weatherObserver = TestUtilities.getTestContentObserver();
+        mContext.getContentResolver().registerContentObserver(WeatherEntry.CONTENT_URI, true, weatherObserver);
+
+        ContentValues[] forecast = createBulkInsertWeatherValues(-1);
+        Bundle result = mContext.getContentResolver().call(WeatherContract.BASE_CONTENT_URI,
+                WeatherContract.METHOD_REPLACE_FORECAST, null,
+                WeatherContract.buildReplaceForecastExtras(TestUtilities.TEST_LOCATION, "North Pole",
+                        64.7488, -147.353, forecast,
+                        WeatherContract.normalizeDate(TestUtilities.TEST_DATE - millisecondsInADay)));
+
+        weatherObserver.waitForNotificationOrFail();
+        mContext.getContentResolver().unregisterContentObserver(weatherObserver);
+
+        assertEquals("Error: replaceForecast should reuse the stored location",
+                locationRowId, result.getLong(WeatherContract.EXTRA_LOCATION_ID));
+        assertEquals("Error: replaceForecast inserted the wrong number of days",
+                BULK_INSERT_RECORDS_TO_INSERT, result.getInt(WeatherContract.EXTRA_COUNT));
+
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherEntry.CONTENT_URI,
+                null,
+                null,
+                null,
+                WeatherEntry.COLUMN_DATE + " ASC"
+        );
+        assertEquals("Error: Old weather should have been deleted by replaceForecast",
+                BULK_INSERT_RECORDS_TO_INSERT, cursor.getCount());
+        cursor.moveToFirst();
+        for ( int i = 0; i < BULK_INSERT_RECORDS_TO_INSERT; i++, cursor.moveToNext() ) {
+            assertEquals("Error: replaceForecast should store normalized dates",
+                    WeatherContract.normalizeDate(forecast[i].getAsLong(WeatherEntry.COLUMN_DATE)),
+                    cursor.getLong(cursor.getColumnIndex(WeatherEntry.COLUMN_DATE)));
+            assertEquals("Error: replaceForecast stored the wrong location key",
+                    locationRowId, cursor.getLong(cursor.getColumnIndex(WeatherEntry.COLUMN_LOC_KEY)));
+        }
+        cursor.close();
+
+        // A location we haven't seen before is added along with its forecast
+        TestUtilities.TestContentObserver locationObserver = TestUtilities.getTestContentObserver();
+        mContext.getContentResolver().registerContentObserver(LocationEntry.CONTENT_URI, true, locationObserver);
+
+        result = mContext.getContentResolver().call(WeatherContract.BASE_CONTENT_URI,
+                WeatherContract.METHOD_REPLACE_FORECAST, null,
+                WeatherContract.buildReplaceForecastExtras("94043", "Mountain View",
+                        37.4, -122.1, forecast, 0));
+
+        locationObserver.waitForNotificationOrFail();
+        mContext.getContentResolver().unregisterContentObserver(locationObserver);
+
+        assertTrue("Error: replaceForecast should add a new location",
+                result.getLong(WeatherContract.EXTRA_LOCATION_ID) != locationRowId);
+        cursor = mContext.getContentResolver().query(WeatherEntry.CONTENT_URI, null, null, null, null);
+        assertEquals("Error: Both locations' forecasts should be stored",
+                2 * BULK_INSERT_RECORDS_TO_INSERT, cursor.getCount());
+        cursor.close();
+    }
+
+    /*
+        This test reads one day for several locations with the getDayForLocations call, and
+        checks that results come back in request order with misses flagged.
+     */
+    public void testGetDayForLocationsCall() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) return;
+
+        final int locationCount = 3;
+        for (int i = 0; i < locationCount; i++) {
+            ContentValues locationValues = TestUtilities.createNorthPoleLocationValues();
+            locationValues.put(LocationEntry.COLUMN_LOCATION_SETTING, TestUtilities.TEST_LOCATION + i);
+            Uri locationUri = mContext.getContentResolver().insert(LocationEntry.CONTENT_URI, locationValues);
+            ContentValues weatherValues = TestUtilities.createWeatherValues(ContentUris.parseId(locationUri));
+            weatherValues.put(WeatherEntry.COLUMN_MAX_TEMP, 80 + i);
+            weatherValues.put(WeatherEntry.COLUMN_WEATHER_ID, 800 + i);
+            mContext.getContentResolver().insert(WeatherEntry.CONTENT_URI, weatherValues);
+        }
+
+        String[] requested = new String[]{
+                TestUtilities.TEST_LOCATION + 2,
+                "unknown",
+                TestUtilities.TEST_LOCATION + 0
+        };
+        Bundle result = mContext.getContentResolver().call(WeatherContract.BASE_CONTENT_URI,
+                WeatherContract.METHOD_GET_DAY_FOR_LOCATIONS, null,
+                WeatherContract.buildDayForLocationsExtras(requested, TestUtilities.TEST_DATE));
+
+        boolean[] found = result.getBooleanArray(WeatherContract.EXTRA_FOUND);
+        int[] weatherIds = result.getIntArray(WeatherContract.EXTRA_WEATHER_IDS);
+        double[] maxTemps = result.getDoubleArray(WeatherContract.EXTRA_MAX_TEMPS);
+        String[] shortDescs = result.getStringArray(WeatherContract.EXTRA_SHORT_DESCS);
+
+        assertEquals("Error: Results should be parallel to the requested locations",
+                requested.length, found.length);
+        assertTrue(found[0]);
+        assertEquals(802, weatherIds[0]);
+        assertEquals(82.0, maxTemps[0]);
+        assertEquals("Asteroids", shortDescs[0]);
+        assertFalse("Error: A location without weather should not be found", found[1]);
+        assertTrue(found[2]);
+        assertEquals(800, weatherIds[2]);
+        assertEquals(80.0, maxTemps[2]);
+    }
+
+    /*
+        This test asks getDayForLocations for more locations than SQLite can bind in one
+        statement, and checks the weather on either side of each chunk boundary comes back.
+     */
+    public void testGetDayForManyLocationsCall() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) return;
+
+        final int locationCount = 2 * WeatherProvider.MAX_LOCATIONS_PER_QUERY + 10;
+        final int[] withWeather = new int[]{0,
+                WeatherProvider.MAX_LOCATIONS_PER_QUERY - 1,
+                WeatherProvider.MAX_LOCATIONS_PER_QUERY,
+                2 * WeatherProvider.MAX_LOCATIONS_PER_QUERY,
+                locationCount - 1};
+
+        String[] requested = new String[locationCount];
+        WeatherDbHelper dbHelper = new WeatherDbHelper(mContext);
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < locationCount; i++) {
+                requested[i] = TestUtilities.TEST_LOCATION + i;
+                ContentValues locationValues = TestUtilities.createNorthPoleLocationValues();
+                locationValues.put(LocationEntry.COLUMN_LOCATION_SETTING, requested[i]);
+                long locationRowId = db.insert(LocationEntry.TABLE_NAME, null, locationValues);
+                assertTrue("Error: Failure to insert location " + i, locationRowId != -1);
+                if (Arrays.binarySearch(withWeather, i) >= 0) {
+                    ContentValues weatherValues = TestUtilities.createWeatherValues(locationRowId);
+                    weatherValues.put(WeatherEntry.COLUMN_WEATHER_ID, i);
+                    assertTrue("Error: Failure to insert weather for location " + i,
+                            db.insert(WeatherEntry.TABLE_NAME, null, weatherValues) != -1);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            db.close();
+        }
+
+        Bundle result = mContext.getContentResolver().call(WeatherContract.BASE_CONTENT_URI,
+                WeatherContract.METHOD_GET_DAY_FOR_LOCATIONS, null,
+                WeatherContract.buildDayForLocationsExtras(requested, TestUtilities.TEST_DATE));
+
+        boolean[] found = result.getBooleanArray(WeatherContract.EXTRA_FOUND);
+        int[] weatherIds = result.getIntArray(WeatherContract.EXTRA_WEATHER_IDS);
+        assertEquals("Error: Results should be parallel to the requested locations",
+                locationCount, found.length);
+        for (int i = 0; i < locationCount; i++) {
+            boolean expected = Arrays.binarySearch(withWeather, i) >= 0;
+            assertEquals("Error: Wrong weather found for location " + i, expected, found[i]);
+            if (expected) {
+                assertEquals("Error: Wrong weather for location " + i, i, weatherIds[i]);
+            }
+        }
+    }
+
+    /*
+        This test runs a few operations and checks that the diagnostics uri reports them.
+     */
+    public void testDiagnosticsQuery() {
+        long locationRowId = TestUtilities.insertNorthPoleLocationValues(mContext);
+        mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI,
+                createBulkInsertWeatherValues(locationRowId));
+        for (int i = 0; i < 3; i++) {
+            Cursor cursor = mContext.getContentResolver().query(WeatherEntry.CONTENT_URI,
+                    null, null, null, null);
+            cursor.close();
+        }
+
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherContract.DiagnosticsEntry.CONTENT_URI, null, null, null, null);
+        int operationColumn = cursor.getColumnIndex(WeatherContract.DiagnosticsEntry.COLUMN_OPERATION);
+        int matchColumn = cursor.getColumnIndex(WeatherContract.DiagnosticsEntry.COLUMN_URI_MATCH);
+        int countColumn = cursor.getColumnIndex(WeatherContract.DiagnosticsEntry.COLUMN_COUNT);
+        int rowsColumn = cursor.getColumnIndex(WeatherContract.DiagnosticsEntry.COLUMN_TOTAL_ROWS);
+        int p50Column = cursor.getColumnIndex(WeatherContract.DiagnosticsEntry.COLUMN_P50_MILLIS);
+        int p99Column = cursor.getColumnIndex(WeatherContract.DiagnosticsEntry.COLUMN_P99_MILLIS);
+        boolean foundQuery = false;
+        boolean foundBulkInsert = false;
+        while (cursor.moveToNext()) {
+            if (!WeatherContract.PATH_WEATHER.equals(cursor.getString(matchColumn))) continue;
+            String operation = cursor.getString(operationColumn);
+            if ("query".equals(operation)) {
+                foundQuery = true;
+                // Other tests in this process may have queried too, so only check the lower bound
+                assertTrue("Error: Diagnostics missed weather queries", cursor.getLong(countColumn) >= 3);
+                assertTrue("Error: Percentiles should be ordered",
+                        cursor.getDouble(p50Column) <= cursor.getDouble(p99Column));
+            } else if ("bulkInsert".equals(operation)) {
+                foundBulkInsert = true;
+                assertTrue("Error: Diagnostics missed the bulk inserted rows",
+                        cursor.getLong(rowsColumn) >= BULK_INSERT_RECORDS_TO_INSERT);
+            }
+        }
+        cursor.close();
+        assertTrue("Error: No diagnostics row for weather queries", foundQuery);
+        assertTrue("Error: No diagnostics row for weather bulk inserts", foundBulkInsert);
+
+        // The slow log may well be empty on a fast device; just make sure it can be read.
+        cursor = mContext.getContentResolver().query(
+                WeatherContract.DiagnosticsEntry.SLOW_CONTENT_URI, null, null, null, null);
+        assertNotNull(cursor);
+        assertTrue(cursor.getColumnIndex(WeatherContract.DiagnosticsEntry.COLUMN_CALLING_UID) != -1);
+        cursor.close();
+    }
 }
@@ -0,0 +1,347 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.annotation.TargetApi;
+import android.app.Instrumentation;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+import android.test.InstrumentationTestCase;
+import android.test.InstrumentationTestRunner;
+import android.test.RenamingDelegatingContext;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/*
+    Runs the real WeatherProvider and WeatherDbHelper against synthetic datasets of increasing
+    size, and compares bulkInsert throughput, join query latency, retention delete time and
+    database file size against the baseline in provider_perf_baseline.json.
+
+    The database lives under a "perf." prefix so this never touches the app's own data.  Every
+    run writes its numbers to provider_perf_results.json in the app's files directory; to move
+    the baseline, pull that file and copy it over the asset.
+
+    By default the suite only records.  Run it with "-e providerPerfMode check" to compare against
+    the baseline; then a tier missing from the baseline fails, rather than passing with nothing
+    checked.
+
+    Timings only mean something on the device they were taken on, so they are only checked when
+    the baseline was recorded on the same model.  File size is checked everywhere.
+ */
+@LargeTest
+public class TestProviderPerformance extends InstrumentationTestCase {
+
+    public static final String LOG_TAG = TestProviderPerformance.class.getSimpleName();
+
+    private static final String BASELINE_ASSET = "provider_perf_baseline.json";
+    private static final String RESULTS_FILE = "provider_perf_results.json";
+
+    // The instrumentation argument that turns on checking against the baseline
+    private static final String ARG_MODE = "providerPerfMode";
+    private static final String MODE_CHECK = "check";
+
+    // Allowed regression before a metric fails.  Timings are noisy, file size is not.
+    private static final double TIME_TOLERANCE = 0.5;
+    private static final double SIZE_TOLERANCE = 0.1;
+
+    // How many locations to sample for the join query timing
+    private static final int QUERY_SAMPLES = 50;
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    private static final long START_DATE = WeatherContract.normalizeDate(1419033600000L);
+
+    static final String METRIC_INSERT_ROWS_PER_SECOND = "bulk_insert_rows_per_second";
+    static final String METRIC_QUERY_MILLIS = "join_query_median_millis";
+    static final String METRIC_DELETE_MILLIS = "retention_delete_millis";
+    static final String METRIC_DATABASE_BYTES = "database_bytes";
+
+    private Context mContext;
+    private JSONObject mBaseline;
+    private JSONObject mResults;
+    private boolean mCheck;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext = new RenamingDelegatingContext(getInstrumentation().getTargetContext(), "perf.");
+        mContext.deleteDatabase(WeatherDbHelper.DATABASE_NAME);
+        mBaseline = readBaseline();
+        mCheck = MODE_CHECK.equals(getArgument(ARG_MODE));
+        mResults = readResults();
+        mResults.put("device", Build.MODEL);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mContext.deleteDatabase(WeatherDbHelper.DATABASE_NAME);
+        writeResults();
+        super.tearDown();
+    }
+
+    public void testOneLocationTwoWeeks() throws Exception {
+        runTier(1, 14);
+    }
+
+    public void testHundredLocationsTwoWeeks() throws Exception {
+        runTier(100, 14);
+    }
+
+    public void testThousandLocationsTwoWeeks() throws Exception {
+        runTier(1000, 14);
+    }
+
+    public void testTenThousandLocationsTwoWeeks() throws Exception {
+        runTier(10000, 14);
+    }
+
+    public void testTenLocationsFullYear() throws Exception {
+        runTier(10, 365);
+    }
+
+    private void runTier(int locationCount, int dayCount) throws JSONException {
+        final String tier = locationCount + "x" + dayCount;
+        WeatherProvider provider = new WeatherProvider();
+        provider.attachInfo(mContext, null);
+        try {
+            long[] locationIds = insertLocations(locationCount);
+
+            // bulkInsert one location at a time, the way sync does
+            ContentValues[][] forecasts = new ContentValues[locationCount][];
+            for (int i = 0; i < locationCount; i++) {
+                forecasts[i] = createForecast(locationIds[i], dayCount);
+            }
+            long start = System.nanoTime();
+            int inserted = 0;
+            for (ContentValues[] forecast : forecasts) {
+                inserted += provider.bulkInsert(WeatherEntry.CONTENT_URI, forecast);
+            }
+            long insertNanos = System.nanoTime() - start;
+            assertEquals("Error: bulkInsert dropped rows in tier " + tier,
+                    locationCount * dayCount, inserted);
+            double rowsPerSecond = inserted / (insertNanos / 1e9);
+
+            // The forecast query the main screen runs, for locations spread across the table
+            int samples = Math.min(QUERY_SAMPLES, locationCount);
+            double[] queryMillis = new double[samples];
+            for (int i = 0; i < samples; i++) {
+                String locationSetting = locationSetting((int) ((long) i * locationCount / samples));
+                start = System.nanoTime();
+                Cursor cursor = provider.query(
+                        WeatherEntry.buildWeatherLocationWithStartDate(locationSetting, START_DATE),
+                        null, null, null, WeatherEntry.COLUMN_DATE + " ASC");
+                assertEquals("Error: Join query returned the wrong days in tier " + tier,
+                        dayCount, cursor.getCount());
+                cursor.close();
+                queryMillis[i] = (System.nanoTime() - start) / 1e6;
+            }
+            Arrays.sort(queryMillis);
+            double medianQueryMillis = queryMillis[samples / 2];
+
+            // Measure the size now, while the table is at its largest
+            long databaseBytes = mContext.getDatabasePath(WeatherDbHelper.DATABASE_NAME).length();
+
+            // Drop the first half of every forecast, as daily sync does a day at a time
+            long cutoff = START_DATE + (dayCount / 2 - 1) * DAY_IN_MILLIS;
+            start = System.nanoTime();
+            int deleted = provider.delete(WeatherEntry.CONTENT_URI,
+                    WeatherEntry.COLUMN_DATE + " <= ?", new String[]{Long.toString(cutoff)});
+            double deleteMillis = (System.nanoTime() - start) / 1e6;
+            assertEquals("Error: Retention delete removed the wrong rows in tier " + tier,
+                    locationCount * (dayCount / 2), deleted);
+
+            JSONObject metrics = new JSONObject();
+            metrics.put(METRIC_INSERT_ROWS_PER_SECOND, rowsPerSecond);
+            metrics.put(METRIC_QUERY_MILLIS, medianQueryMillis);
+            metrics.put(METRIC_DELETE_MILLIS, deleteMillis);
+            metrics.put(METRIC_DATABASE_BYTES, databaseBytes);
+            mResults.getJSONObject("tiers").put(tier, metrics);
+            Log.i(LOG_TAG, tier + ": " + metrics.toString());
+
+            if (mCheck) {
+                checkAgainstBaseline(tier, metrics);
+            }
+        } finally {
+            provider.shutdown();
+        }
+    }
+
+    /*
+        Locations aren't what we're measuring, so add them directly in one transaction.
+     */
+    private long[] insertLocations(int locationCount) {
+        long[] ids = new long[locationCount];
+        SQLiteDatabase db = new WeatherDbHelper(mContext).getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < locationCount; i++) {
+                values.put(LocationEntry.COLUMN_LOCATION_SETTING, locationSetting(i));
+                values.put(LocationEntry.COLUMN_CITY_NAME, "City " + i);
+                values.put(LocationEntry.COLUMN_COORD_LAT, -90.0 + (180.0 * i) / locationCount);
+                values.put(LocationEntry.COLUMN_COORD_LONG, -180.0 + (360.0 * i) / locationCount);
+                ids[i] = db.insert(LocationEntry.TABLE_NAME, null, values);
+                assertTrue("Error: Failure to insert location " + i, ids[i] != -1);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            db.close();
+        }
+        return ids;
+    }
+
+    private static String locationSetting(int index) {
+        return String.format("%05d", index);
+    }
+
+    private static ContentValues[] createForecast(long locationId, int dayCount) {
+        ContentValues[] forecast = new ContentValues[dayCount];
+        for (int i = 0; i < dayCount; i++) {
+            ContentValues weatherValues = new ContentValues();
+            weatherValues.put(WeatherEntry.COLUMN_LOC_KEY, locationId);
+            weatherValues.put(WeatherEntry.COLUMN_DATE, START_DATE + i * DAY_IN_MILLIS);
+            weatherValues.put(WeatherEntry.COLUMN_DEGREES, (i * 37) % 360);
+            weatherValues.put(WeatherEntry.COLUMN_HUMIDITY, 40 + i % 50);
+            weatherValues.put(WeatherEntry.COLUMN_PRESSURE, 1000 + i % 30);
+            weatherValues.put(WeatherEntry.COLUMN_MAX_TEMP, 20 + i % 15);
+            weatherValues.put(WeatherEntry.COLUMN_MIN_TEMP, 5 + i % 15);
+            weatherValues.put(WeatherEntry.COLUMN_SHORT_DESC, i % 2 == 0 ? "Clear" : "Rain");
+            weatherValues.put(WeatherEntry.COLUMN_WIND_SPEED, 1.5 + i % 10);
+            weatherValues.put(WeatherEntry.COLUMN_WEATHER_ID, i % 2 == 0 ? 800 : 500);
+            forecast[i] = weatherValues;
+        }
+        return forecast;
+    }
+
+    /*
+        The runner only hands its arguments out from Jelly Bean MR2; before that, the suite
+        records.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private String getArgument(String name) {
+        Instrumentation instrumentation = getInstrumentation();
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2
+                || !(instrumentation instanceof InstrumentationTestRunner)) {
+            return null;
+        }
+        return ((InstrumentationTestRunner) instrumentation).getArguments().getString(name);
+    }
+
+    private void checkAgainstBaseline(String tier, JSONObject metrics) throws JSONException {
+        JSONObject tiers = mBaseline.optJSONObject("tiers");
+        JSONObject expected = null == tiers ? null : tiers.optJSONObject(tier);
+        assertNotNull("Error: No baseline for tier " + tier + "; record one by running without "
+                + ARG_MODE + " and copying " + RESULTS_FILE + " over the " + BASELINE_ASSET
+                + " asset", expected);
+        if (Build.MODEL.equals(mBaseline.optString("device"))) {
+            // Higher is better for throughput, lower is better for the rest
+            assertNotBelow(tier, METRIC_INSERT_ROWS_PER_SECOND, metrics, expected, TIME_TOLERANCE);
+            assertNotAbove(tier, METRIC_QUERY_MILLIS, metrics, expected, TIME_TOLERANCE);
+            assertNotAbove(tier, METRIC_DELETE_MILLIS, metrics, expected, TIME_TOLERANCE);
+        }
+        assertTrue("Error: No " + METRIC_DATABASE_BYTES + " in the baseline for tier " + tier,
+                expected.has(METRIC_DATABASE_BYTES));
+        assertNotAbove(tier, METRIC_DATABASE_BYTES, metrics, expected, SIZE_TOLERANCE);
+    }
+
+    private static void assertNotBelow(String tier, String metric, JSONObject actual,
+                                       JSONObject expected, double tolerance) throws JSONException {
+        if (!expected.has(metric)) return;
+        double limit = expected.getDouble(metric) * (1 - tolerance);
+        double value = actual.getDouble(metric);
+        assertTrue("Error: " + metric + " regressed in tier " + tier + ": " + value +
+                " is below " + limit, value >= limit);
+    }
+
+    private static void assertNotAbove(String tier, String metric, JSONObject actual,
+                                       JSONObject expected, double tolerance) throws JSONException {
+        if (!expected.has(metric)) return;
+        double limit = expected.getDouble(metric) * (1 + tolerance);
+        double value = actual.getDouble(metric);
+        assertTrue("Error: " + metric + " regressed in tier " + tier + ": " + value +
+                " is above " + limit, value <= limit);
+    }
+
+    private JSONObject readBaseline() throws IOException, JSONException {
+        InputStream in = getInstrumentation().getContext().getAssets().open(BASELINE_ASSET);
+        try {
+            return new JSONObject(readFully(in));
+        } finally {
+            in.close();
+        }
+    }
+
+    /*
+        Each tier runs as its own test, so results accumulate in the file between them.
+     */
+    private JSONObject readResults() throws IOException, JSONException {
+        File file = new File(getInstrumentation().getTargetContext().getFilesDir(), RESULTS_FILE);
+        JSONObject results = null;
+        if (file.exists()) {
+            InputStream in = getInstrumentation().getTargetContext().openFileInput(RESULTS_FILE);
+            try {
+                results = new JSONObject(readFully(in));
+            } catch (JSONException e) {
+                Log.w(LOG_TAG, "Discarding unreadable " + RESULTS_FILE, e);
+            } finally {
+                in.close();
+            }
+        }
+        if (null == results || !Build.MODEL.equals(results.optString("device"))) {
+            results = new JSONObject();
+        }
+        if (!results.has("tiers")) {
+            results.put("tiers", new JSONObject());
+        }
+        return results;
+    }
+
+    private void writeResults() throws IOException, JSONException {
+        FileOutputStream out = getInstrumentation().getTargetContext()
+                .openFileOutput(RESULTS_FILE, Context.MODE_PRIVATE);
+        try {
+            out.write(mResults.toString(2).getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toString("UTF-8");
+    }
+}
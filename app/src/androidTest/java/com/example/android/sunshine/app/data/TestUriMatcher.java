@@ -34,8 +34,14 @@ public class TestUriMatcher extends AndroidTestCase {
     private static final Uri TEST_WEATHER_DIR = WeatherContract.WeatherEntry.CONTENT_URI;
     private static final Uri TEST_WEATHER_WITH_LOCATION_DIR = WeatherContract.WeatherEntry.buildWeatherLocation(LOCATION_QUERY);
     private static final Uri TEST_WEATHER_WITH_LOCATION_AND_DATE_DIR = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(LOCATION_QUERY, TEST_DATE);
+    private static final Uri TEST_WEATHER_SUMMARY = WeatherContract.WeatherEntry.buildWeatherSummaryUri(LOCATION_QUERY, TEST_DATE, 7);
     // content://com.example.android.sunshine.app/location"
     private static final Uri TEST_LOCATION_DIR = WeatherContract.LocationEntry.CONTENT_URI;
+    // content://com.example.android.sunshine.app/overview/1419033600"
+    private static final Uri TEST_OVERVIEW_WITH_DATE = WeatherContract.OverviewEntry.buildOverviewUri(TEST_DATE);
+    // content://com.example.android.sunshine.app/diagnostics"
+    private static final Uri TEST_DIAGNOSTICS = WeatherContract.DiagnosticsEntry.CONTENT_URI;
+    private static final Uri TEST_DIAGNOSTICS_SLOW = WeatherContract.DiagnosticsEntry.SLOW_CONTENT_URI;
 
     /*
         Students: This function tests that your UriMatcher returns the correct integer value
@@ -51,7 +57,15 @@ public class TestUriMatcher extends AndroidTestCase {
                 testMatcher.match(TEST_WEATHER_WITH_LOCATION_DIR), WeatherProvider.WEATHER_WITH_LOCATION);
         assertEquals("Error: The WEATHER WITH LOCATION AND DATE URI was matched incorrectly.",
                 testMatcher.match(TEST_WEATHER_WITH_LOCATION_AND_DATE_DIR), WeatherProvider.WEATHER_WITH_LOCATION_AND_DATE);
+        assertEquals("Error: The WEATHER SUMMARY URI was matched incorrectly.",
+                testMatcher.match(TEST_WEATHER_SUMMARY), WeatherProvider.WEATHER_SUMMARY);
         assertEquals("Error: The LOCATION URI was matched incorrectly.",
                 testMatcher.match(TEST_LOCATION_DIR), WeatherProvider.LOCATION);
+        assertEquals("Error: The OVERVIEW WITH DATE URI was matched incorrectly.",
+                testMatcher.match(TEST_OVERVIEW_WITH_DATE), WeatherProvider.OVERVIEW_WITH_DATE);
+        assertEquals("Error: The DIAGNOSTICS URI was matched incorrectly.",
+                testMatcher.match(TEST_DIAGNOSTICS), WeatherProvider.DIAGNOSTICS);
+        assertEquals("Error: The DIAGNOSTICS SLOW URI was matched incorrectly.",
+                testMatcher.match(TEST_DIAGNOSTICS_SLOW), WeatherProvider.DIAGNOSTICS_SLOW);
     }
 }
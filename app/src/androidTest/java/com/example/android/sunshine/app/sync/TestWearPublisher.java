@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+import android.text.format.Time;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.shared.ForecastRequester;
+import com.example.android.sunshine.shared.ForecastResponder;
+import com.example.android.sunshine.shared.Transport;
+import com.example.android.sunshine.shared.WearForecast;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestWearPublisher extends AndroidTestCase {
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    private static final long TIMEOUT_MILLIS = 1000;
+    private static final long FETCHED_MILLIS = 1234567890000L;
+    private static final int DAYS = 3;
+
+    private HandlerThread mThread;
+    private Handler mHandler;
+    private String mLastFetchedKey;
+    private long mSavedLastFetched;
+
+    /*
+        Delivers what it sends to the other end's receiver on the shared handler.
+     */
+    private class PostingTransport implements Transport {
+        private final String mNodeId;
+        Transport.Receiver mPeer;
+
+        PostingTransport(String nodeId) {
+            mNodeId = nodeId;
+        }
+
+        @Override
+        public void send(String nodeId, final String path, byte[] data) {
+            final byte[] copy = data.clone();
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mPeer.onMessageReceived(mNodeId, path, copy);
+                }
+            });
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mThread = new HandlerThread("wear");
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        mLastFetchedKey = mContext.getString(R.string.pref_last_wear_fetched_key);
+        mSavedLastFetched = PreferenceManager.getDefaultSharedPreferences(mContext)
+                .getLong(mLastFetchedKey, WearPublisher.KEEP_FETCHED_TIME);
+        insertForecast();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        PreferenceManager.getDefaultSharedPreferences(mContext).edit()
+                .putLong(mLastFetchedKey, mSavedLastFetched).commit();
+        mThread.quit();
+        super.tearDown();
+    }
+
+    /*
+        A few days from today for the preferred location.
+     */
+    private void insertForecast() {
+        String location = Utility.getPreferredLocation(mContext);
+        long locationId;
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherContract.LocationEntry.CONTENT_URI,
+                new String[]{WeatherContract.LocationEntry._ID},
+                WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
+                new String[]{location}, null);
+        try {
+            if (cursor.moveToFirst()) {
+                locationId = cursor.getLong(0);
+            } else {
+                ContentValues values = new ContentValues();
+                values.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, location);
+                values.put(WeatherContract.LocationEntry.COLUMN_CITY_NAME, "Mountain View");
+                values.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT, 37.4);
+                values.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, -122.1);
+                locationId = Long.parseLong(mContext.getContentResolver().insert(
+                        WeatherContract.LocationEntry.CONTENT_URI, values).getLastPathSegment());
+            }
+        } finally {
+            cursor.close();
+        }
+
+        long today = WeatherContract.normalizeDate(System.currentTimeMillis());
+        ContentValues[] days = new ContentValues[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            ContentValues values = new ContentValues();
+            values.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
+            values.put(WeatherContract.WeatherEntry.COLUMN_DATE, today + i * DAY_IN_MILLIS);
+            values.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, 1.1);
+            values.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, 1.2);
+            values.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, 1.3);
+            values.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, 20.5);
+            values.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, 10.5);
+            values.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, "Clear");
+            values.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, 5.5);
+            values.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, 800);
+            days[i] = values;
+        }
+        mContext.getContentResolver().bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, days);
+    }
+
+    /*
+        Asks for the forecast over a loopback, from a responder answering the way a publisher
+        with nothing published yet does, and waits for the answer.
+     */
+    private WearForecast pullUnpublished() throws InterruptedException {
+        PostingTransport watch = new PostingTransport("watch");
+        PostingTransport phone = new PostingTransport("phone");
+        final ForecastRequester requester = new ForecastRequester(watch, mHandler);
+        phone.mPeer = requester;
+        watch.mPeer = new ForecastResponder(phone, new ForecastResponder.SnapshotSource() {
+            @Override
+            public byte[] getSnapshot() {
+                return WearPublisher.getSnapshot(mContext, null);
+            }
+        });
+
+        final AtomicReference<WearForecast> result = new AtomicReference<WearForecast>();
+        final CountDownLatch done = new CountDownLatch(1);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                requester.request(TIMEOUT_MILLIS, new ForecastRequester.Callback() {
+                    @Override
+                    public void onForecast(WearForecast forecast) {
+                        result.set(forecast);
+                        done.countDown();
+                    }
+                });
+            }
+        });
+        assertTrue("Error: Request never completed", done.await(2, TimeUnit.SECONDS));
+        return result.get();
+    }
+
+    /*
+        A watch that asks before anything has been published, as when none has been reachable
+        since the phone started, is answered from the database with the last sync's time.
+     */
+    public void testNothingPublishedYet() throws InterruptedException {
+        PreferenceManager.getDefaultSharedPreferences(mContext).edit()
+                .putLong(mLastFetchedKey, FETCHED_MILLIS).commit();
+
+        WearForecast forecast = pullUnpublished();
+        assertNotNull("Error: Watch got no forecast before one was published", forecast);
+        assertEquals("Error: Forecast not stamped with the last sync's time",
+                FETCHED_MILLIS, forecast.fetchedMillis);
+        assertTrue("Error: Days missing from the forecast", forecast.days.length >= DAYS);
+        long now = System.currentTimeMillis();
+        Time time = new Time();
+        time.set(now);
+        assertEquals("Error: Forecast doesn't start today",
+                Time.getJulianDay(now, time.gmtoff) - Time.EPOCH_JULIAN_DAY,
+                forecast.days[0].epochDay);
+    }
+
+    /*
+        Before the first sync there's nothing to answer with, however much is in the database.
+     */
+    public void testNothingSyncedYet() throws InterruptedException {
+        PreferenceManager.getDefaultSharedPreferences(mContext).edit()
+                .remove(mLastFetchedKey).commit();
+        assertNull("Error: Forecast sent before any sync", pullUnpublished());
+    }
+}
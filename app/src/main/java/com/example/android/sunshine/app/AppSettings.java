@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+/**
+ * The user's settings as they were after their last change.  Binding a row used to look each of
+ * these up in the preferences, and their keys and defaults up in the resources, every time it
+ * was needed; now it reads a field.
+ *
+ * A snapshot never changes.  When one of its preferences does, a new snapshot replaces it, so a
+ * screen can tell whether the settings changed while it was in the background by comparing the
+ * snapshot it last drew with against the current one.
+ */
+public final class AppSettings {
+
+    public final String location;
+    public final boolean metric;
+    // The art pack's URL format
+    public final String artPack;
+    // True if the art pack is the app's own drawables
+    public final boolean localGraphics;
+
+    private static volatile AppSettings sCurrent;
+    // The preferences only keep weak references to their listeners
+    private static Listener sListener;
+
+    private AppSettings(Context context, SharedPreferences prefs) {
+        location = prefs.getString(context.getString(R.string.pref_location_key),
+                context.getString(R.string.pref_location_default));
+        String metricUnits = context.getString(R.string.pref_units_metric);
+        metric = prefs.getString(context.getString(R.string.pref_units_key), metricUnits)
+                .equals(metricUnits);
+        String sunshineArtPack = context.getString(R.string.pref_art_pack_sunshine);
+        artPack = prefs.getString(context.getString(R.string.pref_art_pack_key), sunshineArtPack);
+        localGraphics = artPack.equals(sunshineArtPack);
+    }
+
+    /**
+     * @return true if weather shown with the other settings looks the same as with these: the
+     * same units and the same pictures.
+     */
+    public boolean sameDisplayAs(AppSettings other) {
+        return null != other && metric == other.metric && artPack.equals(other.artPack);
+    }
+
+    /**
+     * @return the current settings.  Only the first call reads the preferences.
+     */
+    public static AppSettings get(Context context) {
+        AppSettings settings = sCurrent;
+        if (null == settings) {
+            Context appContext = context.getApplicationContext();
+            settings = load(null != appContext ? appContext : context);
+        }
+        return settings;
+    }
+
+    private static synchronized AppSettings load(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        if (null == sListener) {
+            sListener = new Listener(context);
+            prefs.registerOnSharedPreferenceChangeListener(sListener);
+        }
+        if (null == sCurrent) {
+            sCurrent = new AppSettings(context, prefs);
+        }
+        return sCurrent;
+    }
+
+    /**
+     * Drops the current snapshot so the next {@link #get} reads the preferences again.  The
+     * listener does this by itself, but it's called on the main thread, after the fact, for
+     * writes made on other threads; tests that change settings from their own thread and want
+     * the change seen at once call this.
+     */
+    static synchronized void invalidate() {
+        sCurrent = null;
+    }
+
+    private static class Listener implements SharedPreferences.OnSharedPreferenceChangeListener {
+        private final String mLocationKey;
+        private final String mUnitsKey;
+        private final String mArtPackKey;
+
+        Listener(Context context) {
+            mLocationKey = context.getString(R.string.pref_location_key);
+            mUnitsKey = context.getString(R.string.pref_units_key);
+            mArtPackKey = context.getString(R.string.pref_art_pack_key);
+        }
+
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+            // The location status changes with every sync, and isn't part of the snapshot
+            if (mLocationKey.equals(key) || mUnitsKey.equals(key) || mArtPackKey.equals(key)) {
+                invalidate();
+            }
+        }
+    }
+}
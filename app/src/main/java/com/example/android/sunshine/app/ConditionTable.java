@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+import com.example.android.sunshine.shared.WeatherConditions;
+
+import java.util.Locale;
+
+/**
+ * Everything a list item or widget shows for a weather condition code, worked out once for the
+ * current locale and art pack and then looked up by code.  Binding a row reads one
+ * {@link Condition} instead of walking a chain of range checks for each of its icon, art, art
+ * URL and description, and formatting the URL every time.
+ */
+public class ConditionTable {
+
+    public static final class Condition {
+        // -1 when there's no picture for the code
+        public final int iconResource;
+        public final int artResource;
+        // Null when there's no picture for the code
+        public final String artUrl;
+        // Null for codes with no description of their own; see getDescription()
+        public final String description;
+
+        Condition(int iconResource, int artResource, String artUrl, String description) {
+            this.iconResource = iconResource;
+            this.artResource = artResource;
+            this.artUrl = artUrl;
+            this.description = description;
+        }
+    }
+
+    // Indexed by WeatherConditions kind
+    private static final int[] ICONS = {
+            -1,
+            R.drawable.ic_storm,
+            R.drawable.ic_light_rain,
+            R.drawable.ic_rain,
+            R.drawable.ic_snow,
+            R.drawable.ic_fog,
+            R.drawable.ic_clear,
+            R.drawable.ic_light_clouds,
+            R.drawable.ic_cloudy
+    };
+    private static final int[] ART = {
+            -1,
+            R.drawable.art_storm,
+            R.drawable.art_light_rain,
+            R.drawable.art_rain,
+            R.drawable.art_snow,
+            R.drawable.art_fog,
+            R.drawable.art_clear,
+            R.drawable.art_light_clouds,
+            R.drawable.art_clouds
+    };
+    private static final String[] IMAGE_URLS = {
+            null,
+            "http://upload.wikimedia.org/wikipedia/commons/d/dc/Raised_dust_ahead_of_a_severe_thunderstorm_1.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/a/a0/Rain_on_leaf_504605006.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/6/6c/Rain-on-Thassos.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG",
+            "http://upload.wikimedia.org/wikipedia/commons/e/e6/Westminster_fog_-_London_-_UK.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/7/7e/A_few_trees_and_the_sun_(6009964513).jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/e/e7/Cloudy_Blue_Sky_(5031259890).jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/5/54/Cloudy_hills_in_Elis,_Greece_2.jpg"
+    };
+    // Only 781 gets the dust picture; the rest of the storms have their own
+    private static final String THUNDERSTORM_IMAGE_URL =
+            "http://upload.wikimedia.org/wikipedia/commons/2/28/Thunderstorm_in_Annemasse,_France.jpg";
+
+    // Descriptions go past the last code with a picture, up to the extreme conditions
+    private static final int LAST_DESCRIBED_ID = 962;
+    // Pairs of first code, last code and the description for the codes between
+    private static final int[] DESCRIPTIONS = {
+            200, 232, R.string.condition_2xx,
+            300, 321, R.string.condition_3xx,
+            500, 500, R.string.condition_500,
+            501, 501, R.string.condition_501,
+            502, 502, R.string.condition_502,
+            503, 503, R.string.condition_503,
+            504, 504, R.string.condition_504,
+            511, 511, R.string.condition_511,
+            520, 520, R.string.condition_520,
+            531, 531, R.string.condition_531,
+            600, 600, R.string.condition_600,
+            601, 601, R.string.condition_601,
+            602, 602, R.string.condition_602,
+            611, 611, R.string.condition_611,
+            612, 612, R.string.condition_612,
+            615, 615, R.string.condition_615,
+            616, 616, R.string.condition_616,
+            620, 620, R.string.condition_620,
+            621, 621, R.string.condition_621,
+            622, 622, R.string.condition_622,
+            701, 701, R.string.condition_701,
+            711, 711, R.string.condition_711,
+            721, 721, R.string.condition_721,
+            731, 731, R.string.condition_731,
+            741, 741, R.string.condition_741,
+            751, 751, R.string.condition_751,
+            761, 761, R.string.condition_761,
+            762, 762, R.string.condition_762,
+            771, 771, R.string.condition_771,
+            781, 781, R.string.condition_781,
+            800, 800, R.string.condition_800,
+            801, 801, R.string.condition_801,
+            802, 802, R.string.condition_802,
+            803, 803, R.string.condition_803,
+            804, 804, R.string.condition_804,
+            900, 900, R.string.condition_900,
+            901, 901, R.string.condition_901,
+            902, 902, R.string.condition_902,
+            903, 903, R.string.condition_903,
+            904, 904, R.string.condition_904,
+            905, 905, R.string.condition_905,
+            906, 906, R.string.condition_906,
+            951, 951, R.string.condition_951,
+            952, 952, R.string.condition_952,
+            953, 953, R.string.condition_953,
+            954, 954, R.string.condition_954,
+            955, 955, R.string.condition_955,
+            956, 956, R.string.condition_956,
+            957, 957, R.string.condition_957,
+            958, 958, R.string.condition_958,
+            959, 959, R.string.condition_959,
+            960, 960, R.string.condition_960,
+            961, 961, R.string.condition_961,
+            962, 962, R.string.condition_962
+    };
+
+    private static volatile ConditionTable sInstance;
+
+    private final Locale mLocale;
+    private final String mArtPack;
+    private final boolean mLocalGraphics;
+    private final String mUnknownFormat;
+    // Indexed by code less WeatherConditions.FIRST_ID.  Codes that share a kind of weather and
+    // have no description of their own share a record.
+    private final Condition[] mConditions =
+            new Condition[LAST_DESCRIBED_ID - WeatherConditions.FIRST_ID + 1];
+    private final Condition mNone;
+
+    /**
+     * @return the table for the context's locale and the current art pack, building
+     * it again if either has changed since it was last asked for.
+     */
+    public static ConditionTable getInstance(Context context) {
+        Resources resources = context.getResources();
+        Locale locale = resources.getConfiguration().locale;
+        AppSettings settings = AppSettings.get(context);
+
+        ConditionTable table = sInstance;
+        if (null == table || !table.mLocale.equals(locale)
+                || !table.mArtPack.equals(settings.artPack)) {
+            // Two threads may both build one; either will do
+            table = new ConditionTable(resources, locale, settings);
+            sInstance = table;
+        }
+        return table;
+    }
+
+    private ConditionTable(Resources resources, Locale locale, AppSettings settings) {
+        String artPack = settings.artPack;
+        mLocale = locale;
+        mArtPack = artPack;
+        mLocalGraphics = settings.localGraphics;
+        mUnknownFormat = resources.getString(R.string.condition_unknown);
+
+        Condition[] byKind = new Condition[WeatherConditions.COUNT];
+        for (int kind = 0; kind < WeatherConditions.COUNT; kind++) {
+            String artName = WeatherConditions.getArtName(kind);
+            String artUrl = null == artName ? null : String.format(Locale.US, artPack, artName);
+            byKind[kind] = new Condition(ICONS[kind], ART[kind], artUrl, null);
+        }
+        mNone = byKind[WeatherConditions.NONE];
+
+        for (int i = 0; i < mConditions.length; i++) {
+            mConditions[i] = byKind[WeatherConditions.getKind(WeatherConditions.FIRST_ID + i)];
+        }
+        for (int i = 0; i < DESCRIPTIONS.length; i += 3) {
+            String description = resources.getString(DESCRIPTIONS[i + 2]);
+            for (int id = DESCRIPTIONS[i]; id <= DESCRIPTIONS[i + 1]; id++) {
+                Condition kind = byKind[WeatherConditions.getKind(id)];
+                mConditions[id - WeatherConditions.FIRST_ID] = new Condition(kind.iconResource,
+                        kind.artResource, kind.artUrl, description);
+            }
+        }
+    }
+
+    /**
+     * @return what to show for a condition code.  Never null.
+     */
+    public Condition get(int weatherId) {
+        int i = weatherId - WeatherConditions.FIRST_ID;
+        if (i < 0 || i >= mConditions.length) {
+            return mNone;
+        }
+        return mConditions[i];
+    }
+
+    /**
+     * @return the description for a condition code, or "Unknown" with the code for codes with
+     * none of their own.
+     */
+    public String getDescription(int weatherId) {
+        String description = get(weatherId).description;
+        if (null == description) {
+            description = String.format(mLocale, mUnknownFormat, weatherId);
+        }
+        return description;
+    }
+
+    /**
+     * @return true if pictures come from the app's own drawables rather than an art pack's URLs.
+     */
+    public boolean isUsingLocalGraphics() {
+        return mLocalGraphics;
+    }
+
+    /**
+     * @return the icon resource for a condition code, or -1 if there's none.
+     */
+    public static int getIconResource(int weatherId) {
+        return ICONS[WeatherConditions.getKind(weatherId)];
+    }
+
+    /**
+     * @return the art resource for a condition code, or -1 if there's none.
+     */
+    public static int getArtResource(int weatherId) {
+        return ART[WeatherConditions.getKind(weatherId)];
+    }
+
+    /**
+     * @return a photograph of a condition code's weather for Muzei, or null if there's none.
+     */
+    public static String getImageUrl(int weatherId) {
+        int kind = WeatherConditions.getKind(weatherId);
+        if (kind == WeatherConditions.STORM && weatherId != 781) {
+            return THUNDERSTORM_IMAGE_URL;
+        }
+        return IMAGE_URLS[kind];
+    }
+}
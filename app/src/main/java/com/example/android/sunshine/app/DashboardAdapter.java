@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link DashboardAdapter} exposes today's weather for every stored location to a
+ * {@link android.support.v7.widget.RecyclerView}.  Rows arrive fully formatted from
+ * {@link DashboardLoader}, and ids are the location row ids so they stay stable across reloads.
+ */
+public class DashboardAdapter extends RecyclerView.Adapter<DashboardAdapter.DashboardAdapterViewHolder> {
+
+    private List<DashboardItem> mItems = Collections.emptyList();
+    final private DashboardAdapterOnClickHandler mClickHandler;
+    final private View mEmptyView;
+
+    /**
+     * Cache of the children views for a dashboard list item.
+     */
+    public class DashboardAdapterViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+        public final ImageView mIconView;
+        public final TextView mCityView;
+        public final TextView mDescriptionView;
+        public final TextView mHighTempView;
+        public final TextView mLowTempView;
+
+        public DashboardAdapterViewHolder(View view) {
+            super(view);
+            mIconView = (ImageView) view.findViewById(R.id.list_item_icon);
+            mCityView = (TextView) view.findViewById(R.id.list_item_city_textview);
+            mDescriptionView = (TextView) view.findViewById(R.id.list_item_forecast_textview);
+            mHighTempView = (TextView) view.findViewById(R.id.list_item_high_textview);
+            mLowTempView = (TextView) view.findViewById(R.id.list_item_low_textview);
+            view.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View v) {
+            int adapterPosition = getAdapterPosition();
+            if (adapterPosition != RecyclerView.NO_POSITION) {
+                mClickHandler.onClick(mItems.get(adapterPosition));
+            }
+        }
+    }
+
+    public static interface DashboardAdapterOnClickHandler {
+        void onClick(DashboardItem item);
+    }
+
+    public DashboardAdapter(DashboardAdapterOnClickHandler dh, View emptyView) {
+        mClickHandler = dh;
+        mEmptyView = emptyView;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public DashboardAdapterViewHolder onCreateViewHolder(ViewGroup viewGroup, int viewType) {
+        View view = LayoutInflater.from(viewGroup.getContext())
+                .inflate(R.layout.list_item_dashboard, viewGroup, false);
+        view.setFocusable(true);
+        return new DashboardAdapterViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(DashboardAdapterViewHolder holder, int position) {
+        // Everything was formatted by the loader, so this is only handing values to views.
+        DashboardItem item = mItems.get(position);
+        holder.mIconView.setImageResource(item.iconResourceId);
+        holder.mCityView.setText(item.cityName);
+        holder.mDescriptionView.setText(item.description);
+        holder.mDescriptionView.setContentDescription(item.descriptionContentDescription);
+        holder.mHighTempView.setText(item.high);
+        holder.mHighTempView.setContentDescription(item.highContentDescription);
+        holder.mLowTempView.setText(item.low);
+        holder.mLowTempView.setContentDescription(item.lowContentDescription);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mItems.get(position).id;
+    }
+
+    @Override
+    public int getItemCount() {
+        return mItems.size();
+    }
+
+    public void swapItems(List<DashboardItem> items) {
+        mItems = null == items ? Collections.<DashboardItem>emptyList() : items;
+        // With stable ids RecyclerView keeps the views of rows that are still present.
+        notifyDataSetChanged();
+        mEmptyView.setVisibility(getItemCount() == 0 ? View.VISIBLE : View.GONE);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.LoaderManager;
+import android.support.v4.content.Loader;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.List;
+
+/**
+ * Shows today's weather for every stored location in a {@link RecyclerView}.  A sibling of
+ * {@link ForecastFragment}, but driven by the overview query so all locations come back from
+ * one indexed query per page rather than one query per city.
+ */
+public class DashboardFragment extends Fragment implements LoaderManager.LoaderCallbacks<List<DashboardItem>> {
+    public static final String LOG_TAG = DashboardFragment.class.getSimpleName();
+
+    private static final int DASHBOARD_LOADER = 0;
+
+    // Start fetching the next page when the user gets this close to the end of the list.
+    private static final int PREFETCH_DISTANCE = DashboardLoader.PAGE_SIZE / 2;
+
+    private DashboardAdapter mDashboardAdapter;
+    private RecyclerView mRecyclerView;
+    private LinearLayoutManager mLayoutManager;
+
+    public DashboardFragment() {
+    }
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container,
+                             Bundle savedInstanceState) {
+        View rootView = inflater.inflate(R.layout.fragment_dashboard, container, false);
+
+        mRecyclerView = (RecyclerView) rootView.findViewById(R.id.recyclerview_dashboard);
+        mLayoutManager = new LinearLayoutManager(getActivity());
+        mRecyclerView.setLayoutManager(mLayoutManager);
+        mRecyclerView.setHasFixedSize(true);
+        View emptyView = rootView.findViewById(R.id.recyclerview_dashboard_empty);
+
+        mDashboardAdapter = new DashboardAdapter(new DashboardAdapter.DashboardAdapterOnClickHandler() {
+            @Override
+            public void onClick(DashboardItem item) {
+                Intent intent = new Intent(getActivity(), DetailActivity.class)
+                        .setData(WeatherContract.WeatherEntry.buildWeatherLocationWithDate(
+                                item.locationSetting, item.date));
+                startActivity(intent);
+            }
+        }, emptyView);
+        mRecyclerView.setAdapter(mDashboardAdapter);
+
+        mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0) {
+                    return;
+                }
+                int lastVisible = mLayoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= mDashboardAdapter.getItemCount() - PREFETCH_DISTANCE) {
+                    Loader<List<DashboardItem>> loader =
+                            getLoaderManager().getLoader(DASHBOARD_LOADER);
+                    if (loader instanceof DashboardLoader) {
+                        ((DashboardLoader) loader).loadNextPage();
+                    }
+                }
+            }
+        });
+
+        return rootView;
+    }
+
+    @Override
+    public void onActivityCreated(Bundle savedInstanceState) {
+        getLoaderManager().initLoader(DASHBOARD_LOADER, null, this);
+        super.onActivityCreated(savedInstanceState);
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        if (null != mRecyclerView) {
+            mRecyclerView.clearOnScrollListeners();
+        }
+    }
+
+    @Override
+    public Loader<List<DashboardItem>> onCreateLoader(int id, Bundle args) {
+        return new DashboardLoader(getActivity());
+    }
+
+    @Override
+    public void onLoadFinished(Loader<List<DashboardItem>> loader, List<DashboardItem> data) {
+        mDashboardAdapter.swapItems(data);
+    }
+
+    @Override
+    public void onLoaderReset(Loader<List<DashboardItem>> loader) {
+        mDashboardAdapter.swapItems(null);
+    }
+}
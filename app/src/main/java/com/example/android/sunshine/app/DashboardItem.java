@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+
+/**
+ * One row of the dashboard, with every string already formatted so that binding it is nothing
+ * more than handing values to views.  Instances are immutable and are built off the main thread
+ * by {@link DashboardLoader}.
+ */
+public class DashboardItem {
+    public final long id;
+    public final String locationSetting;
+    public final long date;
+    public final String cityName;
+    public final int iconResourceId;
+    public final String description;
+    public final String descriptionContentDescription;
+    public final String high;
+    public final String highContentDescription;
+    public final String low;
+    public final String lowContentDescription;
+
+    private DashboardItem(long id, String locationSetting, long date, String cityName,
+                          int iconResourceId, String description, String high, String low,
+                          Context context) {
+        this.id = id;
+        this.locationSetting = locationSetting;
+        this.date = date;
+        this.cityName = cityName;
+        this.iconResourceId = iconResourceId;
+        this.description = description;
+        this.descriptionContentDescription = context.getString(R.string.a11y_forecast, description);
+        this.high = high;
+        this.highContentDescription = context.getString(R.string.a11y_high_temp, high);
+        this.low = low;
+        this.lowContentDescription = context.getString(R.string.a11y_low_temp, low);
+    }
+
+    /**
+     * Builds an item from the current row of a cursor with {@link DashboardLoader}'s projection.
+     */
+    static DashboardItem fromCursor(Context context, Cursor cursor, boolean metric) {
+        int weatherId = cursor.getInt(DashboardLoader.COL_WEATHER_CONDITION_ID);
+        return new DashboardItem(
+                cursor.getLong(DashboardLoader.COL_LOCATION_ID),
+                cursor.getString(DashboardLoader.COL_LOCATION_SETTING),
+                cursor.getLong(DashboardLoader.COL_WEATHER_DATE),
+                cursor.getString(DashboardLoader.COL_CITY_NAME),
+                Utility.getIconResourceForWeatherCondition(weatherId),
+                Utility.getStringForWeatherCondition(context, weatherId),
+                Utility.formatTemperature(context, cursor.getDouble(DashboardLoader.COL_WEATHER_MAX_TEMP), metric),
+                Utility.formatTemperature(context, cursor.getDouble(DashboardLoader.COL_WEATHER_MIN_TEMP), metric),
+                context);
+    }
+}
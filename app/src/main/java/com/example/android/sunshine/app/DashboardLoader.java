@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.v4.content.AsyncTaskLoader;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads today's weather for every stored location, a page at a time, and turns each row into a
+ * ready-to-bind {@link DashboardItem} on the loader's background thread.
+ */
+public class DashboardLoader extends AsyncTaskLoader<List<DashboardItem>> {
+
+    static final int PAGE_SIZE = 50;
+
+    private static final String[] OVERVIEW_COLUMNS = {
+            WeatherContract.LocationEntry.TABLE_NAME + "." + WeatherContract.LocationEntry._ID,
+            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
+            WeatherContract.LocationEntry.COLUMN_CITY_NAME,
+            WeatherContract.WeatherEntry.COLUMN_DATE,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP
+    };
+
+    // These indices are tied to OVERVIEW_COLUMNS.  If OVERVIEW_COLUMNS changes, these
+    // must change.
+    static final int COL_LOCATION_ID = 0;
+    static final int COL_LOCATION_SETTING = 1;
+    static final int COL_CITY_NAME = 2;
+    static final int COL_WEATHER_DATE = 3;
+    static final int COL_WEATHER_CONDITION_ID = 4;
+    static final int COL_WEATHER_MAX_TEMP = 5;
+    static final int COL_WEATHER_MIN_TEMP = 6;
+
+    private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver() {
+        @Override
+        public void onChange(boolean selfChange) {
+            // The rows we already hold may be stale, so start over from the first page.
+            mReloadAll = true;
+            super.onChange(selfChange);
+        }
+    };
+
+    private volatile List<DashboardItem> mItems;
+    // The settings mItems were formatted with
+    private volatile AppSettings mItemsSettings;
+    private boolean mObserving;
+    private boolean mLoading;
+    private volatile boolean mReloadAll = true;
+    private volatile boolean mHasMore = true;
+    private volatile int mPageCount = 1;
+
+    public DashboardLoader(Context context) {
+        super(context);
+    }
+
+    @Override
+    public List<DashboardItem> loadInBackground() {
+        final Context context = getContext();
+        final long today = WeatherContract.normalizeDate(System.currentTimeMillis());
+        final int wanted = mPageCount * PAGE_SIZE;
+        final AppSettings settings = AppSettings.get(context);
+
+        List<DashboardItem> items = new ArrayList<DashboardItem>(wanted);
+        if (!mReloadAll && null != mItems && settings.sameDisplayAs(mItemsSettings)) {
+            // Only fetch the rows past the ones we already prepared.
+            items.addAll(mItems);
+        }
+        mReloadAll = false;
+
+        int missing = wanted - items.size();
+        if (missing > 0) {
+            Uri pageUri = WeatherContract.OverviewEntry.buildOverviewUri(today, items.size(), missing);
+            Cursor cursor = context.getContentResolver().query(pageUri, OVERVIEW_COLUMNS,
+                    null, null, null);
+            if (null != cursor) {
+                try {
+                    while (cursor.moveToNext()) {
+                        items.add(DashboardItem.fromCursor(context, cursor, settings.metric));
+                    }
+                    mHasMore = cursor.getCount() == missing;
+                } finally {
+                    cursor.close();
+                }
+            }
+        }
+        mItemsSettings = settings;
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Asks for one more page of locations.  Does nothing if the last page came back short.
+     */
+    public void loadNextPage() {
+        if (mHasMore && !mLoading) {
+            mPageCount++;
+            forceLoad();
+        }
+    }
+
+    public boolean hasMore() {
+        return mHasMore;
+    }
+
+    @Override
+    protected void onForceLoad() {
+        mLoading = true;
+        super.onForceLoad();
+    }
+
+    @Override
+    public void onCanceled(List<DashboardItem> data) {
+        mLoading = false;
+    }
+
+    @Override
+    public void deliverResult(List<DashboardItem> data) {
+        mLoading = false;
+        if (isReset()) {
+            return;
+        }
+        mItems = data;
+        if (isStarted()) {
+            super.deliverResult(data);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (null != mItems) {
+            deliverResult(mItems);
+        }
+        if (!mObserving) {
+            getContext().getContentResolver().registerContentObserver(
+                    WeatherContract.WeatherEntry.CONTENT_URI, true, mObserver);
+            getContext().getContentResolver().registerContentObserver(
+                    WeatherContract.LocationEntry.CONTENT_URI, true, mObserver);
+            mObserving = true;
+        }
+        // Units are changed in the settings, while this is stopped
+        boolean settingsChanged = null != mItems
+                && !AppSettings.get(getContext()).sameDisplayAs(mItemsSettings);
+        if (settingsChanged) {
+            mReloadAll = true;
+        }
+        if (takeContentChanged() || null == mItems || settingsChanged) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        if (mObserving) {
+            getContext().getContentResolver().unregisterContentObserver(mObserver);
+            mObserving = false;
+        }
+        mItems = null;
+        mItemsSettings = null;
+        mLoading = false;
+        mReloadAll = true;
+        mHasMore = true;
+        mPageCount = 1;
+    }
+}
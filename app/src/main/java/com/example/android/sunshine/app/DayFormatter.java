@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.support.v4.util.LruCache;
+import android.text.format.Time;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formats the days of the forecast the way {@link Utility}'s day helpers describe, remembering
+ * what it worked out for each day.  A forecast shows the same couple of weeks over and over, on
+ * every bind, widget row and notification, so nearly every call is a lookup.
+ *
+ * What's remembered is only good for today, in the current locale and time zone; when any of
+ * them changes, it's all forgotten.  The date formats are kept one set per thread, as
+ * SimpleDateFormat isn't safe to share.
+ */
+public final class DayFormatter {
+
+    // A little more than the longest forecast, and the days either side of it
+    private static final int CACHE_SIZE = 32;
+
+    private static volatile Generation sGeneration;
+
+    private static final ThreadLocal<Formats> sFormats = new ThreadLocal<Formats>();
+
+    private DayFormatter() {
+    }
+
+    /*
+        Everything remembered for one today, in one locale and time zone.
+     */
+    private static final class Generation {
+        final int today;
+        final int gmtoff;
+        final String timeZoneId;
+        final Locale locale;
+        final String todayName;
+        final String tomorrowName;
+        final String fullFriendlyFormat;
+        // By Julian day
+        final LruCache<Integer, Day> days = new LruCache<Integer, Day>(CACHE_SIZE);
+
+        Generation(Context context, int today, int gmtoff, String timeZoneId, Locale locale) {
+            this.today = today;
+            this.gmtoff = gmtoff;
+            this.timeZoneId = timeZoneId;
+            this.locale = locale;
+            todayName = context.getString(R.string.today);
+            tomorrowName = context.getString(R.string.tomorrow);
+            fullFriendlyFormat = context.getString(R.string.format_full_friendly_date);
+        }
+    }
+
+    private static final class Day {
+        // "Today", "Tomorrow" or e.g. "Wednesday"
+        final String name;
+        // e.g. "June 24"
+        final String monthDay;
+        // e.g. "Wednesday, June 24"
+        final String fullFriendly;
+        // e.g. "Wednesday", or "Mon Jun 08" a week or more ahead
+        final String friendly;
+
+        Day(Generation generation, Formats formats, int julianDay, long dateInMillis) {
+            if (julianDay == generation.today) {
+                name = generation.todayName;
+            } else if (julianDay == generation.today + 1) {
+                name = generation.tomorrowName;
+            } else {
+                name = formats.dayName.format(dateInMillis);
+            }
+            monthDay = formats.monthDay.format(dateInMillis);
+            fullFriendly = String.format(generation.fullFriendlyFormat, name, monthDay);
+            if (julianDay < generation.today + 7) {
+                friendly = name;
+            } else {
+                friendly = formats.shortDate.format(dateInMillis);
+            }
+        }
+    }
+
+    /*
+        A thread's own date formats, for the locale and time zone they were made in.
+     */
+    private static final class Formats {
+        final Locale locale;
+        final String timeZoneId;
+        final SimpleDateFormat dayName;
+        final SimpleDateFormat monthDay;
+        final SimpleDateFormat shortDate;
+
+        Formats(Locale locale, String timeZoneId) {
+            this.locale = locale;
+            this.timeZoneId = timeZoneId;
+            dayName = new SimpleDateFormat("EEEE", locale);
+            monthDay = new SimpleDateFormat("MMMM dd", locale);
+            shortDate = new SimpleDateFormat("EEE MMM dd", locale);
+        }
+    }
+
+    private static Generation getGeneration(Context context) {
+        long now = System.currentTimeMillis();
+        TimeZone timeZone = TimeZone.getDefault();
+        int gmtoff = timeZone.getOffset(now) / 1000;
+        int today = Time.getJulianDay(now, gmtoff);
+        Locale locale = Locale.getDefault();
+
+        Generation generation = sGeneration;
+        if (null == generation || generation.today != today || generation.gmtoff != gmtoff
+                || !generation.timeZoneId.equals(timeZone.getID())
+                || !generation.locale.equals(locale)) {
+            // Two threads may both start one; either will do
+            generation = new Generation(context, today, gmtoff, timeZone.getID(), locale);
+            sGeneration = generation;
+        }
+        return generation;
+    }
+
+    private static Formats getFormats(Generation generation) {
+        Formats formats = sFormats.get();
+        if (null == formats || !formats.locale.equals(generation.locale)
+                || !formats.timeZoneId.equals(generation.timeZoneId)) {
+            formats = new Formats(generation.locale, generation.timeZoneId);
+            sFormats.set(formats);
+        }
+        return formats;
+    }
+
+    private static Day getDay(Generation generation, int julianDay, long dateInMillis) {
+        Day day = generation.days.get(julianDay);
+        if (null == day) {
+            day = new Day(generation, getFormats(generation), julianDay, dateInMillis);
+            generation.days.put(julianDay, day);
+        }
+        return day;
+    }
+
+    /**
+     * @see Utility#getFriendlyDayString(Context, long, boolean)
+     */
+    public static String getFriendlyDayString(Context context, long dateInMillis,
+                                              boolean displayLongToday) {
+        Generation generation = getGeneration(context);
+        int julianDay = Time.getJulianDay(dateInMillis, generation.gmtoff);
+        Day day = getDay(generation, julianDay, dateInMillis);
+        return displayLongToday && julianDay == generation.today ? day.fullFriendly : day.friendly;
+    }
+
+    private static Day getDay(Context context, long dateInMillis) {
+        Generation generation = getGeneration(context);
+        return getDay(generation, Time.getJulianDay(dateInMillis, generation.gmtoff),
+                dateInMillis);
+    }
+
+    /**
+     * @see Utility#getFullFriendlyDayString(Context, long)
+     */
+    public static String getFullFriendlyDayString(Context context, long dateInMillis) {
+        return getDay(context, dateInMillis).fullFriendly;
+    }
+
+    /**
+     * @see Utility#getDayName(Context, long)
+     */
+    public static String getDayName(Context context, long dateInMillis) {
+        return getDay(context, dateInMillis).name;
+    }
+
+    /**
+     * @see Utility#getFormattedMonthDay(Context, long)
+     */
+    public static String getFormattedMonthDay(Context context, long dateInMillis) {
+        return getDay(context, dateInMillis).monthDay;
+    }
+}
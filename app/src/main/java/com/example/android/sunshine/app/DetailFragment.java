@@ -40,6 +40,7 @@ import android.widget.TextView;
 import com.bumptech.glide.Glide;
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.app.sync.ArtPrefetcher;
 
 /**
  * A placeholder fragment containing a simple view.
@@ -54,6 +55,8 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
 
     private String mForecast;
     private Uri mUri;
+    // The settings the weather was last shown with, or null if it hasn't been
+    private AppSettings mSettings;
     private boolean mTransitionAnimation;
 
     private static final int DETAIL_LOADER = 0;
@@ -157,6 +160,17 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
         super.onActivityCreated(savedInstanceState);
     }
 
+    @Override
+    public void onResume() {
+        super.onResume();
+        // Units and art are changed in the settings, while this is paused.  Only the one row is
+        // read again.
+        if (null != mSettings && null != mUri
+                && !AppSettings.get(getActivity()).sameDisplayAs(mSettings)) {
+            getLoaderManager().restartLoader(DETAIL_LOADER, null, this);
+        }
+    }
+
     void onLocationChanged( String newLocation ) {
         // replace the uri, since the location has changed
         Uri uri = mUri;
@@ -200,13 +214,20 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
             // Read weather condition ID from cursor
             int weatherId = data.getInt(COL_WEATHER_CONDITION_ID);
 
-            if ( Utility.usingLocalGraphics(getActivity()) ) {
-                mIconView.setImageResource(Utility.getArtResourceForWeatherCondition(weatherId));
+            AppSettings settings = AppSettings.get(getActivity());
+            mSettings = settings;
+            ConditionTable conditions = ConditionTable.getInstance(getActivity());
+            ConditionTable.Condition condition = conditions.get(weatherId);
+            if ( settings.localGraphics ) {
+                mIconView.setImageResource(condition.artResource);
             } else {
-                // Use weather art image
+                // Use weather art image, at the size it was prefetched
+                int artSize = ArtPrefetcher.getListArtSize(getActivity(), true);
                 Glide.with(this)
-                        .load(Utility.getArtUrlForWeatherCondition(getActivity(), weatherId))
-                        .error(Utility.getArtResourceForWeatherCondition(weatherId))
+                        .load(condition.artUrl)
+                        .error(condition.artResource)
+                        .override(artSize, artSize)
+                        .fitCenter()
                         .crossFade()
                         .into(mIconView);
             }
@@ -217,7 +238,7 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
             mDateView.setText(dateText);
 
             // Get description from weather condition ID
-            String description = Utility.getStringForWeatherCondition(getActivity(), weatherId);
+            String description = conditions.getDescription(weatherId);
             mDescriptionView.setText(description);
             mDescriptionView.setContentDescription(getString(R.string.a11y_forecast, description));
 
@@ -228,16 +249,14 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
             mIconView.setContentDescription(getString(R.string.a11y_forecast_icon, description));
 
             // Read high temperature from cursor and update view
-            boolean isMetric = Utility.isMetric(getActivity());
-
             double high = data.getDouble(COL_WEATHER_MAX_TEMP);
-            String highString = Utility.formatTemperature(getActivity(), high);
+            String highString = Utility.formatTemperature(getActivity(), high, settings.metric);
             mHighTempView.setText(highString);
             mHighTempView.setContentDescription(getString(R.string.a11y_high_temp, highString));
 
             // Read low temperature from cursor and update view
             double low = data.getDouble(COL_WEATHER_MIN_TEMP);
-            String lowString = Utility.formatTemperature(getActivity(), low);
+            String lowString = Utility.formatTemperature(getActivity(), low, settings.metric);
             mLowTempView.setText(lowString);
             mLowTempView.setContentDescription(getString(R.string.a11y_low_temp, lowString));
 
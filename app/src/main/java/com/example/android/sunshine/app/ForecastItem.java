@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+
+/**
+ * One day of the forecast list, with every string already formatted so that binding it is
+ * nothing more than handing values to views.  Instances are immutable and are built off the main
+ * thread by {@link ForecastLoader}.
+ *
+ * The values they were formatted from are kept too, so that a change of units or art pack can
+ * be formatted again without querying the database.
+ */
+public class ForecastItem {
+    // From the database
+    public final long id;
+    public final String location;
+    public final long date;
+    public final int weatherId;
+    public final double high;
+    public final double low;
+    public final String coordLat;
+    public final String coordLong;
+
+    // Formatted
+    public final String dateText;
+    // The date as the first row shows it in the today layout, e.g. "Today, June 24"
+    public final String longDateText;
+    public final int iconResourceId;
+    public final int artResourceId;
+    // Null when the art pack is the app's own drawables
+    public final String artUrl;
+    public final String description;
+    public final String descriptionContentDescription;
+    public final String highText;
+    public final String highContentDescription;
+    public final String lowText;
+    public final String lowContentDescription;
+
+    private ForecastItem(long id, String location, long date, int weatherId, double high,
+                         double low, String coordLat, String coordLong, boolean first,
+                         Context context, AppSettings settings, ConditionTable conditions) {
+        this.id = id;
+        this.location = location;
+        this.date = date;
+        this.weatherId = weatherId;
+        this.high = high;
+        this.low = low;
+        this.coordLat = coordLat;
+        this.coordLong = coordLong;
+
+        dateText = Utility.getFriendlyDayString(context, date, false);
+        // Only the first row can be shown with the today layout
+        longDateText = first ? Utility.getFriendlyDayString(context, date, true) : dateText;
+
+        ConditionTable.Condition condition = conditions.get(weatherId);
+        iconResourceId = condition.iconResource;
+        artResourceId = condition.artResource;
+        artUrl = settings.localGraphics ? null : condition.artUrl;
+        description = conditions.getDescription(weatherId);
+        descriptionContentDescription = context.getString(R.string.a11y_forecast, description);
+
+        highText = Utility.formatTemperature(context, high, settings.metric);
+        highContentDescription = context.getString(R.string.a11y_high_temp, highText);
+        lowText = Utility.formatTemperature(context, low, settings.metric);
+        lowContentDescription = context.getString(R.string.a11y_low_temp, lowText);
+    }
+
+    /**
+     * Builds an item from the current row of a cursor with {@link ForecastLoader}'s projection.
+     */
+    static ForecastItem fromCursor(Context context, Cursor cursor, AppSettings settings,
+                                   ConditionTable conditions) {
+        return new ForecastItem(
+                cursor.getLong(ForecastLoader.COL_WEATHER_ID),
+                cursor.getString(ForecastLoader.COL_LOCATION_SETTING),
+                cursor.getLong(ForecastLoader.COL_WEATHER_DATE),
+                cursor.getInt(ForecastLoader.COL_WEATHER_CONDITION_ID),
+                cursor.getDouble(ForecastLoader.COL_WEATHER_MAX_TEMP),
+                cursor.getDouble(ForecastLoader.COL_WEATHER_MIN_TEMP),
+                cursor.getString(ForecastLoader.COL_COORD_LAT),
+                cursor.getString(ForecastLoader.COL_COORD_LONG),
+                cursor.isFirst(), context, settings, conditions);
+    }
+
+    /**
+     * @return this item formatted again with other settings.
+     */
+    ForecastItem reformat(Context context, AppSettings settings, ConditionTable conditions,
+                          boolean first) {
+        return new ForecastItem(id, location, date, weatherId, high, low, coordLat, coordLong,
+                first, context, settings, conditions);
+    }
+
+    /**
+     * @return true if both items are the same day for the same location, whatever the weather.
+     * The row's _id can't say this: a sync replaces every row with a new one.
+     */
+    public boolean isSameDayAs(ForecastItem other) {
+        return date == other.date && location.equals(other.location);
+    }
+
+    /**
+     * @return true if a row bound with the other item would look just like one bound with this.
+     */
+    public boolean looksLike(ForecastItem other) {
+        return iconResourceId == other.iconResourceId
+                && artResourceId == other.artResourceId
+                && equal(artUrl, other.artUrl)
+                && dateText.equals(other.dateText)
+                && longDateText.equals(other.longDateText)
+                && description.equals(other.description)
+                && highText.equals(other.highText)
+                && lowText.equals(other.lowText);
+    }
+
+    private static boolean equal(String a, String b) {
+        return null == a ? null == b : a.equals(b);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.v4.content.AsyncTaskLoader;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads the forecast for the preferred location and turns each day into a ready-to-bind
+ * {@link ForecastItem} on the loader's background thread, along with what changed since the
+ * forecast it loaded before.
+ *
+ * When only the units or the art pack have changed since the items were built, they're formatted
+ * again from the values they hold, without querying the database.
+ */
+public class ForecastLoader extends AsyncTaskLoader<ForecastUpdate> {
+
+    // For the forecast view we're showing only a small subset of the stored data.
+    // Specify the columns we need.
+    private static final String[] FORECAST_COLUMNS = {
+            // In this case the id needs to be fully qualified with a table name, since
+            // the content provider joins the location & weather tables in the background
+            // (both have an _id column)
+            // On the one hand, that's annoying.  On the other, you can search the weather table
+            // using the location set by the user, which is only in the Location table.
+            // So the convenience is worth it.
+            WeatherContract.WeatherEntry.TABLE_NAME + "." + WeatherContract.WeatherEntry._ID,
+            WeatherContract.WeatherEntry.COLUMN_DATE,
+            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.LocationEntry.COLUMN_COORD_LAT,
+            WeatherContract.LocationEntry.COLUMN_COORD_LONG
+    };
+
+    // These indices are tied to FORECAST_COLUMNS.  If FORECAST_COLUMNS changes, these
+    // must change.
+    static final int COL_WEATHER_ID = 0;
+    static final int COL_WEATHER_DATE = 1;
+    static final int COL_WEATHER_DESC = 2;
+    static final int COL_WEATHER_MAX_TEMP = 3;
+    static final int COL_WEATHER_MIN_TEMP = 4;
+    static final int COL_LOCATION_SETTING = 5;
+    static final int COL_WEATHER_CONDITION_ID = 6;
+    static final int COL_COORD_LAT = 7;
+    static final int COL_COORD_LONG = 8;
+
+    private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver() {
+        @Override
+        public void onChange(boolean selfChange) {
+            mRequery = true;
+            super.onChange(selfChange);
+        }
+    };
+
+    // The last forecast delivered, and what it was formatted with
+    private volatile ForecastUpdate mUpdate;
+    private volatile AppSettings mItemsSettings;
+    private volatile long mItemsDay;
+    private boolean mObserving;
+    private volatile boolean mRequery = true;
+
+    public ForecastLoader(Context context) {
+        super(context);
+    }
+
+    @Override
+    public ForecastUpdate loadInBackground() {
+        final Context context = getContext();
+        final AppSettings settings = AppSettings.get(context);
+        final ConditionTable conditions = ConditionTable.getInstance(context);
+        final long now = System.currentTimeMillis();
+        final long today = WeatherContract.normalizeDate(now);
+        final ForecastUpdate last = mUpdate;
+        final List<ForecastItem> previous = null == last ? null : last.items;
+
+        List<ForecastItem> items;
+        // A new day drops yesterday from the query, so only a change of settings is formatted
+        // again in place
+        if (!mRequery && null != previous && today == mItemsDay) {
+            items = new ArrayList<ForecastItem>(previous.size());
+            for (int i = 0; i < previous.size(); i++) {
+                items.add(previous.get(i).reformat(context, settings, conditions, i == 0));
+            }
+        } else {
+            mRequery = false;
+            // To only show current and future dates, filter the query to return weather only for
+            // dates after or including today.  Sort order:  Ascending, by date.
+            Uri weatherForLocationUri = WeatherContract.WeatherEntry
+                    .buildWeatherLocationWithStartDate(settings.location, now);
+            Cursor cursor = context.getContentResolver().query(weatherForLocationUri,
+                    FORECAST_COLUMNS, null, null,
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+            items = new ArrayList<ForecastItem>(null == cursor ? 0 : cursor.getCount());
+            if (null != cursor) {
+                try {
+                    while (cursor.moveToNext()) {
+                        items.add(ForecastItem.fromCursor(context, cursor, settings, conditions));
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+        }
+        mItemsSettings = settings;
+        mItemsDay = today;
+        return ForecastUpdate.compute(previous, Collections.unmodifiableList(items));
+    }
+
+    @Override
+    public void deliverResult(ForecastUpdate data) {
+        if (isReset()) {
+            return;
+        }
+        mUpdate = data;
+        if (isStarted()) {
+            super.deliverResult(data);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (null != mUpdate) {
+            deliverResult(mUpdate);
+        }
+        if (!mObserving) {
+            getContext().getContentResolver().registerContentObserver(
+                    WeatherContract.WeatherEntry.CONTENT_URI, true, mObserver);
+            mObserving = true;
+        }
+        // The units and art are changed in the settings, while this is stopped, and "Today"
+        // moves on at midnight
+        boolean stale = null != mUpdate
+                && (!AppSettings.get(getContext()).sameDisplayAs(mItemsSettings)
+                || WeatherContract.normalizeDate(System.currentTimeMillis()) != mItemsDay);
+        if (takeContentChanged() || null == mUpdate || stale) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        if (mObserving) {
+            getContext().getContentResolver().unregisterContentObserver(mObserver);
+            mObserving = false;
+        }
+        mUpdate = null;
+        mItemsSettings = null;
+        mRequery = true;
+    }
+}
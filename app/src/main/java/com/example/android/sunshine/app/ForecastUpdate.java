@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.List;
+
+/**
+ * The forecast a {@link ForecastLoader} delivered, and what changed since the forecast it
+ * delivered before it.  The changes are worked out on the loader's thread, so that an adapter
+ * showing the earlier forecast only has to pass them on: rows for days that are still there and
+ * look the same aren't bound again, and keep their pictures.
+ */
+public final class ForecastUpdate {
+    private static final int INSERT = 0;
+    private static final int REMOVE = 1;
+    private static final int CHANGE = 2;
+
+    // The forecast the changes start from; null if there was none
+    public final List<ForecastItem> previous;
+    public final List<ForecastItem> items;
+    // Triples of change, position and count, to be applied in order.  Null if the forecasts
+    // have nothing in common, and the whole list should be bound again.
+    private final int[] mChanges;
+    private final int mChangeCount;
+
+    private ForecastUpdate(List<ForecastItem> previous, List<ForecastItem> items, int[] changes,
+                           int changeCount) {
+        this.previous = previous;
+        this.items = items;
+        mChanges = changes;
+        mChangeCount = changeCount;
+    }
+
+    /**
+     * Works out what changed between two forecasts.  Both are sorted by date, with a day at
+     * most once, so a single pass over the two together finds the days that went, the days that
+     * came and the days whose weather changed.
+     */
+    static ForecastUpdate compute(List<ForecastItem> previous, List<ForecastItem> items) {
+        if (null == previous || previous.isEmpty() || items.isEmpty()
+                || !previous.get(0).location.equals(items.get(0).location)) {
+            return new ForecastUpdate(previous, items, null, 0);
+        }
+
+        // At worst every day of both is a change of its own
+        int[] changes = new int[3 * (previous.size() + items.size())];
+        int count = 0;
+        // Where the change goes in the list as it is after the changes before it
+        int position = 0;
+        int i = 0;
+        int j = 0;
+        while (i < previous.size() || j < items.size()) {
+            int change;
+            if (i == previous.size()) {
+                change = INSERT;
+            } else if (j == items.size()) {
+                change = REMOVE;
+            } else {
+                ForecastItem before = previous.get(i);
+                ForecastItem after = items.get(j);
+                if (before.isSameDayAs(after)) {
+                    i++;
+                    j++;
+                    if (before.looksLike(after)) {
+                        position++;
+                        continue;
+                    }
+                    change = CHANGE;
+                } else if (before.date < after.date) {
+                    change = REMOVE;
+                } else {
+                    change = INSERT;
+                }
+            }
+            if (change == INSERT) {
+                j++;
+            } else if (change == REMOVE) {
+                i++;
+            }
+
+            // Runs of the same change go out as one range
+            int last = 3 * (count - 1);
+            if (count > 0 && changes[last] == change
+                    && changes[last + 1] + (change == REMOVE ? 0 : changes[last + 2]) == position) {
+                changes[last + 2]++;
+            } else {
+                changes[3 * count] = change;
+                changes[3 * count + 1] = position;
+                changes[3 * count + 2] = 1;
+                count++;
+            }
+            if (change != REMOVE) {
+                position++;
+            }
+        }
+        return new ForecastUpdate(previous, items, changes, count);
+    }
+
+    /**
+     * @return true if the update has nothing in common with what it follows, and every row
+     * should be bound again.
+     */
+    public boolean isReplacement() {
+        return null == mChanges;
+    }
+
+    /**
+     * @return the number of ranges of rows inserted, removed or changed.
+     */
+    public int getChangeCount() {
+        return mChangeCount;
+    }
+
+    /**
+     * Tells an adapter that was showing {@link #previous} which of its rows changed.
+     */
+    public void dispatchTo(RecyclerView.Adapter adapter) {
+        if (isReplacement()) {
+            adapter.notifyDataSetChanged();
+            return;
+        }
+        for (int i = 0; i < mChangeCount; i++) {
+            int position = mChanges[3 * i + 1];
+            int count = mChanges[3 * i + 2];
+            switch (mChanges[3 * i]) {
+                case INSERT:
+                    adapter.notifyItemRangeInserted(position, count);
+                    break;
+                case REMOVE:
+                    adapter.notifyItemRangeRemoved(position, count);
+                    break;
+                default:
+                    adapter.notifyItemRangeChanged(position, count);
+            }
+        }
+    }
+}
@@ -15,21 +15,28 @@
  */
 package com.example.android.sunshine.app;
 
+import android.content.Context;
+import android.content.ContextWrapper;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.v4.util.LongSparseArray;
 import android.support.v4.view.ViewCompat;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.view.ActionMode;
 import android.support.v7.widget.RecyclerView;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.util.Log;
 import android.util.SparseBooleanArray;
 import android.widget.AbsListView;
 import android.widget.Checkable;
 
 /**
- * The ItemChoiceManager class keeps track of which positions have been selected.  Note that it
- * doesn't take advantage of new adapter features to track changes in the underlying data.
+ * The ItemChoiceManager class keeps track of which positions have been selected.  When the
+ * adapter has stable ids, checked items are followed by id across changes to the data, however
+ * far they move.
  */
 public class ItemChoiceManager {
     private final String LOG_TAG = MainActivity.class.getSimpleName();
@@ -37,12 +44,72 @@ public class ItemChoiceManager {
     private int mChoiceMode;
 
     private RecyclerView.Adapter mAdapter;
+    // An update can arrive as several notifications; the checked positions are worked out again
+    // once, the next time they're asked for
     private RecyclerView.AdapterDataObserver mAdapterDataObserver = new RecyclerView.AdapterDataObserver() {
         @Override
         public void onChanged() {
             super.onChanged();
-            if (mAdapter != null && mAdapter.hasStableIds())
-                confirmCheckedPositionsById(mAdapter.getItemCount());
+            mPositionsStale = true;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mPositionsStale = true;
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mPositionsStale = true;
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            mPositionsStale = true;
+        }
+    };
+
+    /**
+     * A {@link ActionMode.Callback} that is also told when items are checked or unchecked while
+     * its action mode is showing, for AbsListView.CHOICE_MODE_MULTIPLE_MODAL.
+     */
+    public interface MultiChoiceModeListener extends ActionMode.Callback {
+        void onItemCheckedStateChanged(ActionMode mode, int position, long id, boolean checked);
+    }
+
+    private MultiChoiceModeListener mMultiChoiceModeListener;
+    private ActionMode mActionMode;
+    private final ActionMode.Callback mActionModeCallback = new ActionMode.Callback() {
+        @Override
+        public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+            return null == mMultiChoiceModeListener
+                    || mMultiChoiceModeListener.onCreateActionMode(mode, menu);
+        }
+
+        @Override
+        public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+            return null != mMultiChoiceModeListener
+                    && mMultiChoiceModeListener.onPrepareActionMode(mode, menu);
+        }
+
+        @Override
+        public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+            return null != mMultiChoiceModeListener
+                    && mMultiChoiceModeListener.onActionItemClicked(mode, item);
+        }
+
+        @Override
+        public void onDestroyActionMode(ActionMode mode) {
+            if (null != mMultiChoiceModeListener) {
+                mMultiChoiceModeListener.onDestroyActionMode(mode);
+            }
+            mActionMode = null;
+            // Leaving the action mode unchecks everything
+            SparseBooleanArray checkStates = getCheckStates();
+            for (int i = 0; i < checkStates.size(); i++) {
+                mAdapter.notifyItemChanged(checkStates.keyAt(i));
+            }
+            clearSelections();
         }
     };
 
@@ -53,15 +120,9 @@ public class ItemChoiceManager {
 
     public ItemChoiceManager(RecyclerView.Adapter adapter) {
         mAdapter = adapter;
+        mAdapter.registerAdapterDataObserver(mAdapterDataObserver);
     }
 
-    /**
-     * How many positions in either direction we will search to try to
-     * find a checked item with a stable ID that moved position across
-     * a data set change. If the item isn't found it will be unselected.
-     */
-    private static final int CHECK_POSITION_SEARCH_DISTANCE = 20;
-
     /**
      * Running state of which positions are currently checked
      */
@@ -74,11 +135,21 @@ public class ItemChoiceManager {
      */
     LongSparseArray<Integer> mCheckedIdStates = new LongSparseArray<Integer>();
 
+    /**
+     * The position of every id in the adapter, built when checked ids need finding after the
+     * data changed.  Finding each of them is then a lookup, however far it moved.
+     */
+    private final LongSparseArray<Integer> mPositionsById = new LongSparseArray<Integer>();
+
+    // True if the data changed since mCheckStates was last worked out from mCheckedIdStates
+    private boolean mPositionsStale;
+
     public void onClick(RecyclerView.ViewHolder vh) {
         if (mChoiceMode == AbsListView.CHOICE_MODE_NONE)
             return;
 
-        int checkedItemCount = mCheckStates.size();
+        SparseBooleanArray checkStates = getCheckStates();
+        int checkedItemCount = checkStates.size();
         int position = vh.getAdapterPosition();
 
         if (position == RecyclerView.NO_POSITION) {
@@ -90,13 +161,13 @@ public class ItemChoiceManager {
             case AbsListView.CHOICE_MODE_NONE:
                 break;
             case AbsListView.CHOICE_MODE_SINGLE: {
-                boolean checked = mCheckStates.get(position, false);
+                boolean checked = checkStates.get(position, false);
                 if (!checked) {
                     for (int i = 0; i < checkedItemCount; i++) {
-                        mAdapter.notifyItemChanged(mCheckStates.keyAt(i));
+                        mAdapter.notifyItemChanged(checkStates.keyAt(i));
                     }
-                    mCheckStates.clear();
-                    mCheckStates.put(position, true);
+                    checkStates.clear();
+                    checkStates.put(position, true);
                     mCheckedIdStates.clear();
                     mCheckedIdStates.put(mAdapter.getItemId(position), position);
                 }
@@ -107,35 +178,115 @@ public class ItemChoiceManager {
                 break;
             }
             case AbsListView.CHOICE_MODE_MULTIPLE: {
-                boolean checked = mCheckStates.get(position, false);
-                mCheckStates.put(position, !checked);
-                // We directly call onBindViewHolder here because notifying that an item has
-                // changed on an item that has the focus causes it to lose focus, which makes
-                // keyboard navigation a bit annoying
-                mAdapter.onBindViewHolder(vh, position);
+                toggle(vh, position);
                 break;
             }
             case AbsListView.CHOICE_MODE_MULTIPLE_MODAL: {
-                throw new RuntimeException("Multiple Modal not implemented in ItemChoiceManager.");
+                // Outside the action mode a click is only a click
+                if (null != mActionMode) {
+                    boolean checked = toggle(vh, position);
+                    if (null != mMultiChoiceModeListener) {
+                        mMultiChoiceModeListener.onItemCheckedStateChanged(mActionMode, position,
+                                mAdapter.getItemId(position), checked);
+                    }
+                    if (0 == mCheckStates.size()) {
+                        mActionMode.finish();
+                    }
+                }
+                break;
             }
         }
     }
 
+    /**
+     * In AbsListView.CHOICE_MODE_MULTIPLE_MODAL, a long click starts the action mode, with the
+     * item clicked checked.
+     *
+     * @return true if the long click was used
+     */
+    public boolean onLongClick(RecyclerView.ViewHolder vh) {
+        if (mChoiceMode != AbsListView.CHOICE_MODE_MULTIPLE_MODAL || null != mActionMode)
+            return false;
+
+        int position = vh.getAdapterPosition();
+        AppCompatActivity activity = getActivity(vh.itemView.getContext());
+        if (position == RecyclerView.NO_POSITION || null == activity) {
+            Log.d(LOG_TAG, "Unable to Start Action Mode");
+            return false;
+        }
+        mActionMode = activity.startSupportActionMode(mActionModeCallback);
+        if (null == mActionMode) {
+            return false;
+        }
+        onClick(vh);
+        return true;
+    }
+
+    /**
+     * @return true while the action mode of AbsListView.CHOICE_MODE_MULTIPLE_MODAL is showing,
+     * when clicks check items rather than open them.
+     */
+    public boolean isInActionMode() {
+        return null != mActionMode;
+    }
+
+    public void setMultiChoiceModeListener(MultiChoiceModeListener listener) {
+        mMultiChoiceModeListener = listener;
+    }
+
+    private static AppCompatActivity getActivity(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof AppCompatActivity) {
+                return (AppCompatActivity) context;
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+
+    /*
+        Checks or unchecks an item for the multiple choice modes.  Returns whether it's checked.
+     */
+    private boolean toggle(RecyclerView.ViewHolder vh, int position) {
+        boolean checked = !mCheckStates.get(position, false);
+        if (checked) {
+            mCheckStates.put(position, true);
+            mCheckedIdStates.put(mAdapter.getItemId(position), position);
+        } else {
+            mCheckStates.delete(position);
+            mCheckedIdStates.delete(mAdapter.getItemId(position));
+        }
+        // We directly call onBindViewHolder here because notifying that an item has
+        // changed on an item that has the focus causes it to lose focus, which makes
+        // keyboard navigation a bit annoying
+        mAdapter.onBindViewHolder(vh, position);
+        return checked;
+    }
+
     /**
      * Defines the choice behavior for the RecyclerView. By default, RecyclerViewChoiceMode does
      * not have any choice behavior (AbsListView.CHOICE_MODE_NONE). By setting the choiceMode to
      * AbsListView.CHOICE_MODE_SINGLE, the RecyclerView allows up to one item to  be in a
      * chosen state.
      *
-     * @param choiceMode One of AbsListView.CHOICE_MODE_NONE, AbsListView.CHOICE_MODE_SINGLE
+     * @param choiceMode One of AbsListView.CHOICE_MODE_NONE, AbsListView.CHOICE_MODE_SINGLE,
+     *                   AbsListView.CHOICE_MODE_MULTIPLE or
+     *                   AbsListView.CHOICE_MODE_MULTIPLE_MODAL
      */
     public void setChoiceMode(int choiceMode) {
         if (mChoiceMode != choiceMode) {
+            if (null != mActionMode) {
+                mActionMode.finish();
+            }
             mChoiceMode = choiceMode;
             clearSelections();
         }
     }
 
+    public int getChoiceMode() {
+        return mChoiceMode;
+    }
+
     /**
      * Returns the checked state of the specified position. The result is only
      * valid if the choice mode has been set to AbsListView.CHOICE_MODE_SINGLE,
@@ -146,46 +297,70 @@ public class ItemChoiceManager {
      * @see #setChoiceMode(int)
      */
     public boolean isItemChecked(int position) {
-        return mCheckStates.get(position);
+        return getCheckStates().get(position);
+    }
+
+    public int getCheckedItemCount() {
+        return getCheckStates().size();
+    }
+
+    /**
+     * @return the ids of the checked items, if the adapter has stable ids.
+     */
+    public long[] getCheckedItemIds() {
+        getCheckStates();
+        long[] ids = new long[mCheckedIdStates.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = mCheckedIdStates.keyAt(i);
+        }
+        return ids;
     }
 
     void clearSelections() {
         mCheckStates.clear();
         mCheckedIdStates.clear();
+        mPositionsStale = false;
     }
 
-    void confirmCheckedPositionsById(int oldItemCount) {
+    /*
+        The checked positions, worked out again from the checked ids if the data has changed
+        since they were last asked for.
+     */
+    private SparseBooleanArray getCheckStates() {
+        if (mPositionsStale) {
+            mPositionsStale = false;
+            if (mAdapter != null && mAdapter.hasStableIds())
+                confirmCheckedPositionsById(mAdapter.getItemCount());
+        }
+        return mCheckStates;
+    }
+
+    void confirmCheckedPositionsById(int itemCount) {
         // Clear out the positional check states, we'll rebuild it below from IDs.
         mCheckStates.clear();
+        if (mCheckedIdStates.size() == 0)
+            return;
+
+        // One pass over the adapter, however many items are checked
+        mPositionsById.clear();
+        for (int position = 0; position < itemCount; position++) {
+            mPositionsById.append(mAdapter.getItemId(position), position);
+        }
 
         for (int checkedIndex = 0; checkedIndex < mCheckedIdStates.size(); checkedIndex++) {
             final long id = mCheckedIdStates.keyAt(checkedIndex);
-            final int lastPos = mCheckedIdStates.valueAt(checkedIndex);
-
-            final long lastPosId = mAdapter.getItemId(lastPos);
-            if (id != lastPosId) {
-                // Look around to see if the ID is nearby. If not, uncheck it.
-                final int start = Math.max(0, lastPos - CHECK_POSITION_SEARCH_DISTANCE);
-                final int end = Math.min(lastPos + CHECK_POSITION_SEARCH_DISTANCE, oldItemCount);
-                boolean found = false;
-                for (int searchPos = start; searchPos < end; searchPos++) {
-                    final long searchId = mAdapter.getItemId(searchPos);
-                    if (id == searchId) {
-                        found = true;
-                        mCheckStates.put(searchPos, true);
-                        mCheckedIdStates.setValueAt(checkedIndex, searchPos);
-                        break;
-                    }
-                }
-
-                if (!found) {
-                    mCheckedIdStates.delete(id);
-                    checkedIndex--;
-                }
+            final Integer position = mPositionsById.get(id);
+            if (null == position) {
+                // The item's gone, so it can't be checked any more
+                mCheckedIdStates.removeAt(checkedIndex);
+                checkedIndex--;
             } else {
-                mCheckStates.put(lastPos, true);
+                mCheckStates.put(position, true);
+                mCheckedIdStates.setValueAt(checkedIndex, position);
             }
         }
+        // Only needed until the checked items are found
+        mPositionsById.clear();
     }
 
     public void onBindViewHolder(RecyclerView.ViewHolder vh, int position) {
@@ -198,7 +373,8 @@ public class ItemChoiceManager {
 
     public void onRestoreInstanceState(Bundle savedInstanceState) {
         byte[] states = savedInstanceState.getByteArray(SELECTED_ITEMS_KEY);
-        if ( null != states ) {
+        // The action mode doesn't outlive the activity, and nothing can be checked without it
+        if ( null != states && mChoiceMode != AbsListView.CHOICE_MODE_MULTIPLE_MODAL ) {
             Parcel inParcel = Parcel.obtain();
             inParcel.unmarshall(states, 0, states.length);
             inParcel.setDataPosition(0);
@@ -214,6 +390,7 @@ public class ItemChoiceManager {
     }
 
     public void onSaveInstanceState(Bundle outState) {
+        getCheckStates();
         Parcel outParcel = Parcel.obtain();
         outParcel.writeSparseBooleanArray(mCheckStates);
         final int numStates = mCheckedIdStates.size();
@@ -228,10 +405,11 @@ public class ItemChoiceManager {
     }
 
     public int getSelectedItemPosition() {
-        if ( mCheckStates.size() == 0 ) {
+        SparseBooleanArray checkStates = getCheckStates();
+        if ( checkStates.size() == 0 ) {
             return RecyclerView.NO_POSITION;
         } else {
-            return mCheckStates.keyAt(0);
+            return checkStates.keyAt(0);
         }
     }
 }
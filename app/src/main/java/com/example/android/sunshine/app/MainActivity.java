@@ -17,7 +17,6 @@ package com.example.android.sunshine.app;
 
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
 import android.preference.PreferenceManager;
@@ -36,15 +35,8 @@ import com.example.android.sunshine.app.gcm.RegistrationIntentService;
 import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.GoogleApiAvailability;
-import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.api.Result;
-import com.google.android.gms.common.api.ResultCallback;
-import com.google.android.gms.wearable.Node;
-import com.google.android.gms.wearable.NodeApi;
-import com.google.android.gms.wearable.Wearable;
 
-public class MainActivity extends AppCompatActivity implements ForecastFragment.Callback,GoogleApiClient.ConnectionCallbacks,
-        GoogleApiClient.OnConnectionFailedListener {
+public class MainActivity extends AppCompatActivity implements ForecastFragment.Callback {
 
     private final String LOG_TAG = MainActivity.class.getSimpleName();
     private static final String DETAILFRAGMENT_TAG = "DFTAG";
@@ -54,9 +46,6 @@ public class MainActivity extends AppCompatActivity implements ForecastFragment.
     private boolean mTwoPane;
     private String mLocation;
 
-    private GoogleApiClient mApiClient;
-    private static final String WEAR_MESSAGE_PATH = "/some_message";
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -68,12 +57,6 @@ public class MainActivity extends AppCompatActivity implements ForecastFragment.
         setSupportActionBar(toolbar);
         getSupportActionBar().setDisplayShowTitleEnabled(false);
 
-        mApiClient = new GoogleApiClient.Builder(this)
-                .addApi(Wearable.API)
-                .addConnectionCallbacks(this)
-                .addOnConnectionFailedListener(this)
-                .build();
-
         if (findViewById(R.id.weather_detail_container) != null) {
             // The detail container view will be present only in the large-screen layouts
             // (res/layout-sw600dp). If this view is present, then the activity should be
@@ -127,42 +110,6 @@ public class MainActivity extends AppCompatActivity implements ForecastFragment.
 
     }
 
-    public void sendMessage( final String path, final String text ) {
-        new Thread( new Runnable() {
-            @Override
-            public void run() {
-                NodeApi.GetConnectedNodesResult nodes = Wearable.NodeApi.getConnectedNodes( mApiClient ).await();
-                for(Node node : nodes.getNodes()) {
-                    Wearable.MessageApi.sendMessage(
-                            mApiClient, node.getId(), path, text.getBytes() ).setResultCallback(
-                            new ResultCallback() {
-                                @Override
-                                public void onResult(Result result) {
-                                    if (!result.getStatus().isSuccess()) {
-                                        // Failed to send message
-                                        Log.i("GOT_RESULT","FAILED_MESSAGE");
-                                    }
-                                    else
-                                    {
-                                        Log.i("GOT_RESULT",result.getStatus().getStatusMessage());
-                                    }
-                                }
-
-                            }
-                    );
-
-                }
-
-                runOnUiThread( new Runnable() {
-                    @Override
-                    public void run() {
-                        //mEditText.setText( "" );
-                    }
-                });
-            }
-        }).start();
-    }
-
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         // Inflate the menu; this adds items to the action bar if it is present.
@@ -182,6 +129,10 @@ public class MainActivity extends AppCompatActivity implements ForecastFragment.
             startActivity(new Intent(this, SettingsActivity.class));
             return true;
         }
+        if (id == R.id.action_dashboard) {
+            startActivity(new Intent(this, DashboardActivity.class));
+            return true;
+        }
 
         return super.onOptionsItemSelected(item);
     }
@@ -250,76 +201,4 @@ public class MainActivity extends AppCompatActivity implements ForecastFragment.
         }
         return true;
     }
-
-    // Connect to the data layer when the Activity starts
-    @Override
-    protected void onStart() {
-        super.onStart();
-        mApiClient.connect();
-    }
-
-    // Disconnect from the data layer when the Activity stops
-    @Override
-    protected void onStop() {
-        if (null != mApiClient && mApiClient.isConnected()) {
-            mApiClient.disconnect();
-        }
-        super.onStop();
-    }
-
-    @Override
-    public void onConnected(Bundle bundle) {
-        String mesText = prepareMessageForSending();
-        sendMessage(WEAR_MESSAGE_PATH, mesText);
-    }
-
-    public String prepareMessageForSending()
-    {
-        //////////////////////////
-        //// get the latest temp
-        // these indices must match the projection
-        int INDEX_WEATHER_ID = 0;
-        int INDEX_MAX_TEMP = 1;
-        int INDEX_MIN_TEMP = 2;
-        int INDEX_SHORT_DESC = 3;
-        double high = 0;
-        double low = 0;
-        String desc = "";
-
-        String[] NOTIFY_WEATHER_PROJECTION = new String[] {
-                WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
-                WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
-                WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
-                WeatherContract.WeatherEntry.COLUMN_SHORT_DESC
-        };
-
-        String locationQuery = Utility.getPreferredLocation(this);
-        Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(locationQuery, System.currentTimeMillis());
-
-        // we'll query our contentProvider, as always
-        Cursor cursor = this.getContentResolver().query(weatherUri, NOTIFY_WEATHER_PROJECTION, null, null, null);
-        String messageText = "NoData";
-        if (cursor.moveToFirst()) {
-            int weatherId = cursor.getInt(INDEX_WEATHER_ID);
-            high = cursor.getDouble(INDEX_MAX_TEMP);
-            low = cursor.getDouble(INDEX_MIN_TEMP);
-
-            String hight = String.valueOf((int) Math.round(high));
-            String lowt = String.valueOf((int) Math.round(low));
-            messageText = String.valueOf(weatherId)+";"+hight+";"+lowt;
-        }
-        cursor.close();
-        //////
-        return messageText;
-    }
-
-    @Override
-    public void onConnectionSuspended(int i) {
-
-    }
-
-    @Override
-    public void onConnectionFailed(ConnectionResult connectionResult) {
-
-    }
 }
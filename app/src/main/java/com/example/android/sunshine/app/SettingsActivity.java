@@ -25,8 +25,9 @@ import android.preference.Preference;
 import android.preference.PreferenceActivity;
 import android.preference.PreferenceManager;
 
-import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.sync.ArtPrefetcher;
 import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
+import com.example.android.sunshine.app.sync.WearPublisher;
 
 /**
  * A {@link PreferenceActivity} that presents a set of application settings.
@@ -137,15 +138,17 @@ public class SettingsActivity extends PreferenceActivity
             Utility.resetLocationStatus(this);
             SunshineSyncAdapter.syncImmediately(this);
         } else if ( key.equals(getString(R.string.pref_units_key)) ) {
-            // units have changed. update lists of weather entries accordingly
-            getContentResolver().notifyChange(WeatherContract.WeatherEntry.CONTENT_URI, null);
+            // units have changed.  Lists of weather entries notice when they're next shown and
+            // rebind, since the stored data hasn't changed; the watch converts the temperatures
+            // itself, so tell it
+            WearPublisher.getInstance(this).requestPublish(WearPublisher.KEEP_FETCHED_TIME);
+        } else if ( key.equals(getString(R.string.pref_art_pack_key)) ) {
+            // the art pack has changed.  Fetch its pictures before they're asked for
+            ArtPrefetcher.getInstance(this).requestPrefetch();
         } else if ( key.equals(getString(R.string.pref_location_status_key)) ) {
             // our location status has changed.  Update the summary accordingly
             Preference locationPreference = findPreference(getString(R.string.pref_location_key));
             bindPreferenceSummaryToValue(locationPreference);
-        } else if ( key.equals(getString(R.string.pref_art_pack_key)) ) {
-            // art pack have changed. update lists of weather entries accordingly
-            getContentResolver().notifyChange(WeatherContract.WeatherEntry.CONTENT_URI, null);
         }
     }
 
@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.database.AbstractWindowedCursor;
+import android.database.Cursor;
+import android.database.CursorWindow;
+import android.database.MatrixCursor;
+import android.os.Binder;
+import android.text.TextUtils;
+import android.util.SparseArray;
+
+import com.example.android.sunshine.app.data.WeatherContract.DiagnosticsEntry;
+
+import java.io.PrintWriter;
+
+/**
+ * Latency histograms and a slow-operation log for {@link WeatherProvider}.
+ *
+ * Recording an operation is a handful of array writes under a lock, with no allocation unless
+ * the operation was slow, so this stays on in release builds.
+ */
+class ProviderStats {
+
+    static final int OP_QUERY = 0;
+    static final int OP_INSERT = 1;
+    static final int OP_UPDATE = 2;
+    static final int OP_DELETE = 3;
+    static final int OP_BULK_INSERT = 4;
+
+    private static final String[] OP_NAMES = {"query", "insert", "update", "delete", "bulkInsert"};
+
+    // Anything slower than this is worth looking at; it is several frames if it ran on the UI
+    // thread.
+    static final long SLOW_OPERATION_MILLIS = 50;
+    private static final long SLOW_OPERATION_NANOS = SLOW_OPERATION_MILLIS * 1000000L;
+    private static final int SLOW_LOG_SIZE = 32;
+
+    // Bucket i counts operations that took less than 2^i microseconds.  The last bucket also
+    // holds anything longer, which is more than 30 seconds.
+    private static final int BUCKET_COUNT = 26;
+
+    private static final String[] HISTOGRAM_COLUMNS = {
+            DiagnosticsEntry._ID,
+            DiagnosticsEntry.COLUMN_OPERATION,
+            DiagnosticsEntry.COLUMN_URI_MATCH,
+            DiagnosticsEntry.COLUMN_COUNT,
+            DiagnosticsEntry.COLUMN_P50_MILLIS,
+            DiagnosticsEntry.COLUMN_P95_MILLIS,
+            DiagnosticsEntry.COLUMN_P99_MILLIS,
+            DiagnosticsEntry.COLUMN_MAX_MILLIS,
+            DiagnosticsEntry.COLUMN_TOTAL_ROWS,
+            DiagnosticsEntry.COLUMN_MAX_WINDOW_ROWS,
+            DiagnosticsEntry.COLUMN_PARTIAL_WINDOWS
+    };
+
+    private static final String[] SLOW_LOG_COLUMNS = {
+            DiagnosticsEntry._ID,
+            DiagnosticsEntry.COLUMN_TIME,
+            DiagnosticsEntry.COLUMN_OPERATION,
+            DiagnosticsEntry.COLUMN_URI_MATCH,
+            DiagnosticsEntry.COLUMN_DURATION_MILLIS,
+            DiagnosticsEntry.COLUMN_ROWS,
+            DiagnosticsEntry.COLUMN_SELECTION,
+            DiagnosticsEntry.COLUMN_PROJECTION,
+            DiagnosticsEntry.COLUMN_CALLING_UID
+    };
+
+    private static class Histogram {
+        final int op;
+        final int match;
+        final long[] buckets = new long[BUCKET_COUNT];
+        long count;
+        long maxNanos;
+        long totalRows;
+        int maxWindowRows;
+        long partialWindows;
+
+        Histogram(int op, int match) {
+            this.op = op;
+            this.match = match;
+        }
+
+        /**
+         * @return the upper bound, in milliseconds, of the bucket holding the given percentile.
+         */
+        double percentileMillis(double percentile) {
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(percentile * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    // Never report more than the slowest operation we actually saw.
+                    return Math.min((1L << i) / 1000.0, maxNanos / 1000000.0);
+                }
+            }
+            return maxNanos / 1000000.0;
+        }
+    }
+
+    private static class SlowOperation {
+        long time;
+        int op;
+        int match;
+        long durationNanos;
+        int rows;
+        String selection;
+        String projection;
+        int callingUid;
+    }
+
+    private final SparseArray<String> mMatchNames;
+    private final SparseArray<Histogram> mHistograms = new SparseArray<Histogram>();
+    private final SlowOperation[] mSlowLog = new SlowOperation[SLOW_LOG_SIZE];
+    private int mSlowLogNext;
+
+    /**
+     * @param matchNames readable names for the provider's UriMatcher codes.
+     */
+    ProviderStats(SparseArray<String> matchNames) {
+        mMatchNames = matchNames;
+    }
+
+    /**
+     * Records a finished query.  The cursor's count should already have been taken so that its
+     * first window is filled and the time spent in SQLite is part of the measurement.
+     */
+    void recordQuery(int match, long startNanos, Cursor cursor, String selection,
+                     String[] projection) {
+        final long durationNanos = System.nanoTime() - startNanos;
+        final int rows = cursor.getCount();
+        int windowRows = rows;
+        if (cursor instanceof AbstractWindowedCursor) {
+            CursorWindow window = ((AbstractWindowedCursor) cursor).getWindow();
+            if (null != window) {
+                windowRows = window.getNumRows();
+            }
+        }
+        record(OP_QUERY, match, durationNanos, rows, windowRows, selection, projection);
+    }
+
+    void recordWrite(int op, int match, long startNanos, int rows, String selection) {
+        record(op, match, System.nanoTime() - startNanos, rows, -1, selection, null);
+    }
+
+    private void record(int op, int match, long durationNanos, int rows, int windowRows,
+                        String selection, String[] projection) {
+        final int key = (op << 16) | (match & 0xffff);
+        final boolean slow = durationNanos >= SLOW_OPERATION_NANOS;
+        // Only look these up for slow operations; they are the one part that costs anything.
+        final int callingUid = slow ? Binder.getCallingUid() : 0;
+        final String projectionString = slow && null != projection
+                ? TextUtils.join(",", projection) : null;
+
+        synchronized (this) {
+            Histogram histogram = mHistograms.get(key);
+            if (null == histogram) {
+                histogram = new Histogram(op, match);
+                mHistograms.put(key, histogram);
+            }
+            histogram.buckets[bucketFor(durationNanos)]++;
+            histogram.count++;
+            histogram.totalRows += rows;
+            if (durationNanos > histogram.maxNanos) histogram.maxNanos = durationNanos;
+            if (windowRows >= 0) {
+                if (windowRows > histogram.maxWindowRows) histogram.maxWindowRows = windowRows;
+                if (windowRows < rows) histogram.partialWindows++;
+            }
+
+            if (slow) {
+                SlowOperation entry = mSlowLog[mSlowLogNext];
+                if (null == entry) {
+                    entry = new SlowOperation();
+                    mSlowLog[mSlowLogNext] = entry;
+                }
+                entry.time = System.currentTimeMillis();
+                entry.op = op;
+                entry.match = match;
+                entry.durationNanos = durationNanos;
+                entry.rows = rows;
+                entry.selection = selection;
+                entry.projection = projectionString;
+                entry.callingUid = callingUid;
+                mSlowLogNext = (mSlowLogNext + 1) % SLOW_LOG_SIZE;
+            }
+        }
+    }
+
+    private static int bucketFor(long durationNanos) {
+        long micros = durationNanos / 1000;
+        // The number of bits needed for micros is the first power of two above it.
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    private String matchName(int match) {
+        String name = mMatchNames.get(match);
+        return null != name ? name : Integer.toString(match);
+    }
+
+    synchronized Cursor getHistogramCursor() {
+        MatrixCursor cursor = new MatrixCursor(HISTOGRAM_COLUMNS, mHistograms.size());
+        for (int i = 0; i < mHistograms.size(); i++) {
+            Histogram histogram = mHistograms.valueAt(i);
+            cursor.addRow(new Object[]{
+                    mHistograms.keyAt(i),
+                    OP_NAMES[histogram.op],
+                    matchName(histogram.match),
+                    histogram.count,
+                    histogram.percentileMillis(0.50),
+                    histogram.percentileMillis(0.95),
+                    histogram.percentileMillis(0.99),
+                    histogram.maxNanos / 1000000.0,
+                    histogram.totalRows,
+                    histogram.maxWindowRows,
+                    histogram.partialWindows
+            });
+        }
+        return cursor;
+    }
+
+    synchronized Cursor getSlowOperationCursor() {
+        MatrixCursor cursor = new MatrixCursor(SLOW_LOG_COLUMNS, SLOW_LOG_SIZE);
+        // Walk backwards from the newest entry
+        for (int i = 0; i < SLOW_LOG_SIZE; i++) {
+            int index = (mSlowLogNext - 1 - i + SLOW_LOG_SIZE) % SLOW_LOG_SIZE;
+            SlowOperation entry = mSlowLog[index];
+            if (null == entry) break;
+            cursor.addRow(new Object[]{
+                    i,
+                    entry.time,
+                    OP_NAMES[entry.op],
+                    matchName(entry.match),
+                    entry.durationNanos / 1000000.0,
+                    entry.rows,
+                    entry.selection,
+                    entry.projection,
+                    entry.callingUid
+            });
+        }
+        return cursor;
+    }
+
+    synchronized void dump(PrintWriter writer) {
+        writer.println("WeatherProvider latency (ms), slow threshold " + SLOW_OPERATION_MILLIS + "ms:");
+        for (int i = 0; i < mHistograms.size(); i++) {
+            Histogram histogram = mHistograms.valueAt(i);
+            writer.printf("  %-10s %-28s n=%d p50=%.3f p95=%.3f p99=%.3f max=%.3f rows=%d window=%d partial=%d%n",
+                    OP_NAMES[histogram.op],
+                    matchName(histogram.match),
+                    histogram.count,
+                    histogram.percentileMillis(0.50),
+                    histogram.percentileMillis(0.95),
+                    histogram.percentileMillis(0.99),
+                    histogram.maxNanos / 1000000.0,
+                    histogram.totalRows,
+                    histogram.maxWindowRows,
+                    histogram.partialWindows);
+        }
+        writer.println("Slow operations, newest first:");
+        for (int i = 0; i < SLOW_LOG_SIZE; i++) {
+            SlowOperation entry = mSlowLog[(mSlowLogNext - 1 - i + SLOW_LOG_SIZE) % SLOW_LOG_SIZE];
+            if (null == entry) break;
+            writer.printf("  %tF %<tT %-10s %-28s %.3fms rows=%d uid=%d selection=%s projection=%s%n",
+                    entry.time,
+                    OP_NAMES[entry.op],
+                    matchName(entry.match),
+                    entry.durationNanos / 1000000.0,
+                    entry.rows,
+                    entry.callingUid,
+                    entry.selection,
+                    entry.projection);
+        }
+    }
+}
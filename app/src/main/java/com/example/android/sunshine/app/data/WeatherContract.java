@@ -17,7 +17,9 @@ package com.example.android.sunshine.app.data;
 
 import android.content.ContentResolver;
 import android.content.ContentUris;
+import android.content.ContentValues;
 import android.net.Uri;
+import android.os.Bundle;
 import android.provider.BaseColumns;
 import android.text.format.Time;
 
@@ -43,6 +45,102 @@ public class WeatherContract {
     // At least, let's hope not.  Don't be that dev, reader.  Don't be that dev.
     public static final String PATH_WEATHER = "weather";
     public static final String PATH_LOCATION = "location";
+    public static final String PATH_SUMMARY = "summary";
+    public static final String PATH_OVERVIEW = "overview";
+    public static final String PATH_DIAGNOSTICS = "diagnostics";
+
+    // Methods understood by WeatherProvider.call().  These batch several operations into one
+    // binder transaction and hand back primitive arrays instead of cursors.
+
+    // Reads one day of weather for several locations.  Takes EXTRA_LOCATIONS and EXTRA_DATE.
+    // Returns arrays parallel to EXTRA_LOCATIONS: EXTRA_FOUND, EXTRA_WEATHER_IDS, EXTRA_MAX_TEMPS,
+    // EXTRA_MIN_TEMPS and EXTRA_SHORT_DESCS.
+    public static final String METHOD_GET_DAY_FOR_LOCATIONS = "getDayForLocations";
+
+    // Stores a location's forecast and drops old weather in one transaction.  Takes the extras
+    // built by buildReplaceForecastExtras().  Returns EXTRA_LOCATION_ID and EXTRA_COUNT.
+    public static final String METHOD_REPLACE_FORECAST = "replaceForecast";
+
+    public static final String EXTRA_LOCATIONS = "locations";
+    public static final String EXTRA_LOCATION_SETTING = "location_setting";
+    public static final String EXTRA_CITY_NAME = "city_name";
+    public static final String EXTRA_COORD_LAT = "coord_lat";
+    public static final String EXTRA_COORD_LONG = "coord_long";
+    public static final String EXTRA_DATE = "date";
+    public static final String EXTRA_DATES = "dates";
+    public static final String EXTRA_FOUND = "found";
+    public static final String EXTRA_WEATHER_IDS = "weather_ids";
+    public static final String EXTRA_SHORT_DESCS = "short_descs";
+    public static final String EXTRA_MIN_TEMPS = "min_temps";
+    public static final String EXTRA_MAX_TEMPS = "max_temps";
+    public static final String EXTRA_HUMIDITIES = "humidities";
+    public static final String EXTRA_PRESSURES = "pressures";
+    public static final String EXTRA_WIND_SPEEDS = "wind_speeds";
+    public static final String EXTRA_DEGREES = "degrees";
+    public static final String EXTRA_DELETE_ON_OR_BEFORE = "delete_on_or_before";
+    public static final String EXTRA_LOCATION_ID = "location_id";
+    public static final String EXTRA_COUNT = "count";
+
+    public static Bundle buildDayForLocationsExtras(String[] locationSettings, long date) {
+        Bundle extras = new Bundle();
+        extras.putStringArray(EXTRA_LOCATIONS, locationSettings);
+        extras.putLong(EXTRA_DATE, date);
+        return extras;
+    }
+
+    /**
+     * Packs a location and its daily weather into the extras for METHOD_REPLACE_FORECAST.  The
+     * weather values are flattened into one primitive array per column, which parcels far
+     * smaller than an array of ContentValues.
+     *
+     * @param weatherValues weather rows keyed by the WeatherEntry columns; the location key is
+     *                      ignored since the provider resolves it from the location setting.
+     * @param deleteOnOrBefore weather dated on or before this is deleted, or 0 to keep it all.
+     */
+    public static Bundle buildReplaceForecastExtras(String locationSetting, String cityName,
+                                                    double lat, double lon,
+                                                    ContentValues[] weatherValues,
+                                                    long deleteOnOrBefore) {
+        final int count = weatherValues.length;
+        long[] dates = new long[count];
+        int[] weatherIds = new int[count];
+        String[] shortDescs = new String[count];
+        double[] minTemps = new double[count];
+        double[] maxTemps = new double[count];
+        double[] humidities = new double[count];
+        double[] pressures = new double[count];
+        double[] windSpeeds = new double[count];
+        double[] degrees = new double[count];
+        for (int i = 0; i < count; i++) {
+            ContentValues values = weatherValues[i];
+            dates[i] = values.getAsLong(WeatherEntry.COLUMN_DATE);
+            weatherIds[i] = values.getAsInteger(WeatherEntry.COLUMN_WEATHER_ID);
+            shortDescs[i] = values.getAsString(WeatherEntry.COLUMN_SHORT_DESC);
+            minTemps[i] = values.getAsDouble(WeatherEntry.COLUMN_MIN_TEMP);
+            maxTemps[i] = values.getAsDouble(WeatherEntry.COLUMN_MAX_TEMP);
+            humidities[i] = values.getAsDouble(WeatherEntry.COLUMN_HUMIDITY);
+            pressures[i] = values.getAsDouble(WeatherEntry.COLUMN_PRESSURE);
+            windSpeeds[i] = values.getAsDouble(WeatherEntry.COLUMN_WIND_SPEED);
+            degrees[i] = values.getAsDouble(WeatherEntry.COLUMN_DEGREES);
+        }
+
+        Bundle extras = new Bundle();
+        extras.putString(EXTRA_LOCATION_SETTING, locationSetting);
+        extras.putString(EXTRA_CITY_NAME, cityName);
+        extras.putDouble(EXTRA_COORD_LAT, lat);
+        extras.putDouble(EXTRA_COORD_LONG, lon);
+        extras.putLongArray(EXTRA_DATES, dates);
+        extras.putIntArray(EXTRA_WEATHER_IDS, weatherIds);
+        extras.putStringArray(EXTRA_SHORT_DESCS, shortDescs);
+        extras.putDoubleArray(EXTRA_MIN_TEMPS, minTemps);
+        extras.putDoubleArray(EXTRA_MAX_TEMPS, maxTemps);
+        extras.putDoubleArray(EXTRA_HUMIDITIES, humidities);
+        extras.putDoubleArray(EXTRA_PRESSURES, pressures);
+        extras.putDoubleArray(EXTRA_WIND_SPEEDS, windSpeeds);
+        extras.putDoubleArray(EXTRA_DEGREES, degrees);
+        extras.putLong(EXTRA_DELETE_ON_OR_BEFORE, deleteOnOrBefore);
+        return extras;
+    }
 
     // To make it easy to query for the exact date, we normalize all dates that go into
     // the database to the start of the the Julian day at UTC.
@@ -86,6 +184,102 @@ public class WeatherContract {
         }
     }
 
+    /*
+        Inner class that defines the overview of every stored location for one day.  It has no
+        table of its own; rows are the location table joined with that day's weather.
+     */
+    public static final class OverviewEntry {
+
+        public static final Uri CONTENT_URI =
+                BASE_CONTENT_URI.buildUpon().appendPath(PATH_OVERVIEW).build();
+
+        public static final String CONTENT_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_OVERVIEW;
+
+        // Query parameters used to page through the overview.
+        public static final String PARAM_LIMIT = "limit";
+        public static final String PARAM_OFFSET = "offset";
+
+        public static Uri buildOverviewUri(long date) {
+            return CONTENT_URI.buildUpon()
+                    .appendPath(Long.toString(normalizeDate(date))).build();
+        }
+
+        public static Uri buildOverviewUri(long date, int offset, int limit) {
+            return buildOverviewUri(date).buildUpon()
+                    .appendQueryParameter(PARAM_OFFSET, Integer.toString(offset))
+                    .appendQueryParameter(PARAM_LIMIT, Integer.toString(limit)).build();
+        }
+
+        public static long getDateFromUri(Uri uri) {
+            return Long.parseLong(uri.getPathSegments().get(1));
+        }
+
+        /**
+         * @return the "offset,limit" clause for the page requested by the uri, or null if the
+         * uri asks for every row.
+         */
+        public static String getLimitFromUri(Uri uri) {
+            String limit = uri.getQueryParameter(PARAM_LIMIT);
+            if (null == limit || limit.length() == 0) {
+                return null;
+            }
+            String offset = uri.getQueryParameter(PARAM_OFFSET);
+            if (null == offset || offset.length() == 0) {
+                return Integer.toString(Integer.parseInt(limit));
+            }
+            return Integer.parseInt(offset) + "," + Integer.parseInt(limit);
+        }
+    }
+
+    /*
+        Inner class that defines the provider's own timing statistics.  Nothing here is stored in
+        the database; the rows are built from counters kept in memory since the process started.
+     */
+    public static final class DiagnosticsEntry implements BaseColumns {
+
+        public static final String PATH_SLOW = "slow";
+
+        // One row per operation and uri type, with its latency histogram summarized.
+        public static final Uri CONTENT_URI =
+                BASE_CONTENT_URI.buildUpon().appendPath(PATH_DIAGNOSTICS).build();
+
+        // The most recent operations that went over the slow threshold, newest first.
+        public static final Uri SLOW_CONTENT_URI =
+                CONTENT_URI.buildUpon().appendPath(PATH_SLOW).build();
+
+        public static final String CONTENT_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_DIAGNOSTICS;
+
+        // query, insert, update, delete or bulkInsert
+        public static final String COLUMN_OPERATION = "operation";
+        // Name of the uri type the operation matched, e.g. "weather/*"
+        public static final String COLUMN_URI_MATCH = "uri_match";
+        public static final String COLUMN_COUNT = "count";
+        // Latency percentiles, in milliseconds.  These are bucket upper bounds, so they are
+        // accurate to within a factor of two.
+        public static final String COLUMN_P50_MILLIS = "p50_millis";
+        public static final String COLUMN_P95_MILLIS = "p95_millis";
+        public static final String COLUMN_P99_MILLIS = "p99_millis";
+        public static final String COLUMN_MAX_MILLIS = "max_millis";
+        // Rows returned by queries or touched by writes, summed over every operation
+        public static final String COLUMN_TOTAL_ROWS = "total_rows";
+        // Largest number of rows a query's first cursor window held
+        public static final String COLUMN_MAX_WINDOW_ROWS = "max_window_rows";
+        // Queries whose results did not fit in their first cursor window
+        public static final String COLUMN_PARTIAL_WINDOWS = "partial_windows";
+
+        // Columns of the slow operation log, alongside COLUMN_OPERATION and COLUMN_URI_MATCH.
+        // Wall clock time the operation finished, in milliseconds since the epoch
+        public static final String COLUMN_TIME = "time";
+        public static final String COLUMN_DURATION_MILLIS = "duration_millis";
+        public static final String COLUMN_ROWS = "rows";
+        // Selection and projection as passed in.  Selection arguments are never recorded.
+        public static final String COLUMN_SELECTION = "selection";
+        public static final String COLUMN_PROJECTION = "projection";
+        public static final String COLUMN_CALLING_UID = "calling_uid";
+    }
+
     /* Inner class that defines the table contents of the weather table */
     public static final class WeatherEntry implements BaseColumns {
 
@@ -99,6 +293,9 @@ public class WeatherContract {
 
         public static final String TABLE_NAME = "weather";
 
+        // Index over (location, date) plus the columns read by the summary aggregates.
+        public static final String INDEX_LOCATION_DATE = "weather_location_date_idx";
+
         // Column with the foreign key into the location table.
         public static final String COLUMN_LOC_KEY = "location_id";
         // Date, stored as long in milliseconds since the epoch
@@ -126,6 +323,21 @@ public class WeatherContract {
         // Degrees are meteorological degrees (e.g, 0 is north, 180 is south).  Stored as floats.
         public static final String COLUMN_DEGREES = "degrees";
 
+        // Columns of the single row returned for a summary URI.  These are aggregates computed
+        // by the database over the requested range of days, not stored values.
+        public static final String COLUMN_SUMMARY_DAYS = "summary_days";
+        public static final String COLUMN_SUMMARY_MIN_TEMP = "summary_min";
+        public static final String COLUMN_SUMMARY_MAX_TEMP = "summary_max";
+        public static final String COLUMN_SUMMARY_WEATHER_ID = "summary_weather_id";
+        public static final String COLUMN_SUMMARY_HUMIDITY = "summary_humidity";
+
+        // Query parameters understood by the summary URI.
+        public static final String PARAM_FROM = "from";
+        public static final String PARAM_DAYS = "days";
+
+        // Number of days summarized when the summary URI doesn't say otherwise.
+        public static final int DEFAULT_SUMMARY_DAYS = 7;
+
         public static Uri buildWeatherUri(long id) {
             return ContentUris.withAppendedId(CONTENT_URI, id);
         }
@@ -149,6 +361,17 @@ public class WeatherContract {
                     .appendPath(Long.toString(normalizeDate(date))).build();
         }
 
+        /**
+         * Builds a URI for the aggregated weather of a location over a range of days, e.g.
+         * content://com.example.android.sunshine.app/weather/94043/summary?from=...&days=7
+         */
+        public static Uri buildWeatherSummaryUri(String locationSetting, long startDate, int days) {
+            return CONTENT_URI.buildUpon().appendPath(locationSetting)
+                    .appendPath(PATH_SUMMARY)
+                    .appendQueryParameter(PARAM_FROM, Long.toString(normalizeDate(startDate)))
+                    .appendQueryParameter(PARAM_DAYS, Integer.toString(days)).build();
+        }
+
         public static String getLocationSettingFromUri(Uri uri) {
             return uri.getPathSegments().get(1);
         }
@@ -164,5 +387,21 @@ public class WeatherContract {
             else
                 return 0;
         }
+
+        public static long getSummaryStartDateFromUri(Uri uri) {
+            String dateString = uri.getQueryParameter(PARAM_FROM);
+            if (null != dateString && dateString.length() > 0)
+                return Long.parseLong(dateString);
+            else
+                return 0;
+        }
+
+        public static int getSummaryDaysFromUri(Uri uri) {
+            String daysString = uri.getQueryParameter(PARAM_DAYS);
+            if (null != daysString && daysString.length() > 0)
+                return Integer.parseInt(daysString);
+            else
+                return DEFAULT_SUMMARY_DAYS;
+        }
     }
 }
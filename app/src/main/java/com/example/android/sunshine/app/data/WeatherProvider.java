@@ -22,7 +22,14 @@ import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
+import android.os.Bundle;
+import android.util.SparseArray;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.HashMap;
 
 public class WeatherProvider extends ContentProvider {
 
@@ -33,7 +40,13 @@ public class WeatherProvider extends ContentProvider {
     static final int WEATHER = 100;
     static final int WEATHER_WITH_LOCATION = 101;
     static final int WEATHER_WITH_LOCATION_AND_DATE = 102;
+    static final int WEATHER_SUMMARY = 103;
     static final int LOCATION = 300;
+    static final int OVERVIEW_WITH_DATE = 400;
+    static final int DIAGNOSTICS = 500;
+    static final int DIAGNOSTICS_SLOW = 501;
+
+    private final ProviderStats mStats = new ProviderStats(buildMatchNames());
 
     private static final SQLiteQueryBuilder sWeatherByLocationSettingQueryBuilder;
 
@@ -51,6 +64,18 @@ public class WeatherProvider extends ContentProvider {
                         "." + WeatherContract.LocationEntry._ID);
     }
 
+    //weather.date = ?
+    // Served by the UNIQUE (date, location_id) index, so this is one index range per day no
+    // matter how many locations are stored.
+    private static final String sDaySelection =
+            WeatherContract.WeatherEntry.TABLE_NAME +
+                    "." + WeatherContract.WeatherEntry.COLUMN_DATE + " = ? ";
+
+    private static final String sOverviewDefaultSortOrder =
+            WeatherContract.LocationEntry.COLUMN_CITY_NAME + " ASC, " +
+                    WeatherContract.LocationEntry.TABLE_NAME + "." +
+                    WeatherContract.LocationEntry._ID + " ASC";
+
     //location.location_setting = ?
     private static final String sLocationSettingSelection =
             WeatherContract.LocationEntry.TABLE_NAME+
@@ -68,6 +93,77 @@ public class WeatherProvider extends ContentProvider {
                     "." + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ? AND " +
                     WeatherContract.WeatherEntry.COLUMN_DATE + " = ? ";
 
+    //location_id = (SELECT _id FROM location WHERE location_setting = ?) AND date >= ? AND date < ?
+    // The location lookup goes through the UNIQUE index on location_setting, and the range scan
+    // then runs entirely inside the (location_id, date, ...) covering index.
+    private static final String sSummaryRangeSelection =
+            WeatherContract.WeatherEntry.COLUMN_LOC_KEY + " = (SELECT " +
+                    WeatherContract.LocationEntry._ID + " FROM " +
+                    WeatherContract.LocationEntry.TABLE_NAME + " WHERE " +
+                    WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?) AND " +
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " >= ? AND " +
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " < ?";
+
+    // Aggregates the range down to one row.  The dominant condition is the most frequent
+    // weather_id in the range, ties going to the lowest (most severe) code.
+    private static final String sSummaryQuery =
+            "SELECT COUNT(*) AS " + WeatherContract.WeatherEntry.COLUMN_SUMMARY_DAYS + ", " +
+                    "MIN(" + WeatherContract.WeatherEntry.COLUMN_MIN_TEMP + ") AS " +
+                    WeatherContract.WeatherEntry.COLUMN_SUMMARY_MIN_TEMP + ", " +
+                    "MAX(" + WeatherContract.WeatherEntry.COLUMN_MAX_TEMP + ") AS " +
+                    WeatherContract.WeatherEntry.COLUMN_SUMMARY_MAX_TEMP + ", " +
+                    "AVG(" + WeatherContract.WeatherEntry.COLUMN_HUMIDITY + ") AS " +
+                    WeatherContract.WeatherEntry.COLUMN_SUMMARY_HUMIDITY + ", " +
+                    "(SELECT " + WeatherContract.WeatherEntry.COLUMN_WEATHER_ID +
+                    " FROM " + WeatherContract.WeatherEntry.TABLE_NAME +
+                    " WHERE " + sSummaryRangeSelection +
+                    " GROUP BY " + WeatherContract.WeatherEntry.COLUMN_WEATHER_ID +
+                    " ORDER BY COUNT(*) DESC, " + WeatherContract.WeatherEntry.COLUMN_WEATHER_ID +
+                    " ASC LIMIT 1) AS " + WeatherContract.WeatherEntry.COLUMN_SUMMARY_WEATHER_ID +
+                    " FROM " + WeatherContract.WeatherEntry.TABLE_NAME +
+                    " WHERE " + sSummaryRangeSelection;
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+
+    // SQLite binds at most 999 variables in a statement; one of them is the date
+    static final int MAX_LOCATIONS_PER_QUERY = 998;
+
+    private static final String[] sDayForLocationsProjection = new String[]{
+            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC
+    };
+
+    // these indices must match the projection
+    private static final int INDEX_DAY_LOCATION_SETTING = 0;
+    private static final int INDEX_DAY_WEATHER_ID = 1;
+    private static final int INDEX_DAY_MAX_TEMP = 2;
+    private static final int INDEX_DAY_MIN_TEMP = 3;
+    private static final int INDEX_DAY_SHORT_DESC = 4;
+
+    private static final String sLocationIdForSettingQuery =
+            "SELECT " + WeatherContract.LocationEntry._ID +
+                    " FROM " + WeatherContract.LocationEntry.TABLE_NAME +
+                    " WHERE " + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?";
+
+    // The weather table's UNIQUE constraint resolves conflicts with REPLACE, so a plain insert
+    // replaces any row already stored for the same day and location.
+    private static final String sInsertWeatherStatement =
+            "INSERT INTO " + WeatherContract.WeatherEntry.TABLE_NAME + " (" +
+                    WeatherContract.WeatherEntry.COLUMN_LOC_KEY + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_DATE + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_WEATHER_ID + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_SHORT_DESC + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_MIN_TEMP + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_MAX_TEMP + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_HUMIDITY + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_PRESSURE + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_WIND_SPEED + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_DEGREES +
+                    ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     private Cursor getWeatherByLocationSetting(Uri uri, String[] projection, String sortOrder) {
         String locationSetting = WeatherContract.WeatherEntry.getLocationSettingFromUri(uri);
         long startDate = WeatherContract.WeatherEntry.getStartDateFromUri(uri);
@@ -108,6 +204,48 @@ public class WeatherProvider extends ContentProvider {
         );
     }
 
+    private Cursor getWeatherSummary(Uri uri, String[] projection, String sortOrder) {
+        String locationSetting = WeatherContract.WeatherEntry.getLocationSettingFromUri(uri);
+        long startDate = WeatherContract.WeatherEntry.getSummaryStartDateFromUri(uri);
+        int days = WeatherContract.WeatherEntry.getSummaryDaysFromUri(uri);
+        if (days <= 0) {
+            throw new IllegalArgumentException("Summary must span at least one day: " + uri);
+        }
+
+        String start = Long.toString(startDate);
+        String end = Long.toString(startDate + days * DAY_IN_MILLIS);
+        String[] selectionArgs = new String[]{
+                // the dominant condition sub-query
+                locationSetting, start, end,
+                // the outer aggregate
+                locationSetting, start, end
+        };
+
+        String sql = sSummaryQuery;
+        if (projection != null) {
+            sql = SQLiteQueryBuilder.buildQueryString(false, "(" + sSummaryQuery + ")",
+                    projection, null, null, null, sortOrder, null);
+        }
+        return mOpenHelper.getReadableDatabase().rawQuery(sql, selectionArgs);
+    }
+
+    private Cursor getOverviewForDate(Uri uri, String[] projection, String sortOrder) {
+        long date = WeatherContract.OverviewEntry.getDateFromUri(uri);
+        if (null == sortOrder) {
+            sortOrder = sOverviewDefaultSortOrder;
+        }
+
+        return sWeatherByLocationSettingQueryBuilder.query(mOpenHelper.getReadableDatabase(),
+                projection,
+                sDaySelection,
+                new String[]{Long.toString(date)},
+                null,
+                null,
+                sortOrder,
+                WeatherContract.OverviewEntry.getLimitFromUri(uri)
+        );
+    }
+
     /*
         Students: Here is where you need to create the UriMatcher. This UriMatcher will
         match each URI to the WEATHER, WEATHER_WITH_LOCATION, WEATHER_WITH_LOCATION_AND_DATE,
@@ -128,11 +266,33 @@ public class WeatherProvider extends ContentProvider {
         matcher.addURI(authority, WeatherContract.PATH_WEATHER, WEATHER);
         matcher.addURI(authority, WeatherContract.PATH_WEATHER + "/*", WEATHER_WITH_LOCATION);
         matcher.addURI(authority, WeatherContract.PATH_WEATHER + "/*/#", WEATHER_WITH_LOCATION_AND_DATE);
+        matcher.addURI(authority, WeatherContract.PATH_WEATHER + "/*/" +
+                WeatherContract.PATH_SUMMARY, WEATHER_SUMMARY);
 
         matcher.addURI(authority, WeatherContract.PATH_LOCATION, LOCATION);
+
+        matcher.addURI(authority, WeatherContract.PATH_OVERVIEW + "/#", OVERVIEW_WITH_DATE);
+
+        matcher.addURI(authority, WeatherContract.PATH_DIAGNOSTICS, DIAGNOSTICS);
+        matcher.addURI(authority, WeatherContract.PATH_DIAGNOSTICS + "/" +
+                WeatherContract.DiagnosticsEntry.PATH_SLOW, DIAGNOSTICS_SLOW);
         return matcher;
     }
 
+    /*
+        Names for the match codes above, used to label the diagnostics.
+     */
+    static SparseArray<String> buildMatchNames() {
+        SparseArray<String> names = new SparseArray<String>();
+        names.put(WEATHER, WeatherContract.PATH_WEATHER);
+        names.put(WEATHER_WITH_LOCATION, WeatherContract.PATH_WEATHER + "/*");
+        names.put(WEATHER_WITH_LOCATION_AND_DATE, WeatherContract.PATH_WEATHER + "/*/#");
+        names.put(WEATHER_SUMMARY, WeatherContract.PATH_WEATHER + "/*/" + WeatherContract.PATH_SUMMARY);
+        names.put(LOCATION, WeatherContract.PATH_LOCATION);
+        names.put(OVERVIEW_WITH_DATE, WeatherContract.PATH_OVERVIEW + "/#");
+        return names;
+    }
+
     /*
         Students: We've coded this for you.  We just create a new WeatherDbHelper for later use
         here.
@@ -158,12 +318,19 @@ public class WeatherProvider extends ContentProvider {
             // Student: Uncomment and fill out these two cases
             case WEATHER_WITH_LOCATION_AND_DATE:
                 return WeatherContract.WeatherEntry.CONTENT_ITEM_TYPE;
+            case WEATHER_SUMMARY:
+                return WeatherContract.WeatherEntry.CONTENT_ITEM_TYPE;
             case WEATHER_WITH_LOCATION:
                 return WeatherContract.WeatherEntry.CONTENT_TYPE;
             case WEATHER:
                 return WeatherContract.WeatherEntry.CONTENT_TYPE;
             case LOCATION:
                 return WeatherContract.LocationEntry.CONTENT_TYPE;
+            case OVERVIEW_WITH_DATE:
+                return WeatherContract.OverviewEntry.CONTENT_TYPE;
+            case DIAGNOSTICS:
+            case DIAGNOSTICS_SLOW:
+                return WeatherContract.DiagnosticsEntry.CONTENT_TYPE;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
@@ -172,16 +339,24 @@ public class WeatherProvider extends ContentProvider {
     @Override
     public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
                         String sortOrder) {
+        final long start = System.nanoTime();
+        final int match = sUriMatcher.match(uri);
+        Uri notificationUri = uri;
         // Here's the switch statement that, given a URI, will determine what kind of request it is,
         // and query the database accordingly.
         Cursor retCursor;
-        switch (sUriMatcher.match(uri)) {
+        switch (match) {
             // "weather/*/*"
             case WEATHER_WITH_LOCATION_AND_DATE:
             {
                 retCursor = getWeatherByLocationSettingAndDate(uri, projection, sortOrder);
                 break;
             }
+            // "weather/*/summary"
+            case WEATHER_SUMMARY: {
+                retCursor = getWeatherSummary(uri, projection, sortOrder);
+                break;
+            }
             // "weather/*"
             case WEATHER_WITH_LOCATION: {
                 retCursor = getWeatherByLocationSetting(uri, projection, sortOrder);
@@ -213,11 +388,29 @@ public class WeatherProvider extends ContentProvider {
                 );
                 break;
             }
+            // "overview/#"
+            case OVERVIEW_WITH_DATE: {
+                retCursor = getOverviewForDate(uri, projection, sortOrder);
+                // The overview changes with either table, and the weather table is the one
+                // that sync touches, so listen there rather than on the overview uri.
+                notificationUri = WeatherContract.WeatherEntry.CONTENT_URI;
+                break;
+            }
+            // "diagnostics" and "diagnostics/slow" report on the provider itself, so they are
+            // neither timed nor watched for changes.
+            case DIAGNOSTICS:
+                return mStats.getHistogramCursor();
+            case DIAGNOSTICS_SLOW:
+                return mStats.getSlowOperationCursor();
 
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
-        retCursor.setNotificationUri(getContext().getContentResolver(), uri);
+        retCursor.setNotificationUri(getContext().getContentResolver(), notificationUri);
+        // Taking the count runs the query and fills the first window, which is the work we want
+        // to time.  Handing the cursor across processes would do this anyway.
+        retCursor.getCount();
+        mStats.recordQuery(match, start, retCursor, selection, projection);
         return retCursor;
     }
 
@@ -226,6 +419,7 @@ public class WeatherProvider extends ContentProvider {
      */
     @Override
     public Uri insert(Uri uri, ContentValues values) {
+        final long start = System.nanoTime();
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         final int match = sUriMatcher.match(uri);
         Uri returnUri;
@@ -252,11 +446,13 @@ public class WeatherProvider extends ContentProvider {
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
         getContext().getContentResolver().notifyChange(uri, null);
+        mStats.recordWrite(ProviderStats.OP_INSERT, match, start, 1, null);
         return returnUri;
     }
 
     @Override
     public int delete(Uri uri, String selection, String[] selectionArgs) {
+        final long start = System.nanoTime();
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         final int match = sUriMatcher.match(uri);
         int rowsDeleted;
@@ -278,6 +474,7 @@ public class WeatherProvider extends ContentProvider {
         if (rowsDeleted != 0) {
             getContext().getContentResolver().notifyChange(uri, null);
         }
+        mStats.recordWrite(ProviderStats.OP_DELETE, match, start, rowsDeleted, selection);
         return rowsDeleted;
     }
 
@@ -292,6 +489,7 @@ public class WeatherProvider extends ContentProvider {
     @Override
     public int update(
             Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        final long start = System.nanoTime();
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         final int match = sUriMatcher.match(uri);
         int rowsUpdated;
@@ -312,11 +510,13 @@ public class WeatherProvider extends ContentProvider {
         if (rowsUpdated != 0) {
             getContext().getContentResolver().notifyChange(uri, null);
         }
+        mStats.recordWrite(ProviderStats.OP_UPDATE, match, start, rowsUpdated, selection);
         return rowsUpdated;
     }
 
     @Override
     public int bulkInsert(Uri uri, ContentValues[] values) {
+        final long start = System.nanoTime();
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         final int match = sUriMatcher.match(uri);
         switch (match) {
@@ -336,12 +536,200 @@ public class WeatherProvider extends ContentProvider {
                     db.endTransaction();
                 }
                 getContext().getContentResolver().notifyChange(uri, null);
+                mStats.recordWrite(ProviderStats.OP_BULK_INSERT, match, start, returnCount, null);
                 return returnCount;
             default:
                 return super.bulkInsert(uri, values);
         }
     }
 
+    @Override
+    @TargetApi(11)
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (WeatherContract.METHOD_GET_DAY_FOR_LOCATIONS.equals(method)) {
+            return getDayForLocations(extras);
+        } else if (WeatherContract.METHOD_REPLACE_FORECAST.equals(method)) {
+            return replaceForecast(extras);
+        }
+        return super.call(method, arg, extras);
+    }
+
+    /*
+        Reads one day of weather for a batch of locations, with one query for each
+        MAX_LOCATIONS_PER_QUERY of them, and returns it as primitive arrays parallel to the
+        requested locations.
+     */
+    private Bundle getDayForLocations(Bundle extras) {
+        String[] locationSettings = extras.getStringArray(WeatherContract.EXTRA_LOCATIONS);
+        if (null == locationSettings) {
+            throw new IllegalArgumentException("Missing " + WeatherContract.EXTRA_LOCATIONS);
+        }
+        long date = WeatherContract.normalizeDate(extras.getLong(WeatherContract.EXTRA_DATE));
+
+        final int count = locationSettings.length;
+        boolean[] found = new boolean[count];
+        int[] weatherIds = new int[count];
+        double[] maxTemps = new double[count];
+        double[] minTemps = new double[count];
+        String[] shortDescs = new String[count];
+
+        HashMap<String, Integer> positions = new HashMap<String, Integer>(count * 2);
+        for (int i = 0; i < count; i++) {
+            positions.put(locationSettings[i], i);
+        }
+        SQLiteDatabase db = mOpenHelper.getReadableDatabase();
+        for (int chunkStart = 0; chunkStart < count; chunkStart += MAX_LOCATIONS_PER_QUERY) {
+            int chunkEnd = Math.min(count, chunkStart + MAX_LOCATIONS_PER_QUERY);
+            StringBuilder selection = new StringBuilder(sDaySelection)
+                    .append(" AND ")
+                    .append(WeatherContract.LocationEntry.TABLE_NAME).append('.')
+                    .append(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING)
+                    .append(" IN (");
+            String[] selectionArgs = new String[chunkEnd - chunkStart + 1];
+            selectionArgs[0] = Long.toString(date);
+            for (int i = chunkStart; i < chunkEnd; i++) {
+                selection.append(i == chunkStart ? "?" : ", ?");
+                selectionArgs[i - chunkStart + 1] = locationSettings[i];
+            }
+            selection.append(')');
+
+            Cursor cursor = sWeatherByLocationSettingQueryBuilder.query(
+                    db,
+                    sDayForLocationsProjection,
+                    selection.toString(),
+                    selectionArgs,
+                    null,
+                    null,
+                    null);
+            try {
+                while (cursor.moveToNext()) {
+                    Integer position = positions.get(cursor.getString(INDEX_DAY_LOCATION_SETTING));
+                    if (null == position) continue;
+                    found[position] = true;
+                    weatherIds[position] = cursor.getInt(INDEX_DAY_WEATHER_ID);
+                    maxTemps[position] = cursor.getDouble(INDEX_DAY_MAX_TEMP);
+                    minTemps[position] = cursor.getDouble(INDEX_DAY_MIN_TEMP);
+                    shortDescs[position] = cursor.getString(INDEX_DAY_SHORT_DESC);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        Bundle result = new Bundle();
+        result.putBooleanArray(WeatherContract.EXTRA_FOUND, found);
+        result.putIntArray(WeatherContract.EXTRA_WEATHER_IDS, weatherIds);
+        result.putDoubleArray(WeatherContract.EXTRA_MAX_TEMPS, maxTemps);
+        result.putDoubleArray(WeatherContract.EXTRA_MIN_TEMPS, minTemps);
+        result.putStringArray(WeatherContract.EXTRA_SHORT_DESCS, shortDescs);
+        return result;
+    }
+
+    /*
+        Does what sync used to do as three separate provider calls -- find or add the location,
+        bulk insert its forecast, delete old weather -- in one call and one transaction.
+     */
+    private Bundle replaceForecast(Bundle extras) {
+        final String locationSetting = extras.getString(WeatherContract.EXTRA_LOCATION_SETTING);
+        final long[] dates = extras.getLongArray(WeatherContract.EXTRA_DATES);
+        if (null == locationSetting || null == dates) {
+            throw new IllegalArgumentException("Missing location setting or forecast dates");
+        }
+        final int[] weatherIds = extras.getIntArray(WeatherContract.EXTRA_WEATHER_IDS);
+        final String[] shortDescs = extras.getStringArray(WeatherContract.EXTRA_SHORT_DESCS);
+        final double[] minTemps = extras.getDoubleArray(WeatherContract.EXTRA_MIN_TEMPS);
+        final double[] maxTemps = extras.getDoubleArray(WeatherContract.EXTRA_MAX_TEMPS);
+        final double[] humidities = extras.getDoubleArray(WeatherContract.EXTRA_HUMIDITIES);
+        final double[] pressures = extras.getDoubleArray(WeatherContract.EXTRA_PRESSURES);
+        final double[] windSpeeds = extras.getDoubleArray(WeatherContract.EXTRA_WIND_SPEEDS);
+        final double[] degrees = extras.getDoubleArray(WeatherContract.EXTRA_DEGREES);
+        final long deleteOnOrBefore = extras.getLong(WeatherContract.EXTRA_DELETE_ON_OR_BEFORE);
+
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        long locationId;
+        boolean locationAdded = false;
+        int returnCount = 0;
+        int rowsDeleted = 0;
+        db.beginTransaction();
+        try {
+            Cursor locationCursor = db.rawQuery(sLocationIdForSettingQuery,
+                    new String[]{locationSetting});
+            try {
+                locationId = locationCursor.moveToFirst() ? locationCursor.getLong(0) : -1;
+            } finally {
+                locationCursor.close();
+            }
+            if (locationId == -1) {
+                ContentValues locationValues = new ContentValues();
+                locationValues.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+                locationValues.put(WeatherContract.LocationEntry.COLUMN_CITY_NAME,
+                        extras.getString(WeatherContract.EXTRA_CITY_NAME));
+                locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT,
+                        extras.getDouble(WeatherContract.EXTRA_COORD_LAT));
+                locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG,
+                        extras.getDouble(WeatherContract.EXTRA_COORD_LONG));
+                locationId = db.insert(WeatherContract.LocationEntry.TABLE_NAME, null, locationValues);
+                if (locationId == -1) {
+                    throw new android.database.SQLException("Failed to insert location " + locationSetting);
+                }
+                locationAdded = true;
+            }
+
+            SQLiteStatement insert = db.compileStatement(sInsertWeatherStatement);
+            try {
+                for (int i = 0; i < dates.length; i++) {
+                    insert.bindLong(1, locationId);
+                    insert.bindLong(2, WeatherContract.normalizeDate(dates[i]));
+                    insert.bindLong(3, weatherIds[i]);
+                    insert.bindString(4, shortDescs[i]);
+                    insert.bindDouble(5, minTemps[i]);
+                    insert.bindDouble(6, maxTemps[i]);
+                    insert.bindDouble(7, humidities[i]);
+                    insert.bindDouble(8, pressures[i]);
+                    insert.bindDouble(9, windSpeeds[i]);
+                    insert.bindDouble(10, degrees[i]);
+                    if (insert.executeInsert() != -1) {
+                        returnCount++;
+                    }
+                }
+            } finally {
+                insert.close();
+            }
+
+            if (deleteOnOrBefore > 0) {
+                rowsDeleted = db.delete(WeatherContract.WeatherEntry.TABLE_NAME,
+                        WeatherContract.WeatherEntry.COLUMN_DATE + " <= ?",
+                        new String[]{Long.toString(deleteOnOrBefore)});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        if (locationAdded) {
+            getContext().getContentResolver().notifyChange(
+                    WeatherContract.LocationEntry.CONTENT_URI, null);
+        }
+        if (returnCount > 0 || rowsDeleted > 0) {
+            getContext().getContentResolver().notifyChange(
+                    WeatherContract.WeatherEntry.CONTENT_URI, null);
+        }
+
+        Bundle result = new Bundle();
+        result.putLong(WeatherContract.EXTRA_LOCATION_ID, locationId);
+        result.putInt(WeatherContract.EXTRA_COUNT, returnCount);
+        return result;
+    }
+
+    /*
+        Prints the latency histograms and slow operation log.  Run with
+        adb shell dumpsys activity provider com.example.android.sunshine.app/.data.WeatherProvider
+     */
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        mStats.dump(writer);
+    }
+
     // You do not need to call this method. This is a method specifically to assist the testing
     // framework in running smoothly. You can read more at:
     // http://developer.android.com/reference/android/content/ContentProvider.html#shutdown()
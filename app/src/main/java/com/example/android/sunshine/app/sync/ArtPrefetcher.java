@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.res.Resources;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.request.FutureTarget;
+import com.example.android.sunshine.app.AppSettings;
+import com.example.android.sunshine.app.ConditionTable;
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fetches the art pack's pictures for the days ahead into Glide's caches, at the sizes each
+ * screen asks for them, so that a list, the detail view, a widget or a notification drawn after a
+ * sync finds them there instead of going to the network.
+ *
+ * Glide caches the picture as it was resized for a request, keyed on the size and the
+ * transformation, so the screens ask for art through the sizes here, always with fitCenter.
+ * The pictures themselves are kept too, so each size is cut from the one download.
+ */
+public class ArtPrefetcher {
+    private static final String LOG_TAG = ArtPrefetcher.class.getSimpleName();
+
+    // Long enough for a change of settings to be seen by everything listening for it
+    private static final long COALESCE_MILLIS = 500;
+
+    // Don't hold up the sync, or the next prefetch, for pictures that won't come.  This bounds
+    // the whole pass, however many pictures there are.
+    private static final long PREFETCH_TIMEOUT_MILLIS = 30 * 1000;
+
+    private static final String[] FORECAST_COLUMNS = {
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID
+    };
+
+    // these indices must match the projection
+    private static final int COL_WEATHER_ID = 0;
+
+    private static ArtPrefetcher sInstance;
+
+    private final Context mContext;
+    private final ScheduledExecutorService mExecutor =
+            Executors.newSingleThreadScheduledExecutor();
+
+    // Guarded by this
+    private boolean mPrefetchPending;
+
+    public static synchronized ArtPrefetcher getInstance(Context context) {
+        if (null == sInstance) {
+            sInstance = new ArtPrefetcher(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private ArtPrefetcher(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * @return the width and height art is fetched at for a forecast row's icon, or for the
+     * today row and the detail view if today is true.
+     */
+    public static int getListArtSize(Context context, boolean today) {
+        return context.getResources().getDimensionPixelSize(
+                today ? R.dimen.today_icon : R.dimen.list_icon);
+    }
+
+    @SuppressLint("InlinedApi")
+    public static int getNotificationArtWidth(Context context) {
+        // On Honeycomb and higher devices, we can retrieve the size of the large icon
+        // Prior to that, we use a fixed size
+        Resources resources = context.getResources();
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width)
+                : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
+    }
+
+    @SuppressLint("InlinedApi")
+    public static int getNotificationArtHeight(Context context) {
+        Resources resources = context.getResources();
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height)
+                : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
+    }
+
+    /**
+     * Asks for the art to be fetched shortly, on a background thread.  Requests made while one
+     * is waiting to run are answered by it.
+     */
+    public void requestPrefetch() {
+        synchronized (this) {
+            if (mPrefetchPending) {
+                return;
+            }
+            mPrefetchPending = true;
+        }
+        mExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (ArtPrefetcher.this) {
+                    mPrefetchPending = false;
+                }
+                prefetch();
+            }
+        }, COALESCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Fetches the art now, on the calling thread, which mustn't be the main thread.  Gives up on
+     * whatever's left after {@link #PREFETCH_TIMEOUT_MILLIS}.
+     */
+    public synchronized void prefetch() {
+        AppSettings settings = AppSettings.get(mContext);
+        if (settings.localGraphics) {
+            return;
+        }
+        Set<String> artUrls = getArtUrls(settings.location);
+        if (artUrls.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        long deadline = start + PREFETCH_TIMEOUT_MILLIS;
+        for (String artUrl : artUrls) {
+            if (!prefetch(artUrl, deadline)) {
+                Log.w(LOG_TAG, "Prefetch ran out of time; the rest will be fetched when shown");
+                return;
+            }
+        }
+        Log.d(LOG_TAG, "Fetched " + artUrls.size() + " pictures in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /*
+        Fetches one picture at every size, one after another, so the first download is in the
+        disk cache for the rest.  Returns false if the deadline passed.
+     */
+    private boolean prefetch(String artUrl, long deadline) {
+        int listSize = getListArtSize(mContext, false);
+        int todaySize = getListArtSize(mContext, true);
+        // The forecast list and detail view
+        if (!fetch(Glide.with(mContext).load(artUrl)
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .fitCenter()
+                .into(listSize, listSize), artUrl, deadline)) {
+            return false;
+        }
+        if (!fetch(Glide.with(mContext).load(artUrl)
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .fitCenter()
+                .into(todaySize, todaySize), artUrl, deadline)) {
+            return false;
+        }
+        // The widget's rows and the notification take bitmaps
+        if (!fetch(Glide.with(mContext).load(artUrl).asBitmap()
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .fitCenter()
+                .into(listSize, listSize), artUrl, deadline)) {
+            return false;
+        }
+        return fetch(Glide.with(mContext).load(artUrl).asBitmap()
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .fitCenter()
+                .into(getNotificationArtWidth(mContext), getNotificationArtHeight(mContext)),
+                artUrl, deadline);
+    }
+
+    /*
+        The distinct pictures for the days ahead.
+     */
+    private Set<String> getArtUrls(String location) {
+        Set<String> artUrls = new LinkedHashSet<String>();
+        Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
+                location, System.currentTimeMillis());
+        Cursor cursor = mContext.getContentResolver().query(weatherUri, FORECAST_COLUMNS,
+                null, null, null);
+        if (null == cursor) {
+            return artUrls;
+        }
+        try {
+            ConditionTable conditions = ConditionTable.getInstance(mContext);
+            while (cursor.moveToNext()) {
+                String artUrl = conditions.get(cursor.getInt(COL_WEATHER_ID)).artUrl;
+                if (null != artUrl) {
+                    artUrls.add(artUrl);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return artUrls;
+    }
+
+    /*
+        Waits for a fetch until the deadline, then lets the picture go, into the memory cache.
+        Returns false if it didn't come in time.
+     */
+    private static boolean fetch(FutureTarget<?> target, String artUrl, long deadline) {
+        try {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            target.get(remaining, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            Log.w(LOG_TAG, "Couldn't fetch " + artUrl, e);
+        } finally {
+            Glide.clear(target);
+        }
+        return true;
+    }
+}
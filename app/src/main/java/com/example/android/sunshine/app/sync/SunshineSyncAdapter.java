@@ -2,7 +2,6 @@ package com.example.android.sunshine.app.sync;
 
 import android.accounts.Account;
 import android.accounts.AccountManager;
-import android.annotation.SuppressLint;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.AbstractThreadedSyncAdapter;
@@ -35,13 +34,6 @@ import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.Utility;
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.muzei.WeatherMuzeiSource;
-import com.google.android.gms.common.ConnectionResult;
-import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.api.Result;
-import com.google.android.gms.common.api.ResultCallback;
-import com.google.android.gms.wearable.Node;
-import com.google.android.gms.wearable.NodeApi;
-import com.google.android.gms.wearable.Wearable;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -58,8 +50,7 @@ import java.net.URL;
 import java.util.Vector;
 import java.util.concurrent.ExecutionException;
 
-public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements GoogleApiClient.ConnectionCallbacks,
-        GoogleApiClient.OnConnectionFailedListener {
+public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
     public final String LOG_TAG = SunshineSyncAdapter.class.getSimpleName();
     public static final String ACTION_DATA_UPDATED =
             "com.example.android.sunshine.app.ACTION_DATA_UPDATED";
@@ -69,7 +60,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
     public static final int SYNC_FLEXTIME = SYNC_INTERVAL/3;
     private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
     private static final int WEATHER_NOTIFICATION_ID = 3004;
-    private static final String WEAR_MESSAGE_PATH = "/some_message";
 
     private static final String[] NOTIFY_WEATHER_PROJECTION = new String[] {
             WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
@@ -84,23 +74,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
     private static final int INDEX_MIN_TEMP = 2;
     private static final int INDEX_SHORT_DESC = 3;
 
-    private GoogleApiClient mApiClient;
-
-    @Override
-    public void onConnected(Bundle bundle) {
-
-    }
-
-    @Override
-    public void onConnectionSuspended(int i) {
-
-    }
-
-    @Override
-    public void onConnectionFailed(ConnectionResult connectionResult) {
-
-    }
-
     @Retention(RetentionPolicy.SOURCE)
     @IntDef({LOCATION_STATUS_OK, LOCATION_STATUS_SERVER_DOWN, LOCATION_STATUS_SERVER_INVALID,  LOCATION_STATUS_UNKNOWN, LOCATION_STATUS_INVALID})
     public @interface LocationStatus {}
@@ -113,12 +86,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
 
     public SunshineSyncAdapter(Context context, boolean autoInitialize) {
         super(context, autoInitialize);
-        mApiClient = new GoogleApiClient.Builder(context)
-                .addApi(Wearable.API)
-                .addConnectionCallbacks(this)
-                .addOnConnectionFailedListener(this)
-                .build();
-        mApiClient.connect();
     }
 
     @Override
@@ -286,8 +253,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
             double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
             double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
 
-            long locationId = addLocation(locationSetting, cityName, cityLatitude, cityLongitude);
-
             // Insert the new weather information into the database
             Vector<ContentValues> cVVector = new Vector<ContentValues>(weatherArray.length());
 
@@ -348,7 +313,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
 
                 ContentValues weatherValues = new ContentValues();
 
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
                 weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE, dateTime);
                 weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, humidity);
                 weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, pressure);
@@ -367,15 +331,33 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
             if ( cVVector.size() > 0 ) {
                 ContentValues[] cvArray = new ContentValues[cVVector.size()];
                 cVVector.toArray(cvArray);
-                getContext().getContentResolver().bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, cvArray);
+                // anything older than today goes, so we don't build up an endless history
+                long deleteOnOrBefore = dayTime.setJulianDay(julianStartDay-1);
+
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+                    // One call adds the location, inserts the forecast and deletes old data in
+                    // a single provider transaction.
+                    getContext().getContentResolver().call(WeatherContract.BASE_CONTENT_URI,
+                            WeatherContract.METHOD_REPLACE_FORECAST, null,
+                            WeatherContract.buildReplaceForecastExtras(locationSetting, cityName,
+                                    cityLatitude, cityLongitude, cvArray, deleteOnOrBefore));
+                } else {
+                    long locationId = addLocation(locationSetting, cityName, cityLatitude, cityLongitude);
+                    for (ContentValues weatherValues : cvArray) {
+                        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
+                    }
+                    getContext().getContentResolver().bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, cvArray);
 
-                // delete old data so we don't build up an endless history
-                getContext().getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI,
-                        WeatherContract.WeatherEntry.COLUMN_DATE + " <= ?",
-                        new String[] {Long.toString(dayTime.setJulianDay(julianStartDay-1))});
+                    getContext().getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI,
+                            WeatherContract.WeatherEntry.COLUMN_DATE + " <= ?",
+                            new String[] {Long.toString(deleteOnOrBefore)});
+                }
 
                 updateWidgets();
                 updateMuzei();
+                updateWear();
+                // Only the notification waits for the art; the rest shouldn't wait on the network
+                prefetchArt();
                 notifyWeather();
             }
             Log.d(LOG_TAG, "Sync Complete. " + cVVector.size() + " Inserted");
@@ -390,6 +372,10 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
 
 
 
+    private void prefetchArt() {
+        ArtPrefetcher.getInstance(getContext()).prefetch();
+    }
+
     private void updateWidgets() {
         Context context = getContext();
         // Setting the package ensures that only components in our app will receive the broadcast
@@ -436,24 +422,14 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
                     double low = cursor.getDouble(INDEX_MIN_TEMP);
                     String desc = cursor.getString(INDEX_SHORT_DESC);
 
-                    //send message to wearable
-                    sendMessageToWear(weatherId,high,low);
-
                     int iconId = Utility.getIconResourceForWeatherCondition(weatherId);
                     Resources resources = context.getResources();
                     int artResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
                     String artUrl = Utility.getArtUrlForWeatherCondition(context, weatherId);
 
-                    // On Honeycomb and higher devices, we can retrieve the size of the large icon
-                    // Prior to that, we use a fixed size
-                    @SuppressLint("InlinedApi")
-                    int largeIconWidth = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
-                            ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width)
-                            : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
-                    @SuppressLint("InlinedApi")
-                    int largeIconHeight = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
-                            ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height)
-                            : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
+                    // The size the art was prefetched at, so it comes from the cache
+                    int largeIconWidth = ArtPrefetcher.getNotificationArtWidth(context);
+                    int largeIconHeight = ArtPrefetcher.getNotificationArtHeight(context);
 
                     // Retrieve the large icon
                     Bitmap largeIcon;
@@ -518,37 +494,8 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
         }
     }
 
-    public void sendMessageToWear(int weatherId, double high, double low)
-    {
-        String hight = String.valueOf((int) Math.round(high));
-        String lowt = String.valueOf((int) Math.round(low));
-        String messageText = String.valueOf(weatherId)+";"+hight+";"+lowt;
-        //MainActivity.sendMessage(WEAR_MESSAGE_PATH, mesText);
-        Log.i("SEND_TO_WEAR","SENT_FROM_SYNC");
-        sendMessage(WEAR_MESSAGE_PATH, messageText);
-    }
-
-    public void sendMessage( final String path, final String text ) {
-                NodeApi.GetConnectedNodesResult nodes = Wearable.NodeApi.getConnectedNodes( mApiClient ).await();
-                for(Node node : nodes.getNodes()) {
-                    Wearable.MessageApi.sendMessage(
-                            mApiClient, node.getId(), path, text.getBytes() ).setResultCallback(
-                            new ResultCallback() {
-                                @Override
-                                public void onResult(Result result) {
-                                    if (!result.getStatus().isSuccess()) {
-                                        // Failed to send message
-                                        Log.i("GOT_RESULT","FAILED_MESSAGE");
-                                    }
-                                    else
-                                    {
-                                        Log.i("GOT_RESULT",result.getStatus().getStatusMessage());
-                                    }
-                                }
-                            }
-                    );
-
-                }
+    private void updateWear() {
+        WearPublisher.getInstance(getContext()).requestPublish(System.currentTimeMillis());
     }
 
     /**
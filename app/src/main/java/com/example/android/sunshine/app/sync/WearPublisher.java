@@ -0,0 +1,407 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.preference.PreferenceManager;
+import android.text.format.Time;
+import android.util.Log;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.shared.ForecastCodec;
+import com.example.android.sunshine.shared.ForecastResponder;
+import com.example.android.sunshine.shared.MessageApiTransport;
+import com.example.android.sunshine.shared.WearForecast;
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.CapabilityApi;
+import com.google.android.gms.wearable.CapabilityInfo;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.DataItemBuffer;
+import com.google.android.gms.wearable.Node;
+import com.google.android.gms.wearable.PutDataRequest;
+import com.google.android.gms.wearable.Wearable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the forecast to the watch as a single DataItem at {@link ForecastCodec#PATH}.  The
+ * data layer keeps the item and delivers it whenever the watch connects, so nothing needs
+ * resending after a disconnect.
+ *
+ * Requests are coalesced: however many arrive within {@link #COALESCE_MILLIS}, one publish runs,
+ * on a single background thread shared by everything here.  The publisher keeps the set of
+ * reachable nodes advertising {@link ForecastCodec#CAPABILITY}, updated as it changes, and the
+ * hash of the forecast last sent to each.  The item is only put when some node hasn't been sent
+ * this forecast, or its copy is due a refresh; with no watch reachable, when it differs from the
+ * item already put.  The last sync's fetched time is kept in the preferences, so a publish that
+ * isn't for a sync, like a change of units, stamps the forecast with it.
+ *
+ * The last forecast published stays in memory, and requests the watch sends are answered from
+ * it, without going to the database.  Until something has been published, they're answered from
+ * the database, and a publish is started.
+ */
+public class WearPublisher implements CapabilityApi.CapabilityListener {
+    private static final String LOG_TAG = WearPublisher.class.getSimpleName();
+
+    static final long COALESCE_MILLIS = 2000;
+    // Even if nothing changed, let the watch know the forecast is still current this often
+    static final long REFRESH_INTERVAL_MILLIS = 6 * 60 * 60 * 1000;
+    private static final long CONNECT_TIMEOUT_SECONDS = 30;
+
+    /**
+     * Publish with the fetched time of the last sync, for when only the units have changed.
+     */
+    public static final long KEEP_FETCHED_TIME = 0;
+
+    private static final String[] FORECAST_COLUMNS = {
+            WeatherContract.WeatherEntry.COLUMN_DATE,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherContract.LocationEntry.COLUMN_COORD_LAT,
+            WeatherContract.LocationEntry.COLUMN_COORD_LONG
+    };
+
+    // these indices must match the projection
+    private static final int COL_DATE = 0;
+    private static final int COL_WEATHER_ID = 1;
+    private static final int COL_MAX_TEMP = 2;
+    private static final int COL_MIN_TEMP = 3;
+    private static final int COL_COORD_LAT = 4;
+    private static final int COL_COORD_LONG = 5;
+
+    private static WearPublisher sInstance;
+
+    private final Context mContext;
+    private final GoogleApiClient mApiClient;
+    private final ScheduledExecutorService mExecutor =
+            Executors.newSingleThreadScheduledExecutor();
+
+    // Guarded by this
+    private boolean mPublishPending;
+    private long mPendingFetchedMillis = KEEP_FETCHED_TIME;
+
+    // Only touched on the executor
+    private Set<String> mCapableNodes;
+    private final Map<String, Long> mSentHashes = new HashMap<String, Long>();
+    private final Map<String, Long> mSentFetchedMillis = new HashMap<String, Long>();
+    private byte[] mPublishedPayload;
+    private boolean mReadPublished;
+    private final ForecastResponder mResponder;
+
+    public static synchronized WearPublisher getInstance(Context context) {
+        if (null == sInstance) {
+            sInstance = new WearPublisher(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private WearPublisher(Context context) {
+        mContext = context;
+        mApiClient = new GoogleApiClient.Builder(context)
+                .addApi(Wearable.API)
+                .build();
+        mResponder = new ForecastResponder(new MessageApiTransport(mApiClient),
+                new ForecastResponder.SnapshotSource() {
+                    @Override
+                    public byte[] getSnapshot() {
+                        byte[] published = mPublishedPayload;
+                        byte[] snapshot = WearPublisher.getSnapshot(mContext, published);
+                        if (null == published && null != snapshot) {
+                            // Put it too, so the data layer has it for the next watch
+                            requestPublish(KEEP_FETCHED_TIME);
+                        }
+                        return snapshot;
+                    }
+                });
+    }
+
+    /**
+     * Asks for the forecast to be published soon.
+     *
+     * @param fetchedMillis when the forecast in the database was fetched, or
+     *                      {@link #KEEP_FETCHED_TIME}.
+     */
+    public void requestPublish(long fetchedMillis) {
+        synchronized (this) {
+            mPendingFetchedMillis = Math.max(mPendingFetchedMillis, fetchedMillis);
+            if (mPublishPending) {
+                return;
+            }
+            mPublishPending = true;
+        }
+        mExecutor.schedule(mPublishTask, COALESCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private final Runnable mPublishTask = new Runnable() {
+        @Override
+        public void run() {
+            long fetchedMillis;
+            synchronized (WearPublisher.this) {
+                mPublishPending = false;
+                fetchedMillis = mPendingFetchedMillis;
+                mPendingFetchedMillis = KEEP_FETCHED_TIME;
+            }
+            publish(fetchedMillis);
+        }
+    };
+
+    /**
+     * Answers a forecast request from the watch, on the executor.
+     */
+    public void onMessageReceived(final String sourceNodeId, final String path,
+                                  final byte[] data) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!connect()) {
+                    return;
+                }
+                if (!mReadPublished) {
+                    readPublished();
+                }
+                mResponder.onMessageReceived(sourceNodeId, path, data);
+            }
+        });
+    }
+
+    @Override
+    public void onCapabilityChanged(CapabilityInfo capabilityInfo) {
+        final Set<String> nodes = getNodeIds(capabilityInfo.getNodes());
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean added = null == mCapableNodes || !mCapableNodes.containsAll(nodes);
+                mCapableNodes = nodes;
+                // Forget nodes that left, so they're sent the forecast when they come back
+                mSentHashes.keySet().retainAll(nodes);
+                mSentFetchedMillis.keySet().retainAll(nodes);
+                if (added) {
+                    requestPublish(KEEP_FETCHED_TIME);
+                }
+            }
+        });
+    }
+
+    private static Set<String> getNodeIds(Set<Node> nodes) {
+        Set<String> ids = new HashSet<String>();
+        for (Node node : nodes) {
+            ids.add(node.getId());
+        }
+        return ids;
+    }
+
+    private boolean connect() {
+        if (mApiClient.isConnected()) {
+            return true;
+        }
+        ConnectionResult result =
+                mApiClient.blockingConnect(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (!result.isSuccess()) {
+            Log.w(LOG_TAG, "Couldn't connect to the wearable API: " + result);
+            return false;
+        }
+        Wearable.CapabilityApi.addCapabilityListener(mApiClient, this, ForecastCodec.CAPABILITY);
+        CapabilityApi.GetCapabilityResult capability = Wearable.CapabilityApi.getCapability(
+                mApiClient, ForecastCodec.CAPABILITY, CapabilityApi.FILTER_REACHABLE).await();
+        mCapableNodes = capability.getStatus().isSuccess()
+                ? getNodeIds(capability.getCapability().getNodes())
+                : new HashSet<String>();
+        return true;
+    }
+
+    /**
+     * @return when the last sync fetched the forecast, as saved by the publish that followed it,
+     *         or {@link #KEEP_FETCHED_TIME} if there hasn't been one.
+     */
+    static long getLastFetchedMillis(Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context).getLong(
+                context.getString(R.string.pref_last_wear_fetched_key), KEEP_FETCHED_TIME);
+    }
+
+    private static void setLastFetchedMillis(Context context, long fetchedMillis) {
+        if (fetchedMillis > getLastFetchedMillis(context)) {
+            PreferenceManager.getDefaultSharedPreferences(context).edit()
+                    .putLong(context.getString(R.string.pref_last_wear_fetched_key), fetchedMillis)
+                    .apply();
+        }
+    }
+
+    /**
+     * Runs on the executor.  The forecast is put whether or not a watch is reachable: the data
+     * layer keeps it and delivers it when one turns up.  What the nodes were sent is only used
+     * to skip putting the same forecast again.
+     */
+    private void publish(long fetchedMillis) {
+        // Saved before anything can fail, so a later publish never goes back to an older time
+        if (KEEP_FETCHED_TIME != fetchedMillis) {
+            setLastFetchedMillis(mContext, fetchedMillis);
+        } else {
+            fetchedMillis = getLastFetchedMillis(mContext);
+            if (KEEP_FETCHED_TIME == fetchedMillis) {
+                // Nothing fetched yet; the first sync will publish.
+                return;
+            }
+        }
+        if (!connect()) {
+            return;
+        }
+        if (!mReadPublished) {
+            readPublished();
+        }
+
+        WearForecast forecast = loadForecast(mContext, fetchedMillis);
+        if (null == forecast) {
+            return;
+        }
+        byte[] payload = ForecastCodec.encode(forecast);
+        long hash = ForecastCodec.hashForecast(payload);
+
+        boolean needed = false;
+        if (mCapableNodes.isEmpty()) {
+            // No watch to have been sent anything; only skip what's already in the data layer
+            needed = !Arrays.equals(payload, mPublishedPayload);
+        }
+        for (String node : mCapableNodes) {
+            Long sentHash = mSentHashes.get(node);
+            Long sentFetchedMillis = mSentFetchedMillis.get(node);
+            if (null == sentHash || sentHash != hash
+                    || fetchedMillis - sentFetchedMillis >= REFRESH_INTERVAL_MILLIS) {
+                needed = true;
+                break;
+            }
+        }
+        if (!needed) {
+            Log.d(LOG_TAG, "Forecast unchanged, not sending");
+            return;
+        }
+
+        PutDataRequest request = PutDataRequest.create(ForecastCodec.PATH)
+                .setData(payload)
+                .setUrgent();
+        DataApi.DataItemResult result = Wearable.DataApi.putDataItem(mApiClient, request).await();
+        if (!result.getStatus().isSuccess()) {
+            Log.w(LOG_TAG, "Failed to put forecast: " + result.getStatus());
+            return;
+        }
+        Log.d(LOG_TAG, "Put " + payload.length + " byte forecast for "
+                + mCapableNodes.size() + " node(s)");
+        mPublishedPayload = payload;
+        for (String node : mCapableNodes) {
+            mSentHashes.put(node, hash);
+            mSentFetchedMillis.put(node, fetchedMillis);
+        }
+    }
+
+    /**
+     * Picks up what an earlier process published.  The data layer delivers it to every node, so
+     * the nodes reachable now count as having it.
+     */
+    private void readPublished() {
+        Uri uri = new Uri.Builder().scheme(PutDataRequest.WEAR_URI_SCHEME)
+                .path(ForecastCodec.PATH).build();
+        DataItemBuffer items = Wearable.DataApi.getDataItems(mApiClient, uri).await();
+        try {
+            if (!items.getStatus().isSuccess()) {
+                return;
+            }
+            mReadPublished = true;
+            if (items.getCount() == 0) {
+                return;
+            }
+            byte[] current = items.get(0).getData();
+            long publishedFetchedMillis = ForecastCodec.getFetchedMillis(current);
+            setLastFetchedMillis(mContext, publishedFetchedMillis);
+            mPublishedPayload = current;
+            long hash = ForecastCodec.hashForecast(current);
+            for (String node : mCapableNodes) {
+                mSentHashes.put(node, hash);
+                mSentFetchedMillis.put(node, publishedFetchedMillis);
+            }
+        } finally {
+            items.release();
+        }
+    }
+
+    /**
+     * @return what to answer a watch's request with: the forecast last published, or, if there
+     *         isn't one yet, the last sync's forecast read from the database.  Null if there
+     *         hasn't been a sync.
+     */
+    static byte[] getSnapshot(Context context, byte[] published) {
+        if (null != published) {
+            return published;
+        }
+        long fetchedMillis = getLastFetchedMillis(context);
+        if (KEEP_FETCHED_TIME == fetchedMillis) {
+            return null;
+        }
+        WearForecast forecast = loadForecast(context, fetchedMillis);
+        return null == forecast ? null : ForecastCodec.encode(forecast);
+    }
+
+    /**
+     * Reads the forecast for the preferred location, from today on.
+     *
+     * @return the forecast, or null if there is none to send.
+     */
+    static WearForecast loadForecast(Context context, long fetchedMillis) {
+        String locationSetting = Utility.getPreferredLocation(context);
+        Uri uri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
+                locationSetting, System.currentTimeMillis());
+        Cursor cursor = context.getContentResolver().query(uri, FORECAST_COLUMNS, null, null,
+                WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        if (null == cursor) {
+            return null;
+        }
+        try {
+            if (cursor.getCount() == 0) {
+                return null;
+            }
+            Time time = new Time();
+            double latitude = Double.NaN;
+            double longitude = Double.NaN;
+            WearForecast.Day[] days = new WearForecast.Day[cursor.getCount()];
+            int i = 0;
+            while (cursor.moveToNext()) {
+                long date = cursor.getLong(COL_DATE);
+                time.set(date);
+                int epochDay = Time.getJulianDay(date, time.gmtoff) - Time.EPOCH_JULIAN_DAY;
+                days[i++] = new WearForecast.Day(epochDay, cursor.getInt(COL_WEATHER_ID),
+                        cursor.getDouble(COL_MAX_TEMP), cursor.getDouble(COL_MIN_TEMP));
+                // Every row is for the same place
+                latitude = cursor.getDouble(COL_COORD_LAT);
+                longitude = cursor.getDouble(COL_COORD_LONG);
+            }
+            return new WearForecast(Utility.isMetric(context), fetchedMillis, days,
+                    latitude, longitude);
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import com.example.android.sunshine.shared.ForecastRpc;
+import com.google.android.gms.wearable.MessageEvent;
+import com.google.android.gms.wearable.WearableListenerService;
+
+/**
+ * Receives the watch's forecast requests, even when the app isn't running, and hands them to
+ * {@link WearPublisher} to answer.
+ */
+public class WearRequestListenerService extends WearableListenerService {
+
+    @Override
+    public void onMessageReceived(MessageEvent messageEvent) {
+        if (ForecastRpc.REQUEST_PATH.equals(messageEvent.getPath())) {
+            WearPublisher.getInstance(this).onMessageReceived(messageEvent.getSourceNodeId(),
+                    messageEvent.getPath(), messageEvent.getData());
+        } else {
+            super.onMessageReceived(messageEvent);
+        }
+    }
+}
@@ -13,10 +13,11 @@ import android.widget.RemoteViews;
 import android.widget.RemoteViewsService;
 
 import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.target.Target;
+import com.example.android.sunshine.app.ConditionTable;
 import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.Utility;
 import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.sync.ArtPrefetcher;
 
 import java.util.concurrent.ExecutionException;
 
@@ -95,17 +96,23 @@ public class DetailWidgetRemoteViewsService extends RemoteViewsService {
                 RemoteViews views = new RemoteViews(getPackageName(),
                         R.layout.widget_detail_list_item);
                 int weatherId = data.getInt(INDEX_WEATHER_CONDITION_ID);
-                int weatherArtResourceId = Utility.getIconResourceForWeatherCondition(weatherId);
+                ConditionTable conditions =
+                        ConditionTable.getInstance(DetailWidgetRemoteViewsService.this);
+                ConditionTable.Condition condition = conditions.get(weatherId);
+                int weatherArtResourceId = condition.iconResource;
                 Bitmap weatherArtImage = null;
-                if ( !Utility.usingLocalGraphics(DetailWidgetRemoteViewsService.this) ) {
-                    String weatherArtResourceUrl = Utility.getArtUrlForWeatherCondition(
-                            DetailWidgetRemoteViewsService.this, weatherId);
+                if ( !conditions.isUsingLocalGraphics() ) {
+                    String weatherArtResourceUrl = condition.artUrl;
+                    // At the size it was prefetched, so it comes from the cache
+                    int artSize = ArtPrefetcher.getListArtSize(
+                            DetailWidgetRemoteViewsService.this, false);
                     try {
                         weatherArtImage = Glide.with(DetailWidgetRemoteViewsService.this)
                                 .load(weatherArtResourceUrl)
                                 .asBitmap()
                                 .error(weatherArtResourceId)
-                                .into(Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL).get();
+                                .fitCenter()
+                                .into(artSize, artSize).get();
                     } catch (InterruptedException | ExecutionException e) {
                         Log.e(LOG_TAG, "Error retrieving large icon from " + weatherArtResourceUrl, e);
                     }
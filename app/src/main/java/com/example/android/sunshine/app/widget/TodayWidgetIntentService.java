@@ -63,27 +63,43 @@ public class TodayWidgetIntentService extends IntentService {
 
         // Get today's data from the ContentProvider
         String location = Utility.getPreferredLocation(this);
-        Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
-                location, System.currentTimeMillis());
-        Cursor data = getContentResolver().query(weatherForLocationUri, FORECAST_COLUMNS, null,
-                null, WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
-        if (data == null) {
-            return;
+        int weatherId;
+        String description;
+        double maxTemp;
+        double minTemp;
+
+        Bundle today = null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            today = getTodayForLocation(location);
         }
-        if (!data.moveToFirst()) {
+        if (null != today) {
+            weatherId = today.getIntArray(WeatherContract.EXTRA_WEATHER_IDS)[0];
+            description = today.getStringArray(WeatherContract.EXTRA_SHORT_DESCS)[0];
+            maxTemp = today.getDoubleArray(WeatherContract.EXTRA_MAX_TEMPS)[0];
+            minTemp = today.getDoubleArray(WeatherContract.EXTRA_MIN_TEMPS)[0];
+        } else {
+            Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
+                    location, System.currentTimeMillis());
+            Cursor data = getContentResolver().query(weatherForLocationUri, FORECAST_COLUMNS, null,
+                    null, WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+            if (data == null) {
+                return;
+            }
+            if (!data.moveToFirst()) {
+                data.close();
+                return;
+            }
+
+            // Extract the weather data from the Cursor
+            weatherId = data.getInt(INDEX_WEATHER_ID);
+            description = data.getString(INDEX_SHORT_DESC);
+            maxTemp = data.getDouble(INDEX_MAX_TEMP);
+            minTemp = data.getDouble(INDEX_MIN_TEMP);
             data.close();
-            return;
         }
-
-        // Extract the weather data from the Cursor
-        int weatherId = data.getInt(INDEX_WEATHER_ID);
         int weatherArtResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
-        String description = data.getString(INDEX_SHORT_DESC);
-        double maxTemp = data.getDouble(INDEX_MAX_TEMP);
-        double minTemp = data.getDouble(INDEX_MIN_TEMP);
         String formattedMaxTemperature = Utility.formatTemperature(this, maxTemp);
         String formattedMinTemperature = Utility.formatTemperature(this, minTemp);
-        data.close();
 
         // Perform this loop procedure for each Today widget
         for (int appWidgetId : appWidgetIds) {
@@ -121,6 +137,25 @@ public class TodayWidgetIntentService extends IntentService {
         }
     }
 
+    /**
+     * Reads today's weather through the provider's batched day lookup, which skips the cursor
+     * and its window entirely.
+     *
+     * @return the call's result if today's row exists, otherwise null so the caller can fall
+     * back to the first upcoming day.
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private Bundle getTodayForLocation(String location) {
+        Bundle result = getContentResolver().call(WeatherContract.BASE_CONTENT_URI,
+                WeatherContract.METHOD_GET_DAY_FOR_LOCATIONS, null,
+                WeatherContract.buildDayForLocationsExtras(new String[]{location},
+                        System.currentTimeMillis()));
+        if (null == result || !result.getBooleanArray(WeatherContract.EXTRA_FOUND)[0]) {
+            return null;
+        }
+        return result;
+    }
+
     private int getWidgetWidth(AppWidgetManager appWidgetManager, int appWidgetId) {
         // Prior to Jelly Bean, widgets were always their default size
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
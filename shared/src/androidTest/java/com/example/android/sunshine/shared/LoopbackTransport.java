@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.shared;
+
+import android.os.Handler;
+
+/**
+ * Test double for {@link Transport}: two instances connected in-process, each delivering what
+ * the other sends on its own handler.  Messages can be delayed or dropped to stand in for a
+ * slow or absent peer.
+ */
+public class LoopbackTransport implements Transport {
+
+    private final String mNodeId;
+    private final Handler mHandler;
+    private LoopbackTransport mPeer;
+    private Receiver mReceiver;
+    private long mDelayMillis;
+    private boolean mDropping;
+    private int mSent;
+
+    public LoopbackTransport(String nodeId, Handler handler) {
+        mNodeId = nodeId;
+        mHandler = handler;
+    }
+
+    public static void connect(LoopbackTransport a, LoopbackTransport b) {
+        a.mPeer = b;
+        b.mPeer = a;
+    }
+
+    /**
+     * @param receiver gets the messages the peer sends to this node.
+     */
+    public void setReceiver(Receiver receiver) {
+        mReceiver = receiver;
+    }
+
+    public void setDelayMillis(long delayMillis) {
+        mDelayMillis = delayMillis;
+    }
+
+    public void setDropping(boolean dropping) {
+        mDropping = dropping;
+    }
+
+    /**
+     * @return how many messages this node has sent, dropped or not.
+     */
+    public int getSentCount() {
+        return mSent;
+    }
+
+    @Override
+    public void send(String nodeId, final String path, byte[] data) {
+        mSent++;
+        final LoopbackTransport peer = mPeer;
+        if (mDropping || null == peer || (null != nodeId && !nodeId.equals(peer.mNodeId))) {
+            return;
+        }
+        final byte[] copy = data.clone();
+        peer.mHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                if (null != peer.mReceiver) {
+                    peer.mReceiver.onMessageReceived(mNodeId, path, copy);
+                }
+            }
+        }, mDelayMillis);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.shared;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+public class TestForecastCodec extends AndroidTestCase {
+    private static final String LOG_TAG = TestForecastCodec.class.getSimpleName();
+
+    private static final int FIRST_DAY = 16800;
+    private static final long FETCHED = 1451606400000L;
+
+    static WearForecast createForecast(int dayCount, boolean metric, long fetchedMillis) {
+        WearForecast.Day[] days = new WearForecast.Day[dayCount];
+        for (int i = 0; i < dayCount; i++) {
+            days[i] = new WearForecast.Day(FIRST_DAY + i, 800 + (i % 5),
+                    20.5 + i / 10.0, -3.2 - i / 10.0);
+        }
+        return new WearForecast(metric, fetchedMillis, days);
+    }
+
+    public void testRoundTrip() {
+        WearForecast forecast = createForecast(14, false, FETCHED);
+        WearForecast decoded = ForecastCodec.decode(ForecastCodec.encode(forecast));
+
+        assertNotNull("Error: Couldn't decode an encoded forecast", decoded);
+        assertEquals(FETCHED, decoded.fetchedMillis);
+        assertFalse("Error: Units lost in round trip", decoded.metric);
+        assertEquals("Error: Days lost in round trip", forecast.days.length, decoded.days.length);
+        for (int i = 0; i < forecast.days.length; i++) {
+            WearForecast.Day expected = forecast.days[i];
+            WearForecast.Day actual = decoded.days[i];
+            assertEquals(expected.epochDay, actual.epochDay);
+            assertEquals(expected.weatherId, actual.weatherId);
+            // Temperatures travel as tenths of a degree
+            assertEquals(expected.high, actual.high, 0.05);
+            assertEquals(expected.low, actual.low, 0.05);
+        }
+    }
+
+    public void testEmptyForecast() {
+        WearForecast decoded = ForecastCodec.decode(
+                ForecastCodec.encode(createForecast(0, true, FETCHED)));
+        assertNotNull("Error: Couldn't decode an empty forecast", decoded);
+        assertEquals(0, decoded.days.length);
+    }
+
+    /*
+        The watch draws the sun from where the forecast is for.  Phones from before locations
+        were sent still write version 1, which has none.
+     */
+    public void testLocation() {
+        WearForecast.Day[] days = createForecast(2, true, FETCHED).days;
+        WearForecast decoded = ForecastCodec.decode(ForecastCodec.encode(
+                new WearForecast(true, FETCHED, days, 51.4769, -0.0005)));
+        assertTrue("Error: Location lost in round trip", decoded.hasLocation());
+        assertEquals(51.4769, decoded.latitude, 1e-6);
+        assertEquals(-0.0005, decoded.longitude, 1e-6);
+
+        decoded = ForecastCodec.decode(ForecastCodec.encode(createForecast(2, true, FETCHED)));
+        assertFalse("Error: Unknown location decoded as a place", decoded.hasLocation());
+
+        byte[] encoded = ForecastCodec.encode(
+                new WearForecast(true, FETCHED, days, 51.4769, -0.0005));
+        byte[] version1 = Arrays.copyOf(encoded, encoded.length - 8);
+        version1[0] = 1;
+        decoded = ForecastCodec.decode(version1);
+        assertNotNull("Error: Version 1 forecast not read", decoded);
+        assertEquals(2, decoded.days.length);
+        assertFalse("Error: Version 1 forecast has a location", decoded.hasLocation());
+    }
+
+    /*
+        Newer phones may append fields; an older watch should read what it knows.  Anything
+        that isn't a forecast at all should be rejected rather than misread.
+     */
+    public void testVersioning() {
+        byte[] encoded = ForecastCodec.encode(createForecast(3, true, FETCHED));
+
+        byte[] extended = Arrays.copyOf(encoded, encoded.length + 6);
+        extended[0] = ForecastCodec.VERSION + 1;
+        WearForecast decoded = ForecastCodec.decode(extended);
+        assertNotNull("Error: Newer forecast with extra fields not read", decoded);
+        assertEquals(3, decoded.days.length);
+
+        assertNull("Error: Truncated forecast read",
+                ForecastCodec.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+        assertNull("Error: Legacy text message read as a forecast",
+                ForecastCodec.decode("800;25;16".getBytes(Charset.forName("UTF-8"))));
+        assertNull("Error: Null data read as a forecast", ForecastCodec.decode(null));
+    }
+
+    /*
+        The phone skips publishing when only the fetch time differs, by comparing hashes.
+     */
+    public void testSameForecastIgnoresFetchTime() {
+        byte[] first = ForecastCodec.encode(createForecast(14, true, FETCHED));
+        byte[] later = ForecastCodec.encode(createForecast(14, true, FETCHED + 3600000));
+        byte[] imperial = ForecastCodec.encode(createForecast(14, false, FETCHED));
+        byte[] shorter = ForecastCodec.encode(createForecast(13, true, FETCHED));
+
+        assertTrue("Error: Refetched forecast seen as changed",
+                ForecastCodec.sameForecast(first, later));
+        assertFalse("Error: Unit change not seen", ForecastCodec.sameForecast(first, imperial));
+        assertFalse("Error: Lost day not seen", ForecastCodec.sameForecast(first, shorter));
+        assertEquals(FETCHED + 3600000, ForecastCodec.getFetchedMillis(later));
+
+        assertEquals("Error: Refetched forecast hashes differently",
+                ForecastCodec.hashForecast(first), ForecastCodec.hashForecast(later));
+        assertTrue("Error: Unit change hashes the same",
+                ForecastCodec.hashForecast(first) != ForecastCodec.hashForecast(imperial));
+    }
+
+    /*
+        Logs the encoded size against the old one-day text message, and the encode and decode
+        cost.  Only the size is asserted on; the timings are for reading on a device.
+     */
+    public void testSizeAndSpeed() {
+        WearForecast forecast = createForecast(14, true, FETCHED);
+        byte[] encoded = ForecastCodec.encode(forecast);
+        assertEquals(ForecastCodec.getEncodedSize(14), encoded.length);
+        assertTrue("Error: Two weeks of forecast takes " + encoded.length + " bytes",
+                encoded.length <= 128);
+
+        int textBytes = 0;
+        for (WearForecast.Day day : forecast.days) {
+            textBytes += (day.weatherId + ";" + Math.round(day.high) + ";" + Math.round(day.low))
+                    .getBytes(Charset.forName("UTF-8")).length;
+        }
+        Log.i(LOG_TAG, "14 days: " + encoded.length + " bytes binary, " + textBytes
+                + " bytes as 14 text messages");
+
+        final int iterations = 10000;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            encoded = ForecastCodec.encode(forecast);
+        }
+        long encodeNanos = (System.nanoTime() - start) / iterations;
+        start = System.nanoTime();
+        WearForecast decoded = null;
+        for (int i = 0; i < iterations; i++) {
+            decoded = ForecastCodec.decode(encoded);
+        }
+        long decodeNanos = (System.nanoTime() - start) / iterations;
+        assertNotNull(decoded);
+        Log.i(LOG_TAG, "encode " + encodeNanos + " ns, decode " + decodeNanos + " ns");
+    }
+}
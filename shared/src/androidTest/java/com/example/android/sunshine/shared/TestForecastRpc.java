@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.shared;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TestForecastRpc extends AndroidTestCase {
+
+    private static final long TIMEOUT_MILLIS = 200;
+
+    private HandlerThread mThread;
+    private Handler mHandler;
+    private LoopbackTransport mWatch;
+    private LoopbackTransport mPhone;
+    private ForecastRequester mRequester;
+    private byte[] mSnapshot;
+    private final List<WearForecast> mResults =
+            Collections.synchronizedList(new ArrayList<WearForecast>());
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mThread = new HandlerThread("rpc");
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+
+        mWatch = new LoopbackTransport("watch", mHandler);
+        mPhone = new LoopbackTransport("phone", mHandler);
+        LoopbackTransport.connect(mWatch, mPhone);
+
+        mRequester = new ForecastRequester(mWatch, mHandler);
+        mWatch.setReceiver(mRequester);
+        mPhone.setReceiver(new ForecastResponder(mPhone, new ForecastResponder.SnapshotSource() {
+            @Override
+            public byte[] getSnapshot() {
+                return mSnapshot;
+            }
+        }));
+        mSnapshot = ForecastCodec.encode(TestForecastCodec.createForecast(14, true, 1000L));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mThread.quit();
+        super.tearDown();
+    }
+
+    /**
+     * Makes the given number of requests together on the handler thread, and waits for all of
+     * their callbacks.
+     */
+    private void request(final int count) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(count);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    mRequester.request(TIMEOUT_MILLIS, new ForecastRequester.Callback() {
+                        @Override
+                        public void onForecast(WearForecast forecast) {
+                            mResults.add(forecast);
+                            done.countDown();
+                        }
+                    });
+                }
+            }
+        });
+        assertTrue("Error: Request never completed", done.await(2, TimeUnit.SECONDS));
+    }
+
+    public void testRequestAnswered() throws InterruptedException {
+        request(1);
+        WearForecast forecast = mResults.get(0);
+        assertNotNull("Error: Phone's forecast not received", forecast);
+        assertEquals(14, forecast.days.length);
+        assertEquals(1000L, forecast.fetchedMillis);
+    }
+
+    public void testPhoneWithoutForecast() throws InterruptedException {
+        mSnapshot = null;
+        request(1);
+        assertNull("Error: Forecast received from a phone without one", mResults.get(0));
+        assertEquals("Error: Phone didn't answer", 1, mPhone.getSentCount());
+    }
+
+    /*
+        Everything that asks while a request is outstanding shares its answer.
+     */
+    public void testConcurrentRequestsShareOne() throws InterruptedException {
+        request(3);
+        assertEquals("Error: Concurrent requests not de-duplicated", 1, mWatch.getSentCount());
+        assertEquals(3, mResults.size());
+        for (WearForecast forecast : mResults) {
+            assertNotNull("Error: A waiting request got no forecast", forecast);
+        }
+
+        request(1);
+        assertEquals("Error: Later request not sent", 2, mWatch.getSentCount());
+    }
+
+    /*
+        A slow phone times the request out, and its eventual answer is dropped.
+     */
+    public void testTimeoutIgnoresLateAnswer() throws InterruptedException {
+        mPhone.setDelayMillis(TIMEOUT_MILLIS * 3);
+        request(1);
+        assertNull("Error: Timed out request got a forecast", mResults.get(0));
+
+        Thread.sleep(TIMEOUT_MILLIS * 4);
+        assertEquals("Error: Phone never answered", 1, mPhone.getSentCount());
+        assertEquals("Error: Late answer delivered", 1, mResults.size());
+        assertFalse(mRequester.isRequestOutstanding());
+    }
+
+    public void testUnreachablePhoneTimesOut() throws InterruptedException {
+        mWatch.setDropping(true);
+        long start = System.currentTimeMillis();
+        request(1);
+        assertNull("Error: Unsent request got a forecast", mResults.get(0));
+        assertTrue("Error: Request gave up early",
+                System.currentTimeMillis() - start >= TIMEOUT_MILLIS);
+    }
+
+    /*
+        A request delivered twice is answered once.
+     */
+    public void testRepeatedRequestAnsweredOnce() throws InterruptedException {
+        final byte[] request = ForecastRpc.encodeRequest(42);
+        final CountDownLatch done = new CountDownLatch(1);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mWatch.send("phone", ForecastRpc.REQUEST_PATH, request);
+                mWatch.send("phone", ForecastRpc.REQUEST_PATH, request);
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        done.countDown();
+                    }
+                });
+            }
+        });
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals("Error: Repeated request answered twice", 1, mPhone.getSentCount());
+    }
+}
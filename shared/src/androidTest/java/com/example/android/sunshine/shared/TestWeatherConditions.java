@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.shared;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+public class TestWeatherConditions extends AndroidTestCase {
+    private static final String LOG_TAG = TestWeatherConditions.class.getSimpleName();
+
+    /*
+        The chain of range checks the phone and the watch each used to run, kept here as the
+        reference the table has to agree with.
+     */
+    static int getKindFromChain(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return WeatherConditions.STORM;
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return WeatherConditions.LIGHT_RAIN;
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return WeatherConditions.RAIN;
+        } else if (weatherId == 511) {
+            return WeatherConditions.SNOW;
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return WeatherConditions.RAIN;
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return WeatherConditions.SNOW;
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return WeatherConditions.FOG;
+        } else if (weatherId == 761 || weatherId == 781) {
+            return WeatherConditions.STORM;
+        } else if (weatherId == 800) {
+            return WeatherConditions.CLEAR;
+        } else if (weatherId == 801) {
+            return WeatherConditions.LIGHT_CLOUDS;
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return WeatherConditions.CLOUDS;
+        }
+        return WeatherConditions.NONE;
+    }
+
+    public void testMatchesChainForEveryCode() {
+        for (int id = -1000; id <= 2000; id++) {
+            assertEquals("Error: Wrong kind of weather for " + id, getKindFromChain(id),
+                    WeatherConditions.getKind(id));
+        }
+        assertEquals(WeatherConditions.NONE, WeatherConditions.getKind(Integer.MIN_VALUE));
+        assertEquals(WeatherConditions.NONE, WeatherConditions.getKind(Integer.MAX_VALUE));
+    }
+
+    public void testArtNames() {
+        assertNull(WeatherConditions.getArtName(WeatherConditions.NONE));
+        assertEquals("storm", WeatherConditions.getArtName(WeatherConditions.STORM));
+        assertEquals("light_rain", WeatherConditions.getArtName(WeatherConditions.LIGHT_RAIN));
+        assertEquals("rain", WeatherConditions.getArtName(WeatherConditions.RAIN));
+        assertEquals("snow", WeatherConditions.getArtName(WeatherConditions.SNOW));
+        assertEquals("fog", WeatherConditions.getArtName(WeatherConditions.FOG));
+        assertEquals("clear", WeatherConditions.getArtName(WeatherConditions.CLEAR));
+        assertEquals("light_clouds", WeatherConditions.getArtName(WeatherConditions.LIGHT_CLOUDS));
+        assertEquals("clouds", WeatherConditions.getArtName(WeatherConditions.CLOUDS));
+    }
+
+    /*
+        Logs what a lookup costs against the chain, over the codes a forecast actually has.  The
+        timings are for reading on a device; nothing is asserted on them.
+     */
+    public void testLookupCost() {
+        final int rounds = 200;
+        int sum = 0;
+        long chainStart = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (int id = WeatherConditions.FIRST_ID; id <= WeatherConditions.LAST_ID; id++) {
+                sum += getKindFromChain(id);
+            }
+        }
+        long chainNanos = System.nanoTime() - chainStart;
+
+        long tableStart = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (int id = WeatherConditions.FIRST_ID; id <= WeatherConditions.LAST_ID; id++) {
+                sum -= WeatherConditions.getKind(id);
+            }
+        }
+        long tableNanos = System.nanoTime() - tableStart;
+        // Also keeps the loops from being optimized away
+        assertEquals("Error: Table and chain disagree", 0, sum);
+
+        long lookups = (long) rounds * (WeatherConditions.LAST_ID - WeatherConditions.FIRST_ID + 1);
+        Log.i(LOG_TAG, "chain " + chainNanos / lookups + " ns, table " + tableNanos / lookups
+                + " ns per lookup");
+    }
+}
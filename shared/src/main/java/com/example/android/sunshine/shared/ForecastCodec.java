@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.shared;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary form of a {@link WearForecast}, as stored in the forecast DataItem.  All numbers are
+ * big-endian:
+ *
+ * <pre>
+ * byte    version
+ * byte    flags, bit 0 set for metric
+ * long    fetched time, milliseconds since the epoch
+ * ubyte   number of days
+ * int     epoch day of the first day
+ * per day:
+ *   ubyte   days after the first day
+ *   short   weather condition id
+ *   short   high, tenths of a degree Celsius
+ *   short   low, tenths of a degree Celsius
+ * since version 2:
+ * int     latitude, millionths of a degree, or {@link Integer#MIN_VALUE} if unknown
+ * int     longitude, likewise
+ * </pre>
+ *
+ * New fields only ever go on the end, with a new version number, so an older decoder can still
+ * read what it knows and skip the rest.
+ */
+public final class ForecastCodec {
+
+    /**
+     * DataItem path the phone publishes the forecast under.
+     */
+    public static final String PATH = "/forecast";
+
+    /**
+     * Capability the watch face advertises, so the phone can tell which nodes want the forecast.
+     * Must match android_wear_capabilities in the watch's resources.
+     */
+    public static final String CAPABILITY = "sundial_forecast";
+
+    public static final int VERSION = 2;
+
+    private static final int FLAG_METRIC = 1;
+    private static final int TIMESTAMP_OFFSET = 2;
+    private static final int TIMESTAMP_SIZE = 8;
+    private static final int HEADER_SIZE = 15;
+    private static final int DAY_SIZE = 7;
+    private static final int LOCATION_SIZE = 8;
+    private static final int NO_COORDINATE = Integer.MIN_VALUE;
+    static final int MAX_DAYS = 255;
+
+    private ForecastCodec() {
+    }
+
+    /**
+     * @return the encoded size of a forecast with this many days.
+     */
+    public static int getEncodedSize(int dayCount) {
+        return HEADER_SIZE + dayCount * DAY_SIZE + LOCATION_SIZE;
+    }
+
+    /**
+     * Temperatures are rounded to a tenth of a degree.  At most {@value #MAX_DAYS} days are
+     * written, and no day may be more than 255 days after the first.
+     */
+    public static byte[] encode(WearForecast forecast) {
+        int dayCount = Math.min(forecast.days.length, MAX_DAYS);
+        ByteBuffer buffer = ByteBuffer.allocate(getEncodedSize(dayCount));
+        buffer.put((byte) VERSION);
+        buffer.put((byte) (forecast.metric ? FLAG_METRIC : 0));
+        buffer.putLong(forecast.fetchedMillis);
+        buffer.put((byte) dayCount);
+        int firstDay = dayCount > 0 ? forecast.days[0].epochDay : 0;
+        buffer.putInt(firstDay);
+        for (int i = 0; i < dayCount; i++) {
+            WearForecast.Day day = forecast.days[i];
+            int offset = day.epochDay - firstDay;
+            if (offset < 0 || offset > 0xFF) {
+                throw new IllegalArgumentException("Day " + day.epochDay
+                        + " out of range of first day " + firstDay);
+            }
+            buffer.put((byte) offset);
+            buffer.putShort((short) day.weatherId);
+            buffer.putShort(toTenths(day.high));
+            buffer.putShort(toTenths(day.low));
+        }
+        buffer.putInt(toMillionths(forecast.latitude));
+        buffer.putInt(toMillionths(forecast.longitude));
+        return buffer.array();
+    }
+
+    private static short toTenths(double degrees) {
+        return (short) Math.round(degrees * 10);
+    }
+
+    private static int toMillionths(double degrees) {
+        return Double.isNaN(degrees) ? NO_COORDINATE : (int) Math.round(degrees * 1e6);
+    }
+
+    private static double fromMillionths(int millionths) {
+        return millionths == NO_COORDINATE ? Double.NaN : millionths / 1e6;
+    }
+
+    /**
+     * @return the forecast, or null if the data isn't one this decoder can read.
+     */
+    public static WearForecast decode(byte[] data) {
+        if (null == data || data.length < HEADER_SIZE || data[0] < 1) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            int version = buffer.get();
+            boolean metric = (buffer.get() & FLAG_METRIC) != 0;
+            long fetchedMillis = buffer.getLong();
+            int dayCount = buffer.get() & 0xFF;
+            int firstDay = buffer.getInt();
+            WearForecast.Day[] days = new WearForecast.Day[dayCount];
+            for (int i = 0; i < dayCount; i++) {
+                int epochDay = firstDay + (buffer.get() & 0xFF);
+                int weatherId = buffer.getShort();
+                double high = buffer.getShort() / 10.0;
+                double low = buffer.getShort() / 10.0;
+                days[i] = new WearForecast.Day(epochDay, weatherId, high, low);
+            }
+            double latitude = Double.NaN;
+            double longitude = Double.NaN;
+            if (version >= 2) {
+                latitude = fromMillionths(buffer.getInt());
+                longitude = fromMillionths(buffer.getInt());
+            }
+            return new WearForecast(metric, fetchedMillis, days, latitude, longitude);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Compares two encoded forecasts without decoding them.
+     *
+     * @return whether they say the same thing, whenever they were fetched.
+     */
+    public static boolean sameForecast(byte[] a, byte[] b) {
+        if (null == a || null == b || a.length != b.length) {
+            return false;
+        }
+        for (int i = 0; i < a.length; i++) {
+            if (i == TIMESTAMP_OFFSET) {
+                i += TIMESTAMP_SIZE - 1;
+                continue;
+            }
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of an encoded forecast, leaving out the fetched time, so that two
+     * forecasts that {@link #sameForecast} agree on hash the same.
+     */
+    public static long hashForecast(byte[] data) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < data.length; i++) {
+            if (i == TIMESTAMP_OFFSET) {
+                i += TIMESTAMP_SIZE - 1;
+                continue;
+            }
+            hash ^= data[i] & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * @return the fetched time of an encoded forecast, or 0 if it's too short to have one.
+     */
+    public static long getFetchedMillis(byte[] data) {
+        if (null == data || data.length < TIMESTAMP_OFFSET + TIMESTAMP_SIZE) {
+            return 0;
+        }
+        return ByteBuffer.wrap(data).getLong(TIMESTAMP_OFFSET);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.shared;
+
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * The watch's end of {@link ForecastRpc}.  Sends a request and hands the answer to everyone
+ * who asked while it was outstanding, so a burst of requests costs one message.  Answers that
+ * don't match the outstanding request, including ones that turn up after it timed out, are
+ * dropped.
+ *
+ * Everything here, including delivering messages to {@link #onMessageReceived}, must happen
+ * on the thread of the handler it was created with.
+ */
+public class ForecastRequester implements Transport.Receiver {
+    private static final String LOG_TAG = ForecastRequester.class.getSimpleName();
+
+    public interface Callback {
+        /**
+         * @param forecast the phone's forecast, or null if it has none or didn't answer in time.
+         */
+        void onForecast(WearForecast forecast);
+    }
+
+    private final Transport mTransport;
+    private final Handler mHandler;
+    private final ArrayList<Callback> mCallbacks = new ArrayList<Callback>();
+
+    // Start somewhere random so a restarted watch doesn't accept answers meant for its
+    // previous process.
+    private long mNextRequestId = new Random().nextLong();
+    private long mOutstandingId;
+    private boolean mOutstanding;
+    private int mRequestsSent;
+
+    public ForecastRequester(Transport transport, Handler handler) {
+        mTransport = transport;
+        mHandler = handler;
+    }
+
+    /**
+     * Asks the phone for its forecast, unless a request is already outstanding, in which case
+     * the callback waits for that one.
+     */
+    public void request(long timeoutMillis, Callback callback) {
+        mCallbacks.add(callback);
+        if (mOutstanding) {
+            return;
+        }
+        mOutstanding = true;
+        mOutstandingId = mNextRequestId++;
+        mRequestsSent++;
+        mTransport.send(null, ForecastRpc.REQUEST_PATH, ForecastRpc.encodeRequest(mOutstandingId));
+        mHandler.postDelayed(mTimeout, timeoutMillis);
+    }
+
+    public boolean isRequestOutstanding() {
+        return mOutstanding;
+    }
+
+    /**
+     * @return how many requests have actually been sent.
+     */
+    public int getRequestsSent() {
+        return mRequestsSent;
+    }
+
+    @Override
+    public void onMessageReceived(String sourceNodeId, String path, byte[] data) {
+        if (!ForecastRpc.RESPONSE_PATH.equals(path) || !ForecastRpc.hasRequestId(data)) {
+            return;
+        }
+        if (!mOutstanding || ForecastRpc.getRequestId(data) != mOutstandingId) {
+            Log.d(LOG_TAG, "Ignoring answer to an old request from " + sourceNodeId);
+            return;
+        }
+        mHandler.removeCallbacks(mTimeout);
+        finish(ForecastRpc.getForecast(data));
+    }
+
+    private final Runnable mTimeout = new Runnable() {
+        @Override
+        public void run() {
+            Log.d(LOG_TAG, "Forecast request timed out");
+            finish(null);
+        }
+    };
+
+    private void finish(WearForecast forecast) {
+        mOutstanding = false;
+        Callback[] callbacks = mCallbacks.toArray(new Callback[mCallbacks.size()]);
+        mCallbacks.clear();
+        for (Callback callback : callbacks) {
+            callback.onForecast(forecast);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.shared;
+
+/**
+ * The phone's end of {@link ForecastRpc}.  Answers each request from a snapshot the caller
+ * keeps in memory, and answers a given request only once however often it arrives.
+ */
+public class ForecastResponder implements Transport.Receiver {
+
+    public interface SnapshotSource {
+        /**
+         * @return the forecast as written by {@link ForecastCodec}, or null if there is none.
+         *         Called on the responding thread, so it should be cheap.
+         */
+        byte[] getSnapshot();
+    }
+
+    private static final int REMEMBERED_REQUESTS = 8;
+
+    private final Transport mTransport;
+    private final SnapshotSource mSource;
+    private final long[] mAnswered = new long[REMEMBERED_REQUESTS];
+    private int mAnsweredCount;
+    private int mNextAnswered;
+
+    public ForecastResponder(Transport transport, SnapshotSource source) {
+        mTransport = transport;
+        mSource = source;
+    }
+
+    @Override
+    public synchronized void onMessageReceived(String sourceNodeId, String path, byte[] data) {
+        if (!ForecastRpc.REQUEST_PATH.equals(path) || !ForecastRpc.hasRequestId(data)) {
+            return;
+        }
+        long requestId = ForecastRpc.getRequestId(data);
+        for (int i = 0; i < mAnsweredCount; i++) {
+            if (mAnswered[i] == requestId) {
+                return;
+            }
+        }
+        mAnswered[mNextAnswered] = requestId;
+        mNextAnswered = (mNextAnswered + 1) % REMEMBERED_REQUESTS;
+        mAnsweredCount = Math.min(mAnsweredCount + 1, REMEMBERED_REQUESTS);
+
+        mTransport.send(sourceNodeId, ForecastRpc.RESPONSE_PATH,
+                ForecastRpc.encodeResponse(requestId, mSource.getSnapshot()));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.shared;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Messages for the watch to ask the phone for the forecast, rather than waiting for it to be
+ * pushed.  Both are big-endian:
+ *
+ * <pre>
+ * request:  byte version, long request id
+ * response: byte version, long request id, then the forecast as written by
+ *           {@link ForecastCodec}, or nothing if the phone has none
+ * </pre>
+ */
+public final class ForecastRpc {
+
+    public static final String REQUEST_PATH = "/forecast/request";
+    public static final String RESPONSE_PATH = "/forecast/response";
+
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 9;
+
+    private ForecastRpc() {
+    }
+
+    static byte[] encodeRequest(long requestId) {
+        return ByteBuffer.allocate(HEADER_SIZE).put((byte) VERSION).putLong(requestId).array();
+    }
+
+    static byte[] encodeResponse(long requestId, byte[] forecast) {
+        int forecastSize = null == forecast ? 0 : forecast.length;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + forecastSize)
+                .put((byte) VERSION).putLong(requestId);
+        if (null != forecast) {
+            buffer.put(forecast);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @return whether the message is long enough to carry a request id.
+     */
+    static boolean hasRequestId(byte[] message) {
+        return null != message && message.length >= HEADER_SIZE && message[0] >= 1;
+    }
+
+    static long getRequestId(byte[] message) {
+        return ByteBuffer.wrap(message).getLong(1);
+    }
+
+    /**
+     * @return the forecast in a response, or null if the phone had none.
+     */
+    static WearForecast getForecast(byte[] response) {
+        if (response.length == HEADER_SIZE) {
+            return null;
+        }
+        byte[] forecast = new byte[response.length - HEADER_SIZE];
+        System.arraycopy(response, HEADER_SIZE, forecast, 0, forecast.length);
+        return ForecastCodec.decode(forecast);
+    }
+}
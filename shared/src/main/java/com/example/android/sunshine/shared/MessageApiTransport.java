@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.shared;
+
+import android.util.Log;
+
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.gms.wearable.MessageApi;
+import com.google.android.gms.wearable.Node;
+import com.google.android.gms.wearable.NodeApi;
+import com.google.android.gms.wearable.Wearable;
+
+/**
+ * {@link Transport} over the Wearable MessageApi.  Nothing here blocks, so it can be used from
+ * the main thread.  The client must be connected.
+ */
+public class MessageApiTransport implements Transport {
+    private static final String LOG_TAG = MessageApiTransport.class.getSimpleName();
+
+    private final GoogleApiClient mApiClient;
+
+    public MessageApiTransport(GoogleApiClient apiClient) {
+        mApiClient = apiClient;
+    }
+
+    @Override
+    public void send(String nodeId, final String path, final byte[] data) {
+        if (null != nodeId) {
+            sendToNode(nodeId, path, data);
+            return;
+        }
+        Wearable.NodeApi.getConnectedNodes(mApiClient).setResultCallback(
+                new ResultCallback<NodeApi.GetConnectedNodesResult>() {
+                    @Override
+                    public void onResult(NodeApi.GetConnectedNodesResult result) {
+                        for (Node node : result.getNodes()) {
+                            sendToNode(node.getId(), path, data);
+                        }
+                    }
+                });
+    }
+
+    private void sendToNode(final String nodeId, final String path, byte[] data) {
+        Wearable.MessageApi.sendMessage(mApiClient, nodeId, path, data).setResultCallback(
+                new ResultCallback<MessageApi.SendMessageResult>() {
+                    @Override
+                    public void onResult(MessageApi.SendMessageResult result) {
+                        if (!result.getStatus().isSuccess()) {
+                            Log.w(LOG_TAG, "Failed to send " + path + " to " + nodeId + ": "
+                                    + result.getStatus());
+                        }
+                    }
+                });
+    }
+}
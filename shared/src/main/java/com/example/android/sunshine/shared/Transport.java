@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.shared;
+
+/**
+ * Fire-and-forget messages between nodes.  On devices this is the Wearable MessageApi; tests
+ * use an in-process loopback.
+ */
+public interface Transport {
+
+    interface Receiver {
+        void onMessageReceived(String sourceNodeId, String path, byte[] data);
+    }
+
+    /**
+     * Sends a message.  Delivery isn't guaranteed, and failures aren't reported.
+     *
+     * @param nodeId the node to send to, or null for every connected node.
+     */
+    void send(String nodeId, String path, byte[] data);
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.shared;
+
+import java.util.Arrays;
+
+/**
+ * The forecast as the phone hands it to the watch: every day it has, the units the user wants,
+ * where it's for and when the phone fetched it.  Temperatures are always in Celsius, as they are in the phone's
+ * database; the watch converts them for display.
+ */
+public final class WearForecast {
+
+    public static final class Day {
+        // Days since 1970-01-01 in the phone's time zone
+        public final int epochDay;
+        public final int weatherId;
+        public final double high;
+        public final double low;
+
+        public Day(int epochDay, int weatherId, double high, double low) {
+            this.epochDay = epochDay;
+            this.weatherId = weatherId;
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Day)) {
+                return false;
+            }
+            Day other = (Day) o;
+            return epochDay == other.epochDay && weatherId == other.weatherId
+                    && Double.compare(high, other.high) == 0
+                    && Double.compare(low, other.low) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = epochDay;
+            result = 31 * result + weatherId;
+            long bits = Double.doubleToLongBits(high);
+            result = 31 * result + (int) (bits ^ (bits >>> 32));
+            bits = Double.doubleToLongBits(low);
+            result = 31 * result + (int) (bits ^ (bits >>> 32));
+            return result;
+        }
+    }
+
+    public final boolean metric;
+    // When the phone fetched this forecast, in milliseconds since the epoch
+    public final long fetchedMillis;
+    // In date order
+    public final Day[] days;
+    // Where the forecast is for, in degrees, or NaN if the phone didn't say
+    public final double latitude;
+    public final double longitude;
+
+    public WearForecast(boolean metric, long fetchedMillis, Day[] days) {
+        this(metric, fetchedMillis, days, Double.NaN, Double.NaN);
+    }
+
+    public WearForecast(boolean metric, long fetchedMillis, Day[] days,
+                        double latitude, double longitude) {
+        this.metric = metric;
+        this.fetchedMillis = fetchedMillis;
+        this.days = days;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    /**
+     * @return whether the forecast says where it's for.
+     */
+    public boolean hasLocation() {
+        return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+    }
+
+    /**
+     * @return the day with the given epoch day, or null if the forecast doesn't cover it.
+     */
+    public Day getDay(int epochDay) {
+        for (Day day : days) {
+            if (day.epochDay == epochDay) {
+                return day;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether the two forecasts say the same thing, whenever they were fetched.
+     */
+    public boolean sameForecastAs(WearForecast other) {
+        return null != other && metric == other.metric && Arrays.equals(days, other.days)
+                && Double.compare(latitude, other.latitude) == 0
+                && Double.compare(longitude, other.longitude) == 0;
+    }
+
+    /**
+     * Converts a Celsius temperature to the units the user asked for.
+     */
+    public double toDisplayUnits(double celsius) {
+        return metric ? celsius : (celsius * 1.8) + 32;
+    }
+}
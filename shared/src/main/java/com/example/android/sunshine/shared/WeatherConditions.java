@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.shared;
+
+/**
+ * Sorts OpenWeatherMap condition codes into the handful of kinds of weather the phone and the
+ * watch have pictures for.  Each module keeps its own pictures and words in arrays indexed by
+ * these kinds, so finding them for a code is two array reads instead of a chain of range
+ * checks.
+ *
+ * Based on weather code data found at:
+ * http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
+ */
+public final class WeatherConditions {
+
+    // Kinds of weather.  NONE is for codes with no picture; the rest count up from 1 so they can
+    // index arrays.
+    public static final int NONE = 0;
+    public static final int STORM = 1;
+    public static final int LIGHT_RAIN = 2;
+    public static final int RAIN = 3;
+    public static final int SNOW = 4;
+    public static final int FOG = 5;
+    public static final int CLEAR = 6;
+    public static final int LIGHT_CLOUDS = 7;
+    public static final int CLOUDS = 8;
+    public static final int COUNT = 9;
+
+    // Lowest and highest codes with a picture
+    public static final int FIRST_ID = 200;
+    public static final int LAST_ID = 804;
+
+    // How the art packs name each kind's picture
+    private static final String[] ART_NAMES = {
+            null, "storm", "light_rain", "rain", "snow", "fog", "clear", "light_clouds", "clouds"
+    };
+
+    private static final byte[] KINDS = new byte[LAST_ID - FIRST_ID + 1];
+
+    static {
+        fill(200, 232, STORM);
+        fill(300, 321, LIGHT_RAIN);
+        fill(500, 504, RAIN);
+        fill(511, 511, SNOW);
+        fill(520, 531, RAIN);
+        fill(600, 622, SNOW);
+        // 761 is dust, which has always shown as fog rather than with 781 as a storm
+        fill(701, 761, FOG);
+        fill(781, 781, STORM);
+        fill(800, 800, CLEAR);
+        fill(801, 801, LIGHT_CLOUDS);
+        fill(802, 804, CLOUDS);
+    }
+
+    private static void fill(int first, int last, int kind) {
+        for (int id = first; id <= last; id++) {
+            KINDS[id - FIRST_ID] = (byte) kind;
+        }
+    }
+
+    private WeatherConditions() {
+    }
+
+    /**
+     * @return the kind of weather for a condition code, or {@link #NONE} if there's no picture
+     * for it.
+     */
+    public static int getKind(int weatherId) {
+        if (weatherId < FIRST_ID || weatherId > LAST_ID) {
+            return NONE;
+        }
+        return KINDS[weatherId - FIRST_ID];
+    }
+
+    /**
+     * @return the name an art pack gives a kind of weather's picture, or null for {@link #NONE}.
+     */
+    public static String getArtName(int kind) {
+        return ART_NAMES[kind];
+    }
+}
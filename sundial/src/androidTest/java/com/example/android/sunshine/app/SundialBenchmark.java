@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Debug;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Runs the Sundial renderer against an off-screen canvas, the way the engine would, and measures
+ * what a frame costs.  Each {@link Scenario} is one combination of screen shape, display mode,
+ * weather and layering.
+ */
+public class SundialBenchmark {
+
+    // Round and square surfaces of typical watch sizes
+    static final int ROUND_SIZE = 320;
+    static final int SQUARE_SIZE = 280;
+
+    static final int MODE_INTERACTIVE = 0;
+    static final int MODE_AMBIENT = 1;
+    static final int MODE_LOW_BIT_AMBIENT = 2;
+
+    private static final String[] MODE_NAMES = {"interactive", "ambient", "low-bit"};
+
+    private static final int WARM_UP_FRAMES = 20;
+    private static final long START_TIME = 1419033600000L;  // December 20th, 2014
+
+    public static class Scenario {
+        final boolean round;
+        final int mode;
+        final boolean weather;
+        final boolean layers;
+
+        Scenario(boolean round, int mode, boolean weather, boolean layers) {
+            this.round = round;
+            this.mode = mode;
+            this.weather = weather;
+            this.layers = layers;
+        }
+
+        int size() {
+            return round ? ROUND_SIZE : SQUARE_SIZE;
+        }
+
+        @Override
+        public String toString() {
+            return (round ? "round" : "square") + "/" + MODE_NAMES[mode] + "/" +
+                    (weather ? "weather" : "no-data") + "/" + (layers ? "layered" : "direct");
+        }
+    }
+
+    public static class Result {
+        final Scenario scenario;
+        final long nanosPerFrame;
+        final double allocationsPerFrame;
+        final long bitmapBytes;
+
+        Result(Scenario scenario, long nanosPerFrame, double allocationsPerFrame, long bitmapBytes) {
+            this.scenario = scenario;
+            this.nanosPerFrame = nanosPerFrame;
+            this.allocationsPerFrame = allocationsPerFrame;
+            this.bitmapBytes = bitmapBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-40s %9d ns/frame %6.2f allocs/frame %8d bitmap bytes",
+                    scenario, nanosPerFrame, allocationsPerFrame, bitmapBytes);
+        }
+    }
+
+    /**
+     * @return every combination of shape, mode, weather and layering.
+     */
+    public static List<Scenario> allScenarios() {
+        List<Scenario> scenarios = new ArrayList<Scenario>();
+        for (boolean round : new boolean[]{true, false}) {
+            for (int mode = MODE_INTERACTIVE; mode <= MODE_LOW_BIT_AMBIENT; mode++) {
+                for (boolean weather : new boolean[]{true, false}) {
+                    for (boolean layers : new boolean[]{true, false}) {
+                        scenarios.add(new Scenario(round, mode, weather, layers));
+                    }
+                }
+            }
+        }
+        return scenarios;
+    }
+
+    /**
+     * Draws {@code frames} frames one second apart, so the digits change every minute as they
+     * would on a watch.  Timing and allocation counting run separately so that counting does
+     * not slow down the timed frames.
+     */
+    public static Result run(Context context, Scenario scenario, int frames) {
+        SundialRenderer renderer = new SundialRenderer(context);
+        renderer.setTimeZone(TimeZone.getTimeZone("UTC"));
+        renderer.applyInsets(scenario.round);
+        renderer.setLayersEnabled(scenario.layers);
+        renderer.setLowBitAmbient(scenario.mode == MODE_LOW_BIT_AMBIENT);
+        renderer.setAmbient(scenario.mode != MODE_INTERACTIVE);
+        if (scenario.weather) {
+            renderer.setWeather(new WeatherState(800, 25, 16, 0));
+        } else {
+            renderer.setWeather(null);
+        }
+
+        final int size = scenario.size();
+        Bitmap surface = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(surface);
+        Rect bounds = new Rect(0, 0, size, size);
+        try {
+            long time = START_TIME;
+            for (int i = 0; i < WARM_UP_FRAMES; i++) {
+                renderer.draw(canvas, bounds, time += 1000);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < frames; i++) {
+                renderer.draw(canvas, bounds, time += 1000);
+            }
+            long nanosPerFrame = (System.nanoTime() - start) / frames;
+
+            Debug.resetThreadAllocCount();
+            Debug.startAllocCounting();
+            for (int i = 0; i < frames; i++) {
+                renderer.draw(canvas, bounds, time += 1000);
+            }
+            Debug.stopAllocCounting();
+            double allocationsPerFrame = Debug.getThreadAllocCount() / (double) frames;
+
+            return new Result(scenario, nanosPerFrame, allocationsPerFrame,
+                    renderer.getBitmapByteCount());
+        } finally {
+            renderer.release();
+            surface.recycle();
+        }
+    }
+}
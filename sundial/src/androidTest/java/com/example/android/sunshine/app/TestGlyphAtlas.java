@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.app;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.test.AndroidTestCase;
+
+public class TestGlyphAtlas extends AndroidTestCase {
+
+    private static final char[] TIME = {'1', '2', ':', '3', '4'};
+
+    private Paint createPaint(boolean antiAlias) {
+        Paint paint = new Paint();
+        paint.setTypeface(Typeface.createFromAsset(getContext().getAssets(), "fonts/daniel.ttf"));
+        paint.setTextSize(60);
+        paint.setAntiAlias(antiAlias);
+        return paint;
+    }
+
+    /*
+        The time is centered using the atlas's advances, so they have to agree with the paint.
+     */
+    public void testMeasureMatchesPaint() {
+        Paint paint = createPaint(true);
+        GlyphAtlas atlas = new GlyphAtlas(paint);
+        float expected = 0;
+        for (char c : TIME) {
+            expected += paint.measureText(String.valueOf(c));
+        }
+        assertEquals("Error: Atlas advances differ from the paint's",
+                expected, atlas.measureText(TIME, 0, TIME.length), 0.01f);
+        atlas.recycle();
+    }
+
+    /*
+        Drawing from the atlas should put ink in about the same box as drawing the text.
+     */
+    public void testDrawMatchesText() {
+        for (boolean antiAlias : new boolean[]{true, false}) {
+            Paint paint = createPaint(antiAlias);
+            paint.setColor(Color.WHITE);
+            GlyphAtlas atlas = new GlyphAtlas(paint);
+
+            Bitmap fromText = Bitmap.createBitmap(300, 100, Bitmap.Config.ARGB_8888);
+            new Canvas(fromText).drawText(TIME, 0, TIME.length, 10, 70, paint);
+            Bitmap fromAtlas = Bitmap.createBitmap(300, 100, Bitmap.Config.ARGB_8888);
+            atlas.drawText(new Canvas(fromAtlas), TIME, 0, TIME.length, 10, 70, paint);
+
+            Rect textInk = inkBounds(fromText);
+            Rect atlasInk = inkBounds(fromAtlas);
+            assertFalse("Error: Nothing drawn from the atlas", atlasInk.isEmpty());
+            assertEquals(textInk.left, atlasInk.left, 2);
+            assertEquals(textInk.top, atlasInk.top, 2);
+            assertEquals(textInk.right, atlasInk.right, 2);
+            assertEquals(textInk.bottom, atlasInk.bottom, 2);
+
+            fromText.recycle();
+            fromAtlas.recycle();
+            atlas.recycle();
+        }
+    }
+
+    private static Rect inkBounds(Bitmap bitmap) {
+        int left = bitmap.getWidth(), top = bitmap.getHeight(), right = 0, bottom = 0;
+        for (int y = 0; y < bitmap.getHeight(); y++) {
+            for (int x = 0; x < bitmap.getWidth(); x++) {
+                if (Color.alpha(bitmap.getPixel(x, y)) > 0x80) {
+                    left = Math.min(left, x);
+                    top = Math.min(top, y);
+                    right = Math.max(right, x + 1);
+                    bottom = Math.max(bottom, y + 1);
+                }
+            }
+        }
+        return new Rect(left, top, right, bottom);
+    }
+}
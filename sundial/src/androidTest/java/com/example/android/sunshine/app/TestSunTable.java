@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.app;
+
+import android.os.Debug;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import java.util.Calendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+public class TestSunTable extends AndroidTestCase {
+    private static final String LOG_TAG = TestSunTable.class.getSimpleName();
+
+    private static final long MINUTE_IN_MILLIS = 60 * 1000;
+    private static final long DAY_IN_MILLIS = 24 * 60 * MINUTE_IN_MILLIS;
+    // Published times are to the minute, and refraction at the horizon varies by about that much
+    private static final long EVENT_TOLERANCE = 2 * MINUTE_IN_MILLIS;
+
+    private static final double LONDON_LAT = 51.5074;
+    private static final double LONDON_LONG = -0.1278;
+    private static final double SYDNEY_LAT = -33.8688;
+    private static final double SYDNEY_LONG = 151.2093;
+    private static final double NEW_YORK_LAT = 40.7128;
+    private static final double NEW_YORK_LONG = -74.0060;
+
+    private static long utc(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    /*
+        Sunrise and sunset as published for these places and days, in UTC, to the minute.
+     */
+    public void testEventsMatchReferenceTables() {
+        checkEvents("London, winter solstice", LONDON_LAT, LONDON_LONG,
+                utc(2014, 12, 21, 12, 0), utc(2014, 12, 21, 8, 4), utc(2014, 12, 21, 15, 53));
+        checkEvents("London, summer solstice", LONDON_LAT, LONDON_LONG,
+                utc(2015, 6, 21, 12, 0), utc(2015, 6, 21, 3, 43), utc(2015, 6, 21, 20, 21));
+        checkEvents("Sydney, summer solstice", SYDNEY_LAT, SYDNEY_LONG,
+                utc(2014, 12, 21, 2, 0), utc(2014, 12, 20, 18, 41), utc(2014, 12, 21, 9, 5));
+        checkEvents("New York, equinox", NEW_YORK_LAT, NEW_YORK_LONG,
+                utc(2015, 3, 20, 17, 0), utc(2015, 3, 20, 10, 59), utc(2015, 3, 20, 23, 8));
+    }
+
+    private void checkEvents(String place, double latitude, double longitude, long nearNoon,
+                             long sunrise, long sunset) {
+        SolarPosition position = new SolarPosition();
+        long noon = position.getSolarNoon(nearNoon, longitude);
+        assertEquals("Error: Sunrise off in " + place, sunrise,
+                position.getSunrise(noon, latitude, longitude), EVENT_TOLERANCE);
+        assertEquals("Error: Sunset off in " + place, sunset,
+                position.getSunset(noon, latitude, longitude), EVENT_TOLERANCE);
+    }
+
+    private static void assertEquals(String message, long expected, long actual, long delta) {
+        assertTrue(message + ": expected " + expected + " but was " + actual,
+                Math.abs(expected - actual) <= delta);
+    }
+
+    /*
+        At solar noon the sun is due south of London and due north of Sydney, at 90 degrees
+        less the latitude plus the declination; and solar noon at Greenwich runs 16 minutes
+        early in early November, when the equation of time peaks.
+     */
+    public void testNoon() {
+        SolarPosition position = new SolarPosition();
+
+        long noon = position.getSolarNoon(utc(2015, 6, 21, 12, 0), LONDON_LONG);
+        position.compute(noon, LONDON_LAT, LONDON_LONG);
+        assertEquals("Error: London's noon sun not due south", 180, position.azimuth, 0.5);
+        assertEquals("Error: London's noon sun at the wrong height",
+                90 - LONDON_LAT + 23.44, position.elevation, 0.1);
+
+        noon = position.getSolarNoon(utc(2014, 12, 21, 2, 0), SYDNEY_LONG);
+        position.compute(noon, SYDNEY_LAT, SYDNEY_LONG);
+        double fromNorth = Math.min(position.azimuth, 360 - position.azimuth);
+        assertEquals("Error: Sydney's noon sun not due north", 0, fromNorth, 0.5);
+
+        assertEquals("Error: Equation of time not applied", utc(2015, 11, 3, 11, 43),
+                position.getSolarNoon(utc(2015, 11, 3, 12, 0), 0), MINUTE_IN_MILLIS);
+    }
+
+    /*
+        North of the arctic circle there is no sunrise at the winter solstice.
+     */
+    public void testPolarNight() {
+        SolarPosition position = new SolarPosition();
+        long noon = position.getSolarNoon(utc(2014, 12, 21, 11, 0), 18.9553);
+        assertEquals("Error: Sun rose in Tromso in December", SolarPosition.NO_EVENT,
+                position.getSunrise(noon, 69.6492, 18.9553));
+    }
+
+    /*
+        What a frame reads from the table should be what the full calculation says.
+     */
+    public void testInterpolationMatchesDirectCalculation() {
+        checkInterpolation("London", LONDON_LAT, LONDON_LONG, utc(2015, 6, 21, 0, 0));
+        checkInterpolation("Sydney", SYDNEY_LAT, SYDNEY_LONG, utc(2014, 12, 20, 13, 0));
+    }
+
+    private void checkInterpolation(String place, double latitude, double longitude,
+                                    long start) {
+        SunTable table = new SunTable();
+        table.setLocation(latitude, longitude);
+        table.build(start, start + DAY_IN_MILLIS);
+        assertTrue(table.covers(start));
+        assertFalse(table.covers(start + DAY_IN_MILLIS));
+
+        SolarPosition position = new SolarPosition();
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            long time = start + (long) (random.nextDouble() * DAY_IN_MILLIS);
+            table.setTime(time);
+            position.compute(time, latitude, longitude);
+            if (position.elevation < 1) {
+                // Refraction makes the horizon bumpy and nothing is drawn there anyway
+                continue;
+            }
+            assertEquals("Error: Elevation off in " + place, position.elevation,
+                    table.getElevation(), 0.1);
+            double azimuthError = Math.abs(position.azimuth - table.getAzimuth());
+            assertTrue("Error: Azimuth off by " + azimuthError + " in " + place,
+                    Math.min(azimuthError, 360 - azimuthError) < 0.5);
+            double length = Math.hypot(table.getShadowX(), table.getShadowY());
+            assertEquals("Error: Shadow direction not a unit vector in " + place, 1, length, 0.01);
+        }
+    }
+
+    /*
+        In the afternoon the sun is in the west and the shadow in the east: to the left and right
+        of the noon line in the north, the other way round in the south, where south is up.
+     */
+    public void testShadowFallsAwayFromTheSun() {
+        SunTable table = new SunTable();
+        table.setLocation(LONDON_LAT, LONDON_LONG);
+        long start = utc(2015, 6, 21, 0, 0);
+        table.build(start, start + DAY_IN_MILLIS);
+        table.setTime(utc(2015, 6, 21, 15, 0));
+        assertTrue("Error: London's afternoon sun not on the left", table.getSunX() < 0);
+        assertTrue("Error: London's afternoon shadow not on the right", table.getShadowX() > 0);
+
+        table.setLocation(SYDNEY_LAT, SYDNEY_LONG);
+        start = utc(2014, 12, 20, 13, 0);
+        table.build(start, start + DAY_IN_MILLIS);
+        table.setTime(utc(2014, 12, 21, 5, 0));
+        assertTrue("Error: Sydney's afternoon sun not on the right", table.getSunX() > 0);
+        assertTrue("Error: Sydney's afternoon shadow not on the left", table.getShadowX() < 0);
+    }
+
+    /*
+        Logs what a frame's lookup costs against the full calculation, and checks the lookup
+        allocates nothing.  Only the allocations are asserted on; the timings are for reading on
+        a device.
+     */
+    public void testFrameCost() {
+        SunTable table = new SunTable();
+        table.setLocation(LONDON_LAT, LONDON_LONG);
+        long start = utc(2015, 6, 21, 0, 0);
+        long buildStart = System.nanoTime();
+        table.build(start, start + DAY_IN_MILLIS);
+        long buildNanos = System.nanoTime() - buildStart;
+
+        final int iterations = 100000;
+        final long step = DAY_IN_MILLIS / iterations;
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        long lookupStart = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            table.setTime(start + i * step);
+        }
+        long lookupNanos = (System.nanoTime() - lookupStart) / iterations;
+        Debug.stopAllocCounting();
+        assertEquals("Error: Looking up the sun allocated", 0, Debug.getThreadAllocCount());
+
+        SolarPosition position = new SolarPosition();
+        long computeStart = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            position.compute(start + i * step, LONDON_LAT, LONDON_LONG);
+        }
+        long computeNanos = (System.nanoTime() - computeStart) / iterations;
+        Log.i(LOG_TAG, "build " + buildNanos / 1000 + " us, lookup " + lookupNanos
+                + " ns, full calculation " + computeNanos + " ns");
+    }
+}
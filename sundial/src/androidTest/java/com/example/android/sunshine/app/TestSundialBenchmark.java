@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.app;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+/*
+    Runs every SundialBenchmark scenario and logs a line per scenario.  Frame time is only
+    reported, since it depends on the device, but any allocation in a steady-state frame fails.
+ */
+@LargeTest
+public class TestSundialBenchmark extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestSundialBenchmark.class.getSimpleName();
+
+    private static final int FRAMES = 300;
+
+    public void testAllScenarios() {
+        StringBuilder failures = new StringBuilder();
+        for (SundialBenchmark.Scenario scenario : SundialBenchmark.allScenarios()) {
+            SundialBenchmark.Result result = SundialBenchmark.run(getContext(), scenario, FRAMES);
+            Log.i(LOG_TAG, result.toString());
+            if (result.allocationsPerFrame > 0) {
+                failures.append(scenario).append(' ');
+            }
+        }
+        assertEquals("Error: These scenarios allocate while drawing: " + failures,
+                0, failures.length());
+    }
+}
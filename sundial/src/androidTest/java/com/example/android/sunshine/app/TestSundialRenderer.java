@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.app;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Debug;
+import android.test.AndroidTestCase;
+
+import java.util.TimeZone;
+
+/*
+    Draws frames off screen and checks that, once the renderer has been set up, drawing them
+    allocates nothing.  Allocation counting is per thread, so only the frames themselves count.
+ */
+public class TestSundialRenderer extends AndroidTestCase {
+
+    private static final int SURFACE_SIZE = 320;
+    // Enough frames to cross several minute boundaries, one second apart
+    private static final int FRAMES = 150;
+    private static final long START_TIME = 1419033600000L;  // December 20th, 2014
+    private static final double SYDNEY_LAT = -33.8688;
+    private static final double SYDNEY_LONG = 151.2093;
+
+    private SundialRenderer mRenderer;
+    private Canvas mCanvas;
+    private Rect mBounds;
+    private Bitmap mBitmap;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mRenderer = new SundialRenderer(getContext());
+        mRenderer.setTimeZone(TimeZone.getTimeZone("UTC"));
+        mBitmap = Bitmap.createBitmap(SURFACE_SIZE, SURFACE_SIZE, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mBitmap);
+        mBounds = new Rect(0, 0, SURFACE_SIZE, SURFACE_SIZE);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mBitmap.recycle();
+        super.tearDown();
+    }
+
+    public void testInteractiveFramesDoNotAllocate() {
+        mRenderer.setWeather(new WeatherState(800, 25, 16, 0));
+        assertEquals("Error: Interactive frames with weather allocated", 0, countFrameAllocations());
+    }
+
+    public void testNoDataFramesDoNotAllocate() {
+        mRenderer.setWeather(null);
+        assertEquals("Error: Interactive frames without weather allocated", 0, countFrameAllocations());
+    }
+
+    public void testAmbientFramesDoNotAllocate() {
+        mRenderer.setWeather(new WeatherState(500, 12, 8, 0));
+        mRenderer.setLowBitAmbient(true);
+        mRenderer.setBurnInProtection(true);
+        mRenderer.setAmbient(true);
+        assertEquals("Error: Ambient frames allocated", 0, countFrameAllocations());
+    }
+
+    /*
+        Burn-in protection moves the ambient face one step a minute, never staying put, round
+        a cycle that lines up with midnight so there's no jump there either.
+     */
+    public void testBurnInShift() {
+        for (int minute = 1; minute <= 24 * 60; minute++) {
+            int dx = SundialRenderer.getBurnInShiftX(minute)
+                    - SundialRenderer.getBurnInShiftX(minute - 1);
+            int dy = SundialRenderer.getBurnInShiftY(minute)
+                    - SundialRenderer.getBurnInShiftY(minute - 1);
+            assertTrue("Error: Ambient face jumped at minute " + minute,
+                    Math.abs(dx) <= 1 && Math.abs(dy) <= 1);
+            assertTrue("Error: Ambient face didn't move at minute " + minute, dx != 0 || dy != 0);
+        }
+        assertEquals("Error: Shift differs across midnight",
+                SundialRenderer.getBurnInShiftX(0), SundialRenderer.getBurnInShiftX(24 * 60));
+    }
+
+    /*
+        The ambient frame is a mask of one byte a pixel, on top of what the interactive face
+        holds.
+     */
+    public void testAmbientFrameIsAMask() {
+        mRenderer.setWeather(new WeatherState(800, 25, 16, 0));
+        mRenderer.draw(mCanvas, mBounds, START_TIME);
+        long interactive = mRenderer.getBitmapByteCount();
+        mRenderer.setAmbient(true);
+        mRenderer.draw(mCanvas, mBounds, START_TIME);
+        assertTrue("Error: Ambient frame takes more than a byte a pixel",
+                mRenderer.getBitmapByteCount() - interactive <= SURFACE_SIZE * SURFACE_SIZE);
+    }
+
+    /*
+        The sun and its shadow come from a table built before drawing; it's midday in Sydney, so
+        both are drawn.
+     */
+    public void testSundialFramesDoNotAllocate() {
+        mRenderer.setShowSundial(true);
+        mRenderer.setWeather(new WeatherState(800, 25, 16, 0, SYDNEY_LAT, SYDNEY_LONG));
+        mRenderer.prepareSun(START_TIME);
+        assertEquals("Error: Sundial frames allocated", 0, countFrameAllocations());
+    }
+
+    /*
+        The static layer is an optimization only: a layered frame must be pixel for pixel what
+        drawing everything directly produces.
+     */
+    public void testLayeredFramesMatchDirectFrames() {
+        mRenderer.setWeather(new WeatherState(801, 19, 11, 0));
+        checkLayeredMatchesDirect("interactive");
+        mRenderer.setWeather(null);
+        checkLayeredMatchesDirect("no data");
+        mRenderer.setShowSundial(true);
+        mRenderer.setWeather(new WeatherState(801, 19, 11, 0, SYDNEY_LAT, SYDNEY_LONG));
+        mRenderer.prepareSun(START_TIME);
+        checkLayeredMatchesDirect("sundial");
+        mRenderer.setWeather(new WeatherState(500, 12, 8, 0), true);
+        checkLayeredMatchesDirect("stale");
+        mRenderer.setWeather(new WeatherState(600, -2, -9, 0));
+        mRenderer.setAmbient(true);
+        checkLayeredMatchesDirect("ambient");
+        mRenderer.setLowBitAmbient(true);
+        mRenderer.setBurnInProtection(true);
+        checkLayeredMatchesDirect("low-bit ambient");
+    }
+
+    /*
+        The background is decoded at the surface size as RGB_565, not at the resource's density
+        scaled size, and with the static layer that's most of what the face holds.
+     */
+    public void testBitmapsSizedToSurface() {
+        mRenderer.setWeather(new WeatherState(800, 25, 16, 0));
+        assertEquals("Error: Bitmaps held before the first frame", 0,
+                mRenderer.getBitmapByteCount());
+        mRenderer.draw(mCanvas, mBounds, START_TIME);
+
+        long background = SURFACE_SIZE * SURFACE_SIZE * 2;
+        long staticLayer = SURFACE_SIZE * SURFACE_SIZE * 4;
+        long held = mRenderer.getBitmapByteCount();
+        assertTrue("Error: Renderer holds " + held + " bytes for a " + SURFACE_SIZE
+                + " pixel surface", held < (background + staticLayer) * 3 / 2);
+    }
+
+    /*
+        The engine releases everything when it's hidden; the next frame must look the same.
+     */
+    public void testReleaseFreesBitmaps() {
+        mRenderer.setWeather(new WeatherState(500, 12, 8, 0));
+        mRenderer.draw(mCanvas, mBounds, START_TIME);
+        Bitmap before = mBitmap.copy(Bitmap.Config.ARGB_8888, false);
+
+        mRenderer.release();
+        assertEquals("Error: Bitmaps held after release", 0, mRenderer.getBitmapByteCount());
+
+        mRenderer.draw(mCanvas, mBounds, START_TIME);
+        assertTrue("Error: Frame after release differs", before.sameAs(mBitmap));
+        before.recycle();
+    }
+
+    private void checkLayeredMatchesDirect(String mode) {
+        Bitmap direct = Bitmap.createBitmap(SURFACE_SIZE, SURFACE_SIZE, Bitmap.Config.ARGB_8888);
+        mRenderer.setLayersEnabled(false);
+        mRenderer.draw(new Canvas(direct), mBounds, START_TIME);
+        mRenderer.setLayersEnabled(true);
+        mRenderer.draw(mCanvas, mBounds, START_TIME);
+        assertTrue("Error: Layered " + mode + " frame differs from the direct one",
+                direct.sameAs(mBitmap));
+        direct.recycle();
+    }
+
+    /*
+        Draws one warm-up frame, so any caches the renderer builds lazily are filled, then counts
+        what FRAMES more frames allocate.
+     */
+    private int countFrameAllocations() {
+        mRenderer.draw(mCanvas, mBounds, START_TIME);
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (int i = 1; i <= FRAMES; i++) {
+            mRenderer.draw(mCanvas, mBounds, START_TIME + i * 1000L);
+        }
+        Debug.stopAllocCounting();
+        return Debug.getThreadAllocCount();
+    }
+}
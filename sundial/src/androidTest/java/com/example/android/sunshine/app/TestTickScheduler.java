@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.app;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+/*
+    Plays an hour of interactive mode through the scheduler and counts the wakeups, then puts a
+    CPU cost on them using the renderer benchmark's frame time.
+ */
+public class TestTickScheduler extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestTickScheduler.class.getSimpleName();
+
+    private static final long HOUR_IN_MILLIS = 60 * TickScheduler.MINUTE_IN_MILLIS;
+    // Not on a minute boundary, as when the face is first shown
+    private static final long START_TIME = 1419033600000L + 12345;
+
+    public void testMinuteTicksWithoutSeconds() {
+        TickScheduler scheduler = new TickScheduler();
+        long wakeups = wakeupsInAnHour(scheduler);
+        // Once per minute, and the first one lines up with the minute boundary
+        assertEquals("Error: Without seconds the face should wake once a minute", 60, wakeups);
+        assertEquals(START_TIME - START_TIME % TickScheduler.MINUTE_IN_MILLIS
+                        + TickScheduler.MINUTE_IN_MILLIS,
+                scheduler.getNextTickMillis(START_TIME));
+    }
+
+    public void testSecondTicksWithSeconds() {
+        TickScheduler scheduler = new TickScheduler();
+        scheduler.setShowSeconds(true);
+        assertEquals("Error: With seconds the face should wake once a second",
+                3600, wakeupsInAnHour(scheduler));
+    }
+
+    public void testEventWakesBeforeMinute() {
+        TickScheduler scheduler = new TickScheduler();
+        long event = START_TIME + 5000;
+        scheduler.scheduleEvent(event);
+        assertEquals("Error: A scheduled event should wake the face early",
+                event, scheduler.getNextTickMillis(START_TIME));
+        // Once the event has passed, ticks go back to the minute
+        long next = scheduler.getNextTickMillis(event);
+        assertEquals(0, next % TickScheduler.MINUTE_IN_MILLIS);
+        assertEquals(61, wakeupsInAnHour(withEvent(event)));
+    }
+
+    /*
+        Logs the estimated CPU cost of an hour of ticks, before (every second) and after (every
+        minute), using the measured cost of a layered interactive frame.
+     */
+    public void testWakeupCostPerHour() {
+        SundialBenchmark.Result frame = SundialBenchmark.run(getContext(),
+                new SundialBenchmark.Scenario(true, SundialBenchmark.MODE_INTERACTIVE, true, true),
+                120);
+        TickScheduler everySecond = new TickScheduler();
+        everySecond.setShowSeconds(true);
+        long before = wakeupsInAnHour(everySecond);
+        long after = wakeupsInAnHour(new TickScheduler());
+        Log.i(LOG_TAG, "wakeups per hour: " + before + " -> " + after +
+                ", draw ms per hour: " + before * frame.nanosPerFrame / 1000000 +
+                " -> " + after * frame.nanosPerFrame / 1000000);
+        assertTrue(after < before);
+    }
+
+    private static TickScheduler withEvent(long eventMillis) {
+        TickScheduler scheduler = new TickScheduler();
+        scheduler.scheduleEvent(eventMillis);
+        return scheduler;
+    }
+
+    private static long wakeupsInAnHour(TickScheduler scheduler) {
+        long wakeups = 0;
+        long now = START_TIME;
+        while ((now = scheduler.getNextTickMillis(now)) <= START_TIME + HOUR_IN_MILLIS) {
+            wakeups++;
+        }
+        return wakeups;
+    }
+}
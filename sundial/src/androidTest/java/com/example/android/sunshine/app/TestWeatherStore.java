@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.shared.WearForecast;
+
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestWeatherStore extends AndroidTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        getContext().getSharedPreferences(WeatherStore.PREFS_NAME, Context.MODE_PRIVATE)
+                .edit().clear().commit();
+    }
+
+    public void testParse() {
+        WeatherState state = WeatherState.parse("500;12;-3", 1234L);
+        assertNotNull("Error: Well-formed message not parsed", state);
+        assertEquals(500, state.weatherId);
+        assertEquals(12, state.high);
+        assertEquals(-3, state.low);
+        assertEquals(1234L, state.receivedMillis);
+
+        assertNull("Error: NoData parsed as weather", WeatherState.parse("NoData", 0));
+        assertNull("Error: Short message parsed as weather", WeatherState.parse("500;12", 0));
+        assertNull("Error: Non-numeric message parsed as weather",
+                WeatherState.parse("500;warm;cold", 0));
+    }
+
+    /*
+        The watch shows today's day from the phone's forecast, converted to the user's units.
+     */
+    public void testFromForecast() {
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        long dayMillis = 24 * 60 * 60 * 1000L;
+        WearForecast forecast = new WearForecast(false, 77L, new WearForecast.Day[]{
+                new WearForecast.Day(100, 500, 10.0, 0.0),
+                new WearForecast.Day(101, 800, 20.0, 5.0)
+        }, 51.5074, -0.1278);
+
+        WeatherState today = WeatherState.fromForecast(forecast, 101 * dayMillis + 1000, utc);
+        assertNotNull("Error: Today's weather not found", today);
+        assertEquals(800, today.weatherId);
+        assertEquals("Error: High not converted to Fahrenheit", 68, today.high);
+        assertEquals("Error: Low not converted to Fahrenheit", 41, today.low);
+        assertEquals(77L, today.receivedMillis);
+        assertEquals("Error: Location not carried over", 51.5074, today.latitude, 0);
+
+        assertNull("Error: Weather found for a day after the forecast",
+                WeatherState.fromForecast(forecast, 102 * dayMillis, utc));
+    }
+
+    /*
+        A new store, like one in a restarted process, should start from what was last received.
+     */
+    public void testStateSurvivesRestart() throws InterruptedException {
+        WeatherStore store = new WeatherStore(getContext());
+        assertNull("Error: Store has weather before any was received", store.get());
+
+        store.update(new WeatherState(801, 19, 11, 5000L, 51.5074, -0.1278));
+        // Writes are asynchronous; give them a moment to land
+        Thread.sleep(500);
+
+        WeatherState restored = new WeatherStore(getContext()).get();
+        assertNotNull("Error: Weather not restored", restored);
+        assertTrue("Error: Restored weather differs",
+                restored.sameWeatherAs(new WeatherState(801, 19, 11, 0, 51.5074, -0.1278)));
+        assertEquals(5000L, restored.receivedMillis);
+    }
+
+    /*
+        The face moves on to tomorrow's weather at midnight from what it already has.
+     */
+    public void testRollsOverAtMidnight() {
+        TimeZone timeZone = TimeZone.getDefault();
+        long now = System.currentTimeMillis();
+        int today = WeatherState.getEpochDay(now, timeZone);
+        WeatherStore store = new WeatherStore(getContext());
+        store.update(new WearForecast(true, now, new WearForecast.Day[]{
+                new WearForecast.Day(today, 500, 10.0, 2.0),
+                new WearForecast.Day(today + 1, 800, 20.0, 5.0)
+        }));
+
+        long midnight = WeatherState.getNextDayMillis(now, timeZone);
+        assertEquals("Error: Wrong weather before midnight", 500,
+                store.get(midnight - 1, timeZone).weatherId);
+        assertEquals("Error: Weather didn't roll over at midnight", 800,
+                store.get(midnight, timeZone).weatherId);
+    }
+
+    /*
+        Past the end of the forecast, the last day is still shown, as stale.
+     */
+    public void testOfflineFallback() {
+        TimeZone timeZone = TimeZone.getDefault();
+        long now = System.currentTimeMillis();
+        int today = WeatherState.getEpochDay(now, timeZone);
+        long fetched = now - 3 * 24 * 60 * 60 * 1000L;
+        WeatherStore store = new WeatherStore(getContext());
+        store.update(new WearForecast(true, fetched, new WearForecast.Day[]{
+                new WearForecast.Day(today - 3, 500, 10.0, 2.0),
+                new WearForecast.Day(today - 2, 600, -1.0, -5.0)
+        }));
+
+        WeatherState state = store.get(now, timeZone);
+        assertNotNull("Error: Nothing shown once the forecast ran out", state);
+        assertEquals(600, state.weatherId);
+        assertTrue("Error: Old weather not stale", state.isStale(now));
+        assertFalse("Error: Fresh weather stale",
+                new WeatherState(800, 25, 16, now).isStale(now + 60 * 1000));
+    }
+
+    /*
+        Days already over are dropped, and at most MAX_DAYS are kept.
+     */
+    public void testTrim() {
+        WearForecast.Day[] days = new WearForecast.Day[40];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = new WearForecast.Day(100 + i, 800, 20.0, 10.0);
+        }
+        WearForecast trimmed = WeatherStore.trim(new WearForecast(true, 0, days), 105);
+        assertEquals("Error: Store not bounded", WeatherStore.MAX_DAYS, trimmed.days.length);
+        assertEquals("Error: Past days kept", 105, trimmed.days[0].epochDay);
+
+        WearForecast past = new WearForecast(true, 0, new WearForecast.Day[]{days[0], days[1]});
+        assertEquals("Error: Every day dropped", 1, WeatherStore.trim(past, 200).days.length);
+    }
+
+    /*
+        Weather saved by a version that kept only one day is still shown after an upgrade.
+     */
+    public void testReadsLegacyPreferences() {
+        getContext().getSharedPreferences(WeatherStore.PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putString("weatherid", "801")
+                .putString("high", "72")
+                .putString("low", "55")
+                .commit();
+
+        WeatherState state = new WeatherStore(getContext()).get();
+        assertNotNull("Error: Legacy weather not read", state);
+        assertTrue("Error: Legacy weather misread",
+                state.sameWeatherAs(new WeatherState(801, 72, 55, 0)));
+        assertTrue("Error: Undated legacy weather not stale",
+                state.isStale(System.currentTimeMillis()));
+    }
+
+    /*
+        The phone re-sends the same weather after every sync; that shouldn't redraw the face.
+     */
+    public void testRepeatedWeatherNotifiesOnce() throws InterruptedException {
+        WeatherStore store = new WeatherStore(getContext());
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch changed = new CountDownLatch(2);
+        store.addListener(new WeatherStore.Listener() {
+            @Override
+            public void onWeatherChanged(WeatherState state) {
+                calls.incrementAndGet();
+                changed.countDown();
+            }
+        });
+
+        store.update(new WeatherState(800, 25, 16, 1L));
+        store.update(new WeatherState(800, 25, 16, 2L));
+        store.update(new WeatherState(800, 25, 16, 3L));
+        store.update(new WeatherState(500, 12, 8, 4L));
+
+        assertTrue("Error: Listener not called", changed.await(2, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals("Error: Listener called for unchanged weather", 2, calls.get());
+        assertEquals("Error: Latest arrival time not kept", 4L, store.get().receivedMillis);
+    }
+
+    /*
+        The same days fetched again freshen a face that was showing them as stale, which would
+        otherwise wait until midnight to look.
+     */
+    public void testRefetchedWeatherNoLongerStale() throws InterruptedException {
+        TimeZone timeZone = TimeZone.getDefault();
+        long now = System.currentTimeMillis();
+        int today = WeatherState.getEpochDay(now, timeZone);
+        WearForecast.Day[] days = {
+                new WearForecast.Day(today, 500, 10.0, 2.0),
+                new WearForecast.Day(today + 1, 800, 20.0, 5.0)
+        };
+        WeatherStore store = new WeatherStore(getContext());
+        store.update(new WearForecast(true, now - 2 * WeatherState.STALE_AFTER_MILLIS, days));
+        assertTrue("Error: Old forecast not stale", store.get().isStale(now));
+        // Let the first forecast's notification go by before listening
+        Thread.sleep(200);
+
+        final CountDownLatch changed = new CountDownLatch(1);
+        store.addListener(new WeatherStore.Listener() {
+            @Override
+            public void onWeatherChanged(WeatherState state) {
+                changed.countDown();
+            }
+        });
+        store.update(new WearForecast(true, now, days));
+
+        assertTrue("Error: Listener not told the weather is fresh again",
+                changed.await(2, TimeUnit.SECONDS));
+        assertFalse("Error: Refetched weather still stale",
+                store.get().isStale(System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.android.sunshine.shared.ForecastRequester;
+import com.example.android.sunshine.shared.MessageApiTransport;
+import com.example.android.sunshine.shared.WearForecast;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.MessageApi;
+import com.google.android.gms.wearable.MessageEvent;
+import com.google.android.gms.wearable.Wearable;
+
+/**
+ * Asks the phone for its forecast, for when the face has nothing current to show and can't
+ * wait for the next push.  The answer goes into {@link WeatherStore} like a pushed one.
+ * Everything runs on the main thread.
+ */
+public class ForecastPuller implements GoogleApiClient.ConnectionCallbacks,
+        MessageApi.MessageListener {
+
+    static final long TIMEOUT_MILLIS = 10 * 1000;
+
+    private final Context mContext;
+    private final GoogleApiClient mApiClient;
+    private final ForecastRequester mRequester;
+    private boolean mPullWanted;
+
+    public ForecastPuller(Context context) {
+        mContext = context.getApplicationContext();
+        mApiClient = new GoogleApiClient.Builder(mContext)
+                .addApi(Wearable.API)
+                .addConnectionCallbacks(this)
+                .build();
+        mRequester = new ForecastRequester(new MessageApiTransport(mApiClient),
+                new Handler(Looper.getMainLooper()));
+    }
+
+    /**
+     * Asks the phone for the forecast, connecting first if need be.
+     */
+    public void pull() {
+        if (mApiClient.isConnected()) {
+            request();
+        } else {
+            mPullWanted = true;
+            mApiClient.connect();
+        }
+    }
+
+    private void request() {
+        mRequester.request(TIMEOUT_MILLIS, new ForecastRequester.Callback() {
+            @Override
+            public void onForecast(WearForecast forecast) {
+                if (null == forecast) {
+                    return;
+                }
+                WeatherStore.getInstance(mContext).update(forecast);
+            }
+        });
+    }
+
+    @Override
+    public void onConnected(Bundle bundle) {
+        Wearable.MessageApi.addListener(mApiClient, this);
+        if (mPullWanted) {
+            mPullWanted = false;
+            request();
+        }
+    }
+
+    @Override
+    public void onConnectionSuspended(int cause) {
+    }
+
+    @Override
+    public void onMessageReceived(MessageEvent messageEvent) {
+        mRequester.onMessageReceived(messageEvent.getSourceNodeId(), messageEvent.getPath(),
+                messageEvent.getData());
+    }
+
+    public void release() {
+        mPullWanted = false;
+        if (mApiClient.isConnected()) {
+            Wearable.MessageApi.removeListener(mApiClient, this);
+        }
+        mApiClient.disconnect();
+    }
+}
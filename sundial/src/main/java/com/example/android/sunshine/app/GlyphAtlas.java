@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.app;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * The digits 0-9 and the colon, rasterized once into a single alpha bitmap, so drawing the time
+ * is a few bitmap blits instead of shaping and rasterizing text every frame.
+ *
+ * An atlas is tied to the typeface, text size and anti-alias setting of the paint it was built
+ * from.  It is drawn with the color of the paint passed to {@link #drawText}.
+ */
+public class GlyphAtlas {
+
+    private static final String GLYPHS = "0123456789:";
+    private static final int COLON = 10;
+    // Room around each glyph for anti-aliasing and overhang past the advance
+    private static final int PADDING = 2;
+
+    private final Bitmap mBitmap;
+    private final Rect[] mSourceRects = new Rect[GLYPHS.length()];
+    private final float[] mAdvances = new float[GLYPHS.length()];
+    private final boolean mAntiAlias;
+    private final float mAscent;
+    private final RectF mDestRect = new RectF();
+
+    public GlyphAtlas(Paint textPaint) {
+        Paint paint = new Paint(textPaint);
+        paint.setColor(0xFFFFFFFF);
+        mAntiAlias = paint.isAntiAlias();
+
+        Paint.FontMetrics metrics = paint.getFontMetrics();
+        mAscent = metrics.ascent;
+        int cellHeight = (int) Math.ceil(metrics.descent - metrics.ascent) + 2 * PADDING;
+
+        int atlasWidth = 0;
+        int[] cellWidths = new int[GLYPHS.length()];
+        for (int i = 0; i < GLYPHS.length(); i++) {
+            mAdvances[i] = paint.measureText(GLYPHS, i, i + 1);
+            cellWidths[i] = (int) Math.ceil(mAdvances[i]) + 2 * PADDING;
+            atlasWidth += cellWidths[i];
+        }
+
+        mBitmap = Bitmap.createBitmap(atlasWidth, cellHeight, Bitmap.Config.ALPHA_8);
+        Canvas canvas = new Canvas(mBitmap);
+        int x = 0;
+        for (int i = 0; i < GLYPHS.length(); i++) {
+            canvas.drawText(GLYPHS, i, i + 1, x + PADDING, PADDING - mAscent, paint);
+            mSourceRects[i] = new Rect(x, 0, x + cellWidths[i], cellHeight);
+            x += cellWidths[i];
+        }
+    }
+
+    private static int indexOf(char c) {
+        return c == ':' ? COLON : c - '0';
+    }
+
+    /**
+     * @return the width the characters take up when drawn.
+     */
+    public float measureText(char[] text, int start, int count) {
+        float width = 0;
+        for (int i = start; i < start + count; i++) {
+            width += mAdvances[indexOf(text[i])];
+        }
+        return width;
+    }
+
+    /**
+     * Draws digits and colons with their baseline at {@code y}, like Canvas.drawText.
+     */
+    public void drawText(Canvas canvas, char[] text, int start, int count, float x, float y,
+                         Paint paint) {
+        float top = y + mAscent - PADDING;
+        if (!mAntiAlias) {
+            // Keep aliased glyphs on whole pixels so they stay crisp
+            top = Math.round(top);
+        }
+        for (int i = start; i < start + count; i++) {
+            int glyph = indexOf(text[i]);
+            Rect source = mSourceRects[glyph];
+            float left = mAntiAlias ? x - PADDING : Math.round(x - PADDING);
+            mDestRect.set(left, top, left + source.width(), top + source.height());
+            canvas.drawBitmap(mBitmap, source, mDestRect, paint);
+            x += mAdvances[glyph];
+        }
+    }
+
+    public int getByteCount() {
+        return mBitmap.getAllocationByteCount();
+    }
+
+    public void recycle() {
+        mBitmap.recycle();
+    }
+}
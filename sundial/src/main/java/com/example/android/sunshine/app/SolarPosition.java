@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.app;
+
+/**
+ * Where the sun is in the sky, from NOAA's solar calculator equations (after Meeus,
+ * Astronomical Algorithms).  Between 1900 and 2100 positions are good to about a hundredth of a
+ * degree and sunrise and sunset to about a minute, which is as well as refraction at the horizon
+ * can be known anyway.
+ *
+ * This does the trigonometry; {@link SunTable} keeps a day of its results so frames don't have
+ * to.  {@link #compute} writes into the fields below rather than returning a new object.
+ */
+public class SolarPosition {
+
+    /**
+     * Returned by {@link #getSunrise} and {@link #getSunset} on days the sun never rises or
+     * never sets.
+     */
+    public static final long NO_EVENT = Long.MIN_VALUE;
+
+    private static final long MINUTE_IN_MILLIS = 60 * 1000;
+    private static final long DAY_IN_MILLIS = 24 * 60 * MINUTE_IN_MILLIS;
+    private static final double JULIAN_DAY_AT_EPOCH = 2440587.5;
+    private static final double JULIAN_DAY_AT_J2000 = 2451545.0;
+    // The sun's center is this far below the horizon at sunrise and sunset: its radius and
+    // average refraction
+    private static final double HORIZON_ZENITH = Math.toRadians(90.833);
+
+    // Results of the last compute(), in degrees
+    public double declination;
+    public double hourAngle;
+    public double elevation;
+    // Clockwise from north
+    public double azimuth;
+    // Apparent solar time less mean solar time, in minutes
+    public double equationOfTime;
+
+    /**
+     * Works out the sun's position at a time and place.
+     *
+     * @param latitude degrees north
+     * @param longitude degrees east
+     */
+    public void compute(long timeMillis, double latitude, double longitude) {
+        computeOrbit(timeMillis);
+
+        double minuteOfDay = ((timeMillis % DAY_IN_MILLIS + DAY_IN_MILLIS) % DAY_IN_MILLIS)
+                / (double) MINUTE_IN_MILLIS;
+        double trueSolarMinutes = minuteOfDay + equationOfTime + 4 * longitude;
+        trueSolarMinutes = ((trueSolarMinutes % 1440) + 1440) % 1440;
+        hourAngle = trueSolarMinutes / 4 - 180;
+
+        double lat = Math.toRadians(latitude);
+        double decl = Math.toRadians(declination);
+        double ha = Math.toRadians(hourAngle);
+        double cosZenith = Math.sin(lat) * Math.sin(decl)
+                + Math.cos(lat) * Math.cos(decl) * Math.cos(ha);
+        cosZenith = Math.max(-1, Math.min(1, cosZenith));
+        double trueElevation = 90 - Math.toDegrees(Math.acos(cosZenith));
+        elevation = trueElevation + refraction(trueElevation);
+
+        azimuth = Math.toDegrees(Math.atan2(Math.sin(ha),
+                Math.cos(ha) * Math.sin(lat) - Math.tan(decl) * Math.cos(lat))) + 180;
+        if (azimuth >= 360) {
+            azimuth -= 360;
+        }
+    }
+
+    /**
+     * Fills in the declination and equation of time, which depend only on the time.
+     */
+    private void computeOrbit(long timeMillis) {
+        double julianDay = timeMillis / (double) DAY_IN_MILLIS + JULIAN_DAY_AT_EPOCH;
+        double t = (julianDay - JULIAN_DAY_AT_J2000) / 36525;
+
+        double meanLongitude = (280.46646 + t * (36000.76983 + t * 0.0003032)) % 360;
+        double meanAnomaly = Math.toRadians(357.52911 + t * (35999.05029 - 0.0001537 * t));
+        double eccentricity = 0.016708634 - t * (0.000042037 + 0.0000001267 * t);
+        double center = Math.sin(meanAnomaly) * (1.914602 - t * (0.004817 + 0.000014 * t))
+                + Math.sin(2 * meanAnomaly) * (0.019993 - 0.000101 * t)
+                + Math.sin(3 * meanAnomaly) * 0.000289;
+        double omega = Math.toRadians(125.04 - 1934.136 * t);
+        double apparentLongitude = Math.toRadians(
+                meanLongitude + center - 0.00569 - 0.00478 * Math.sin(omega));
+        double meanObliquity = 23 + (26 + (21.448
+                - t * (46.815 + t * (0.00059 - t * 0.001813))) / 60) / 60;
+        double obliquity = Math.toRadians(meanObliquity + 0.00256 * Math.cos(omega));
+
+        declination = Math.toDegrees(
+                Math.asin(Math.sin(obliquity) * Math.sin(apparentLongitude)));
+
+        double y = Math.tan(obliquity / 2) * Math.tan(obliquity / 2);
+        double l0 = Math.toRadians(meanLongitude);
+        equationOfTime = 4 * Math.toDegrees(y * Math.sin(2 * l0)
+                - 2 * eccentricity * Math.sin(meanAnomaly)
+                + 4 * eccentricity * y * Math.sin(meanAnomaly) * Math.cos(2 * l0)
+                - 0.5 * y * y * Math.sin(4 * l0)
+                - 1.25 * eccentricity * eccentricity * Math.sin(2 * meanAnomaly));
+    }
+
+    /**
+     * @return how much the atmosphere lifts the sun at this true elevation, in degrees.
+     */
+    private static double refraction(double elevation) {
+        if (elevation > 85) {
+            return 0;
+        }
+        double te = Math.tan(Math.toRadians(elevation));
+        double arcSeconds;
+        if (elevation > 5) {
+            arcSeconds = 58.1 / te - 0.07 / (te * te * te) + 0.000086 / (te * te * te * te * te);
+        } else if (elevation > -0.575) {
+            arcSeconds = 1735 + elevation * (-518.2 + elevation * (103.4
+                    + elevation * (-12.79 + elevation * 0.711)));
+        } else {
+            arcSeconds = -20.772 / te;
+        }
+        return arcSeconds / 3600;
+    }
+
+    /**
+     * @return the solar noon closest to the given time, at a longitude in degrees east.
+     */
+    public long getSolarNoon(long nearMillis, double longitude) {
+        long noon = nearMillis;
+        // The equation of time changes by under a minute a day, so this settles at once
+        for (int i = 0; i < 3; i++) {
+            computeOrbit(noon);
+            long utcMidnight = Math.round(Math.floor(noon / (double) DAY_IN_MILLIS)) * DAY_IN_MILLIS;
+            long estimate = utcMidnight
+                    + Math.round((720 - 4 * longitude - equationOfTime) * MINUTE_IN_MILLIS);
+            while (estimate - nearMillis > DAY_IN_MILLIS / 2) estimate -= DAY_IN_MILLIS;
+            while (nearMillis - estimate > DAY_IN_MILLIS / 2) estimate += DAY_IN_MILLIS;
+            noon = estimate;
+        }
+        return noon;
+    }
+
+    /**
+     * @return the sunrise before the given solar noon, or {@link #NO_EVENT}.
+     */
+    public long getSunrise(long solarNoonMillis, double latitude, double longitude) {
+        return getHorizonCrossing(solarNoonMillis, latitude, longitude, -1);
+    }
+
+    /**
+     * @return the sunset after the given solar noon, or {@link #NO_EVENT}.
+     */
+    public long getSunset(long solarNoonMillis, double latitude, double longitude) {
+        return getHorizonCrossing(solarNoonMillis, latitude, longitude, 1);
+    }
+
+    private long getHorizonCrossing(long solarNoonMillis, double latitude, double longitude,
+                                    int direction) {
+        double lat = Math.toRadians(latitude);
+        long time = solarNoonMillis;
+        // Each pass uses the declination at the previous estimate
+        for (int i = 0; i < 4; i++) {
+            computeOrbit(time);
+            double decl = Math.toRadians(declination);
+            double cosHourAngle = Math.cos(HORIZON_ZENITH) / (Math.cos(lat) * Math.cos(decl))
+                    - Math.tan(lat) * Math.tan(decl);
+            if (cosHourAngle < -1 || cosHourAngle > 1) {
+                return NO_EVENT;
+            }
+            double hourAngle = Math.toDegrees(Math.acos(cosHourAngle));
+            time = getSolarNoon(time, longitude)
+                    + direction * Math.round(hourAngle * 4 * MINUTE_IN_MILLIS);
+        }
+        return time;
+    }
+}
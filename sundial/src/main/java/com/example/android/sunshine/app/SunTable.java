@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.app;
+
+/**
+ * One local day of the sun's path at one place, sampled every {@value #SAMPLE_MINUTES} minutes,
+ * so that a frame finds the sun with a lookup and a linear interpolation instead of
+ * {@link SolarPosition}'s trigonometry.  Building the table is the expensive part and happens
+ * once a day; {@link #setTime} allocates nothing.
+ *
+ * Directions are unit vectors in face coordinates, x right and y down, for a horizontal
+ * sundial turned so that the noon shadow points to the top of the face: north up in the
+ * northern hemisphere, south up in the southern.  The shadow is the one a style parallel to the
+ * Earth's axis casts, so its direction depends only on the hour angle and it tells solar time.
+ */
+public class SunTable {
+
+    static final int SAMPLE_MINUTES = 10;
+    private static final long SAMPLE_MILLIS = SAMPLE_MINUTES * 60 * 1000;
+    // Long enough for the 25 hour day at the end of daylight saving time, plus the end point
+    private static final int MAX_SAMPLES = 26 * 60 / SAMPLE_MINUTES + 1;
+
+    // Solar hours with a mark on the dial, which covers daylight everywhere but near the poles
+    static final int FIRST_HOUR_MARK = 4;
+    static final int LAST_HOUR_MARK = 20;
+
+    private final SolarPosition mPosition = new SolarPosition();
+
+    private final float[] mElevation = new float[MAX_SAMPLES];
+    private final float[] mAzimuth = new float[MAX_SAMPLES];
+    private final float[] mSunX = new float[MAX_SAMPLES];
+    private final float[] mSunY = new float[MAX_SAMPLES];
+    private final float[] mShadowX = new float[MAX_SAMPLES];
+    private final float[] mShadowY = new float[MAX_SAMPLES];
+    private final float[] mHourMarks = new float[(LAST_HOUR_MARK - FIRST_HOUR_MARK + 1) * 2];
+
+    private double mLatitude = Double.NaN;
+    private double mLongitude = Double.NaN;
+    private long mStartMillis;
+    private long mEndMillis;
+    private boolean mValid;
+
+    private long mSunriseMillis;
+    private long mSolarNoonMillis;
+    private long mSunsetMillis;
+
+    // Results of the last setTime()
+    private float mCurrentElevation;
+    private float mCurrentAzimuth;
+    private float mCurrentSunX;
+    private float mCurrentSunY;
+    private float mCurrentShadowX;
+    private float mCurrentShadowY;
+
+    /**
+     * Moves the table to a new place, or to none if either coordinate is NaN.  It must be
+     * rebuilt before it is used again.
+     */
+    public void setLocation(double latitude, double longitude) {
+        if (Double.compare(latitude, mLatitude) == 0
+                && Double.compare(longitude, mLongitude) == 0) {
+            return;
+        }
+        mLatitude = latitude;
+        mLongitude = longitude;
+        mValid = false;
+        if (!hasLocation()) {
+            return;
+        }
+
+        int i = 0;
+        for (int hour = FIRST_HOUR_MARK; hour <= LAST_HOUR_MARK; hour++) {
+            double angle = getShadowAngle(15.0 * (hour - 12));
+            mHourMarks[i++] = (float) Math.sin(angle);
+            mHourMarks[i++] = (float) -Math.cos(angle);
+        }
+    }
+
+    /**
+     * Marks the table as needing to be rebuilt, as when local days start at a different time.
+     */
+    public void invalidate() {
+        mValid = false;
+    }
+
+    public boolean hasLocation() {
+        return !Double.isNaN(mLatitude) && !Double.isNaN(mLongitude);
+    }
+
+    /**
+     * @return whether the table has been built for the day containing this time.
+     */
+    public boolean covers(long timeMillis) {
+        return mValid && timeMillis >= mStartMillis && timeMillis < mEndMillis;
+    }
+
+    /**
+     * Samples the sun from one local midnight to the next, and finds that day's sunrise, solar
+     * noon and sunset.  The arrays are refilled in place.
+     */
+    public void build(long startMillis, long endMillis) {
+        if (!hasLocation()) {
+            throw new IllegalStateException("No location to build the sun's path for");
+        }
+        int samples = (int) ((endMillis - startMillis + SAMPLE_MILLIS - 1) / SAMPLE_MILLIS) + 1;
+        if (samples > MAX_SAMPLES) {
+            throw new IllegalArgumentException("Day from " + startMillis + " to " + endMillis
+                    + " is too long");
+        }
+        boolean southern = mLatitude < 0;
+        for (int i = 0; i < samples; i++) {
+            mPosition.compute(startMillis + i * SAMPLE_MILLIS, mLatitude, mLongitude);
+            mElevation[i] = (float) mPosition.elevation;
+            mAzimuth[i] = (float) mPosition.azimuth;
+            double azimuth = Math.toRadians(mPosition.azimuth);
+            // Looking down on the dial with north up, east is to the right
+            float sunX = (float) Math.sin(azimuth);
+            float sunY = (float) -Math.cos(azimuth);
+            mSunX[i] = southern ? -sunX : sunX;
+            mSunY[i] = southern ? -sunY : sunY;
+            double shadow = getShadowAngle(mPosition.hourAngle);
+            mShadowX[i] = (float) Math.sin(shadow);
+            mShadowY[i] = (float) -Math.cos(shadow);
+        }
+
+        mSolarNoonMillis = mPosition.getSolarNoon((startMillis + endMillis) / 2, mLongitude);
+        mSunriseMillis = mPosition.getSunrise(mSolarNoonMillis, mLatitude, mLongitude);
+        mSunsetMillis = mPosition.getSunset(mSolarNoonMillis, mLatitude, mLongitude);
+
+        mStartMillis = startMillis;
+        mEndMillis = endMillis;
+        mValid = true;
+    }
+
+    /**
+     * @return the angle of the style's shadow clockwise from the noon line on a horizontal dial,
+     * atan(sin(latitude) tan(hour angle)).  atan2 keeps the hours before six and after eighteen
+     * on the right side of the dial, and the sign of the latitude mirrors the dial for the
+     * southern hemisphere, where east is on the left.
+     */
+    private double getShadowAngle(double hourAngle) {
+        double ha = Math.toRadians(hourAngle);
+        return Math.atan2(Math.sin(Math.toRadians(mLatitude)) * Math.sin(ha), Math.cos(ha));
+    }
+
+    /**
+     * Interpolates the sun's position at a time the table {@link #covers}.
+     */
+    public void setTime(long timeMillis) {
+        long offset = timeMillis - mStartMillis;
+        int i = (int) (offset / SAMPLE_MILLIS);
+        float fraction = (offset - i * SAMPLE_MILLIS) / (float) SAMPLE_MILLIS;
+
+        mCurrentElevation = lerp(mElevation, i, fraction);
+        mCurrentSunX = lerp(mSunX, i, fraction);
+        mCurrentSunY = lerp(mSunY, i, fraction);
+        mCurrentShadowX = lerp(mShadowX, i, fraction);
+        mCurrentShadowY = lerp(mShadowY, i, fraction);
+
+        // Take the short way round through north
+        float from = mAzimuth[i];
+        float delta = mAzimuth[i + 1] - from;
+        if (delta > 180) {
+            delta -= 360;
+        } else if (delta < -180) {
+            delta += 360;
+        }
+        float azimuth = from + delta * fraction;
+        if (azimuth < 0) {
+            azimuth += 360;
+        } else if (azimuth >= 360) {
+            azimuth -= 360;
+        }
+        mCurrentAzimuth = azimuth;
+    }
+
+    private static float lerp(float[] values, int i, float fraction) {
+        return values[i] + (values[i + 1] - values[i]) * fraction;
+    }
+
+    /**
+     * @return degrees above the horizon, allowing for refraction, at the last {@link #setTime}.
+     */
+    public float getElevation() {
+        return mCurrentElevation;
+    }
+
+    /**
+     * @return degrees clockwise from north at the last {@link #setTime}.
+     */
+    public float getAzimuth() {
+        return mCurrentAzimuth;
+    }
+
+    public float getSunX() {
+        return mCurrentSunX;
+    }
+
+    public float getSunY() {
+        return mCurrentSunY;
+    }
+
+    public float getShadowX() {
+        return mCurrentShadowX;
+    }
+
+    public float getShadowY() {
+        return mCurrentShadowY;
+    }
+
+    /**
+     * @return the directions of the whole solar hours from {@value #FIRST_HOUR_MARK} to
+     * {@value #LAST_HOUR_MARK} on the dial, as x, y pairs.  Don't modify it.
+     */
+    public float[] getHourMarks() {
+        return mHourMarks;
+    }
+
+    /**
+     * @return the built day's sunrise, or {@link SolarPosition#NO_EVENT} if the sun doesn't rise.
+     */
+    public long getSunriseMillis() {
+        return mSunriseMillis;
+    }
+
+    public long getSolarNoonMillis() {
+        return mSolarNoonMillis;
+    }
+
+    /**
+     * @return the built day's sunset, or {@link SolarPosition#NO_EVENT} if the sun doesn't set.
+     */
+    public long getSunsetMillis() {
+        return mSunsetMillis;
+    }
+}
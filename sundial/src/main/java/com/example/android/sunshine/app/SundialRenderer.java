@@ -0,0 +1,735 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Draws the Sundial face.  Everything a frame needs -- paints, text bounds, the weather icon and
+ * the condition text layout -- is prepared when the weather, the insets or the surface size
+ * change, so that {@link #draw} itself does not allocate.
+ *
+ * Only the clock changes from one tick to the next, so the background and the weather are
+ * rendered once into a surface-sized static layer, and a frame is that layer plus the time.
+ *
+ * Every bitmap is created lazily at the size it is drawn at, and {@link #release} frees them
+ * all, so a face that isn't visible holds no pixels.
+ *
+ * Ambient frames are composed once a minute into a one-byte-per-pixel mask, shifted a few
+ * pixels each minute when the screen needs burn-in protection, and every ambient frame until
+ * the next minute is that mask blitted onto black.  With low-bit ambient nothing in the mask is
+ * anti-aliased, so it holds only on and off pixels.
+ *
+ * Once the phone has said where the forecast is for, the face is also a sundial: hour marks in
+ * the static layer, and the sun and the style's shadow drawn over it each frame from a
+ * {@link SunTable} that {@link #prepareSun} keeps built for the current day.
+ */
+public class SundialRenderer {
+
+    private static final long SECOND_IN_MILLIS = 1000;
+    // Old weather is drawn faded
+    private static final int STALE_ALPHA = 0x80;
+    // Ambient content moves around these offsets, one a minute, in units of mBurnInShift.  Each
+    // step is one unit, so the face never visibly jumps.
+    private static final int[] BURN_IN_SHIFTS_X = {0, 1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] BURN_IN_SHIFTS_Y = {0, 0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int SECONDS_IN_DAY = 24 * 60 * 60;
+
+    private final Resources mResources;
+    private final Typeface mTypeface;
+    // The background, scaled to cover the surface.  It's an opaque JPEG, so it's kept in
+    // RGB_565 at half the size of ARGB_8888.
+    private Bitmap mBackgroundBitmap;
+    private final Paint mScalePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private final Paint mBackgroundPaint;
+    private final Paint mTextPaint;
+    private final Paint mWeatherMessPaint;
+    private final TextPaint mLayoutPaint;
+
+    private TimeZone mTimeZone = TimeZone.getDefault();
+
+    // HH:MM or HH:MM:SS, rewritten in place when what is shown changes
+    private final char[] mTimeChars = {'0', '0', ':', '0', '0', ':', '0', '0'};
+    private int mTimeLength = 5;
+    private int mShownSecondOfDay = -1;
+    // Seconds are only ever shown in interactive mode
+    private boolean mShowSeconds;
+
+    // The time is blitted from pre-rendered digits.  There is one atlas for anti-aliased text
+    // and one for low-bit ambient, each built the first time it is needed at this text size.
+    private final Paint mGlyphPaint;
+    private GlyphAtlas mTimeAtlas;
+    private GlyphAtlas mLowBitTimeAtlas;
+
+    // Height of a capital letter in the time paint, which the weather row is centered on
+    private final Rect mLetterBounds = new Rect();
+    // Bounds of "00:00".  The weather is placed against these rather than the current digits,
+    // so it stays put as the time changes and can live in the static layer.
+    private final Rect mReferenceTimeBounds = new Rect();
+
+    // Background and weather, composed off screen.  Null when layers are disabled.
+    private boolean mLayersEnabled = true;
+    private Bitmap mStaticLayer;
+    private Canvas mStaticLayerCanvas;
+    private boolean mStaticLayerDirty = true;
+
+    // The ambient frame, as an ALPHA_8 mask drawn in white.  Null when layers are disabled.
+    private Bitmap mAmbientFrame;
+    private Canvas mAmbientFrameCanvas;
+    private int mAmbientFrameSecondOfDay = -1;
+    private final Paint mAmbientFramePaint;
+
+    private float mYOffset;
+    private boolean mAmbient;
+    private boolean mLowBitAmbient;
+    private boolean mBurnInProtection;
+    private final float mBurnInShift;
+
+    // Weather, prepared by setWeather().  mHasWeather is false until the phone sends some.
+    private boolean mHasWeather;
+    private boolean mWeatherStale;
+    private int mWeatherIconResource;
+    private Bitmap mWeatherIconBitmap;
+    private String mLowText;
+    private String mHighText;
+    private String mAmbientWeatherText;
+    private String mConditionText;
+    private final Rect mLowTextBounds = new Rect();
+
+    // The condition text is laid out in a column as wide as the time.
+    private int mConditionLayoutWidth;
+    private StaticLayout mConditionLayout;
+
+    // The no data message is laid out across the middle of the surface.
+    private int mNoDataLayoutSurfaceWidth;
+    private StaticLayout mNoDataLayout;
+
+    // The sundial, shown in interactive mode when the weather says where it's for
+    private boolean mShowSundial;
+    private final SunTable mSunTable = new SunTable();
+    private final Paint mHourMarkPaint;
+    private final Paint mShadowPaint;
+    private final Paint mSunPaint;
+    private final float mRimInset;
+    private final float mSunRadius;
+    // Sunrise and sunset of the day the table is built for, or null if there aren't both
+    private String mSunTimesText;
+
+    public SundialRenderer(Context context) {
+        mResources = context.getResources();
+        mTypeface = Typeface.createFromAsset(context.getAssets(), "fonts/daniel.ttf");
+        mYOffset = mResources.getDimension(R.dimen.digital_y_offset);
+
+        mBackgroundPaint = new Paint();
+        mBackgroundPaint.setColor(mResources.getColor(R.color.digital_background));
+
+        mTextPaint = createTextPaint(mResources.getColor(R.color.digital_text));
+        mGlyphPaint = new Paint();
+        mGlyphPaint.setColor(mResources.getColor(R.color.digital_text));
+        mWeatherMessPaint = createTextPaint(mResources.getColor(R.color.digital_text));
+
+        mLayoutPaint = new TextPaint();
+        mLayoutPaint.setColor(mResources.getColor(R.color.white));
+        mLayoutPaint.setTypeface(mTypeface);
+
+        mHourMarkPaint = createStrokePaint(mResources.getColor(R.color.sundial_hour_mark),
+                mResources.getDimension(R.dimen.sundial_hour_mark_width));
+        mShadowPaint = createStrokePaint(mResources.getColor(R.color.sundial_shadow),
+                mResources.getDimension(R.dimen.sundial_shadow_width));
+        mSunPaint = new Paint();
+        mSunPaint.setColor(mResources.getColor(R.color.sundial_sun));
+        mSunPaint.setAntiAlias(true);
+        mRimInset = mResources.getDimension(R.dimen.sundial_rim_inset);
+        mSunRadius = mResources.getDimension(R.dimen.sundial_sun_radius);
+
+        mAmbientFramePaint = new Paint();
+        mAmbientFramePaint.setColor(Color.WHITE);
+        mBurnInShift = mResources.getDimension(R.dimen.burn_in_shift);
+
+        applyInsets(false);
+    }
+
+    private Paint createTextPaint(int textColor) {
+        Paint paint = new Paint();
+        paint.setColor(textColor);
+        paint.setTypeface(mTypeface);
+        paint.setAntiAlias(true);
+        return paint;
+    }
+
+    private Paint createStrokePaint(int color, float width) {
+        Paint paint = new Paint();
+        paint.setColor(color);
+        paint.setStrokeWidth(width);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        paint.setAntiAlias(true);
+        return paint;
+    }
+
+    /**
+     * Loads the sizes that have alternate values for round watches.
+     */
+    public void applyInsets(boolean isRound) {
+        float textSize = mResources.getDimension(isRound
+                ? R.dimen.digital_text_size_round : R.dimen.digital_text_size);
+        float weatherMesTextSize = mResources.getDimension(R.dimen.digital_weather_text_size);
+
+        mTextPaint.setTextSize(textSize);
+        mWeatherMessPaint.setTextSize(weatherMesTextSize);
+        mLayoutPaint.setTextSize(weatherMesTextSize);
+
+        mTextPaint.getTextBounds("A", 0, 1, mLetterBounds);
+        mTextPaint.getTextBounds("00:00", 0, 5, mReferenceTimeBounds);
+        releaseTimeAtlases();
+        mConditionLayoutWidth = (int) Math.ceil(mTextPaint.measureText("00:00"));
+
+        if (mHasWeather) {
+            mWeatherMessPaint.getTextBounds(mLowText, 0, mLowText.length(), mLowTextBounds);
+        }
+        mConditionLayout = null;
+        mNoDataLayout = null;
+        mStaticLayerDirty = true;
+    }
+
+    public void setAmbient(boolean ambient) {
+        mAmbient = ambient;
+        updateAntiAlias();
+        mStaticLayerDirty = true;
+        mShownSecondOfDay = -1;
+    }
+
+    public void setShowSeconds(boolean showSeconds) {
+        mShowSeconds = showSeconds;
+        mShownSecondOfDay = -1;
+    }
+
+    public void setShowSundial(boolean showSundial) {
+        mShowSundial = showSundial;
+        mStaticLayerDirty = true;
+    }
+
+    public void setLowBitAmbient(boolean lowBitAmbient) {
+        mLowBitAmbient = lowBitAmbient;
+        updateAntiAlias();
+        mStaticLayerDirty = true;
+    }
+
+    /**
+     * Whether to move the ambient face around every minute, so no pixel stays lit for long.
+     */
+    public void setBurnInProtection(boolean burnInProtection) {
+        mBurnInProtection = burnInProtection;
+        mStaticLayerDirty = true;
+    }
+
+    /**
+     * Turns the static layer on or off.  With it off every frame draws the whole face, which is
+     * what the rendering benchmark compares against.
+     */
+    public void setLayersEnabled(boolean enabled) {
+        mLayersEnabled = enabled;
+        if (!enabled) {
+            releaseStaticLayer();
+            releaseAmbientFrame();
+        }
+        mStaticLayerDirty = true;
+    }
+
+    /**
+     * Frees every bitmap.  Each is recreated when a frame next needs it.
+     */
+    public void release() {
+        releaseTimeAtlases();
+        releaseStaticLayer();
+        releaseAmbientFrame();
+        if (null != mBackgroundBitmap) {
+            mBackgroundBitmap.recycle();
+            mBackgroundBitmap = null;
+        }
+        if (null != mWeatherIconBitmap) {
+            mWeatherIconBitmap.recycle();
+            mWeatherIconBitmap = null;
+        }
+    }
+
+    private void releaseStaticLayer() {
+        if (null != mStaticLayer) {
+            mStaticLayer.recycle();
+            mStaticLayer = null;
+            mStaticLayerCanvas = null;
+        }
+        mStaticLayerDirty = true;
+    }
+
+    private void releaseAmbientFrame() {
+        if (null != mAmbientFrame) {
+            mAmbientFrame.recycle();
+            mAmbientFrame = null;
+            mAmbientFrameCanvas = null;
+        }
+        mAmbientFrameSecondOfDay = -1;
+    }
+
+    /**
+     * @return the bytes held by the bitmaps this renderer keeps: the background, the weather
+     * icon, the static layer, the ambient frame and the digit atlases.
+     */
+    public long getBitmapByteCount() {
+        long bytes = 0;
+        if (null != mBackgroundBitmap) bytes += mBackgroundBitmap.getAllocationByteCount();
+        if (null != mWeatherIconBitmap) bytes += mWeatherIconBitmap.getAllocationByteCount();
+        if (null != mStaticLayer) bytes += mStaticLayer.getAllocationByteCount();
+        if (null != mAmbientFrame) bytes += mAmbientFrame.getAllocationByteCount();
+        if (null != mTimeAtlas) bytes += mTimeAtlas.getByteCount();
+        if (null != mLowBitTimeAtlas) bytes += mLowBitTimeAtlas.getByteCount();
+        return bytes;
+    }
+
+    private void releaseTimeAtlases() {
+        if (null != mTimeAtlas) {
+            mTimeAtlas.recycle();
+            mTimeAtlas = null;
+        }
+        if (null != mLowBitTimeAtlas) {
+            mLowBitTimeAtlas.recycle();
+            mLowBitTimeAtlas = null;
+        }
+    }
+
+    private void updateAntiAlias() {
+        boolean antiAlias = !(mAmbient && mLowBitAmbient);
+        mTextPaint.setAntiAlias(antiAlias);
+        mWeatherMessPaint.setAntiAlias(antiAlias);
+    }
+
+    public void setTimeZone(TimeZone timeZone) {
+        mTimeZone = timeZone;
+        // Force the digits to be rebuilt on the next frame
+        mShownSecondOfDay = -1;
+        // Local days start at different times now
+        mSunTable.invalidate();
+    }
+
+    public void setWeather(WeatherState weather) {
+        setWeather(weather, false);
+    }
+
+    /**
+     * Prepares the weather row and condition text.
+     *
+     * @param weather the weather the phone sent, or null if there is none yet.
+     * @param stale whether it's too old to show as current, in which case it's faded and the
+     * condition text says when it's from instead.
+     */
+    public void setWeather(WeatherState weather, boolean stale) {
+        mStaticLayerDirty = true;
+        mWeatherStale = stale;
+        if (null == weather) {
+            mHasWeather = false;
+            setSunLocation(Double.NaN, Double.NaN);
+            return;
+        }
+        setSunLocation(weather.latitude, weather.longitude);
+        mHasWeather = true;
+        mLowText = weather.low + "°";
+        mHighText = weather.high + "°";
+        mAmbientWeatherText = "Low: " + mLowText + " High: " + mHighText;
+        mWeatherMessPaint.getTextBounds(mLowText, 0, mLowText.length(), mLowTextBounds);
+
+        int weatherId = weather.weatherId;
+        int iconResource = Sundial.getIconResourceForWeatherCondition(weatherId);
+        if (iconResource != mWeatherIconResource && null != mWeatherIconBitmap) {
+            // Decoded again when it's next drawn
+            mWeatherIconBitmap.recycle();
+            mWeatherIconBitmap = null;
+        }
+        mWeatherIconResource = iconResource;
+
+        String conditionText;
+        if (stale) {
+            DateFormat format = new SimpleDateFormat("EEE HH:mm", Locale.getDefault());
+            format.setTimeZone(mTimeZone);
+            conditionText = mResources.getString(R.string.weather_stale,
+                    format.format(new Date(weather.receivedMillis)));
+        } else {
+            conditionText = mResources.getString(
+                    Sundial.getStringResourceForWeatherCondition(weatherId));
+        }
+        if (!conditionText.equals(mConditionText)) {
+            mConditionText = conditionText;
+            mConditionLayout = null;
+        }
+    }
+
+    public boolean hasWeather() {
+        return mHasWeather;
+    }
+
+    private void setSunLocation(double latitude, double longitude) {
+        mSunTable.setLocation(latitude, longitude);
+        if (!mSunTable.hasLocation()) {
+            mSunTimesText = null;
+        }
+    }
+
+    /**
+     * Builds the sun's path for the local day containing this time, unless it already is.  This
+     * is where the sundial's trigonometry happens, once a day, so call it before drawing rather
+     * than from a frame: a frame the table doesn't cover is drawn without the sun.
+     */
+    public void prepareSun(long nowMillis) {
+        if (!mShowSundial || !mSunTable.hasLocation() || mSunTable.covers(nowMillis)) {
+            return;
+        }
+        Calendar calendar = Calendar.getInstance(mTimeZone);
+        calendar.setTimeInMillis(nowMillis);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long start = calendar.getTimeInMillis();
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        mSunTable.build(start, calendar.getTimeInMillis());
+
+        long sunrise = mSunTable.getSunriseMillis();
+        long sunset = mSunTable.getSunsetMillis();
+        if (sunrise == SolarPosition.NO_EVENT || sunset == SolarPosition.NO_EVENT) {
+            mSunTimesText = null;
+        } else {
+            DateFormat format = new SimpleDateFormat("HH:mm", Locale.getDefault());
+            format.setTimeZone(mTimeZone);
+            mSunTimesText = mResources.getString(R.string.sun_times,
+                    format.format(new Date(sunrise)), format.format(new Date(sunset)));
+        }
+        mStaticLayerDirty = true;
+    }
+
+    private boolean isSundialShown() {
+        return mShowSundial && !mAmbient && mSunTable.hasLocation();
+    }
+
+    /**
+     * Updates the digits if the shown time has changed since the last frame.
+     */
+    private void updateTime(long timeMillis) {
+        final boolean seconds = mShowSeconds && !mAmbient;
+        long localMillis = timeMillis + mTimeZone.getOffset(timeMillis);
+        int secondOfDay = (int) (((localMillis / SECOND_IN_MILLIS) % SECONDS_IN_DAY
+                + SECONDS_IN_DAY) % SECONDS_IN_DAY);
+        if (!seconds) {
+            // Round down to the minute so that nothing changes until the next one
+            secondOfDay -= secondOfDay % 60;
+        }
+        if (secondOfDay == mShownSecondOfDay) {
+            return;
+        }
+        mShownSecondOfDay = secondOfDay;
+        int hour = secondOfDay / 3600;
+        int minute = (secondOfDay / 60) % 60;
+        int second = secondOfDay % 60;
+        mTimeChars[0] = (char) ('0' + hour / 10);
+        mTimeChars[1] = (char) ('0' + hour % 10);
+        mTimeChars[3] = (char) ('0' + minute / 10);
+        mTimeChars[4] = (char) ('0' + minute % 10);
+        mTimeChars[6] = (char) ('0' + second / 10);
+        mTimeChars[7] = (char) ('0' + second % 10);
+        mTimeLength = seconds ? 8 : 5;
+    }
+
+    public void draw(Canvas canvas, Rect bounds, long timeMillis) {
+        updateTime(timeMillis);
+        final int width = bounds.width();
+        final int height = bounds.height();
+
+        if (mAmbient) {
+            drawAmbient(canvas, width, height);
+            return;
+        }
+
+        if (mLayersEnabled) {
+            if (null == mStaticLayer
+                    || mStaticLayer.getWidth() != width || mStaticLayer.getHeight() != height) {
+                releaseStaticLayer();
+                mStaticLayer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                mStaticLayerCanvas = new Canvas(mStaticLayer);
+            }
+            if (mStaticLayerDirty) {
+                drawStatic(mStaticLayerCanvas, width, height);
+                mStaticLayerDirty = false;
+            }
+            canvas.drawBitmap(mStaticLayer, 0, 0, null);
+        } else {
+            drawStatic(canvas, width, height);
+        }
+        if (isSundialShown() && mSunTable.covers(timeMillis)) {
+            drawSun(canvas, width, height, timeMillis);
+        }
+        drawTime(canvas, width);
+    }
+
+    /**
+     * Draws the ambient face: the cached frame if the minute, the weather and the settings are
+     * the same as when it was composed, otherwise a newly composed one.
+     */
+    private void drawAmbient(Canvas canvas, int width, int height) {
+        canvas.drawColor(Color.BLACK);
+        if (!mLayersEnabled) {
+            drawAmbientContent(canvas, width);
+            return;
+        }
+        if (null == mAmbientFrame
+                || mAmbientFrame.getWidth() != width || mAmbientFrame.getHeight() != height) {
+            releaseAmbientFrame();
+            mAmbientFrame = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+            mAmbientFrameCanvas = new Canvas(mAmbientFrame);
+        }
+        if (mStaticLayerDirty || mAmbientFrameSecondOfDay != mShownSecondOfDay) {
+            mAmbientFrame.eraseColor(Color.TRANSPARENT);
+            drawAmbientContent(mAmbientFrameCanvas, width);
+            mAmbientFrameSecondOfDay = mShownSecondOfDay;
+            // Leaving ambient dirties the static layer again, so the flag can serve both
+            mStaticLayerDirty = false;
+        }
+        canvas.drawBitmap(mAmbientFrame, 0, 0, mAmbientFramePaint);
+    }
+
+    /**
+     * Draws the minimal ambient information, the time and the temperatures, in white on
+     * transparent, shifted for burn-in protection.
+     */
+    private void drawAmbientContent(Canvas canvas, int width) {
+        canvas.save();
+        if (mBurnInProtection) {
+            int minute = mShownSecondOfDay / 60;
+            canvas.translate(getBurnInShiftX(minute) * mBurnInShift,
+                    getBurnInShiftY(minute) * mBurnInShift);
+        }
+        if (mHasWeather) {
+            float xPosLow = (width / 2) - mReferenceTimeBounds.width() / 2;
+            canvas.drawText(mAmbientWeatherText, xPosLow - 5,
+                    mYOffset + mReferenceTimeBounds.height() / 2 + 5, mWeatherMessPaint);
+        }
+        drawTime(canvas, width);
+        canvas.restore();
+    }
+
+    /**
+     * @return the burn-in shift for a minute, -1, 0 or 1.
+     */
+    static int getBurnInShiftX(int minute) {
+        return BURN_IN_SHIFTS_X[minute % BURN_IN_SHIFTS_X.length];
+    }
+
+    static int getBurnInShiftY(int minute) {
+        return BURN_IN_SHIFTS_Y[minute % BURN_IN_SHIFTS_Y.length];
+    }
+
+    /**
+     * Draws everything except the time.
+     */
+    private void drawStatic(Canvas canvas, int width, int height) {
+        // Draw the background.
+        loadBackground(width, height);
+        canvas.drawBitmap(mBackgroundBitmap, 0, 0, null);
+
+        if (isSundialShown()) {
+            drawDial(canvas, width, height);
+        }
+
+        if (mHasWeather) {
+            drawWeather(canvas, width);
+        } else {
+            drawNoData(canvas, width);
+        }
+    }
+
+    private float getDialRadius(int width, int height) {
+        return Math.min(width, height) / 2 - mRimInset;
+    }
+
+    /**
+     * Draws the solar hour marks around the rim, longer at six, noon and eighteen, and the day's
+     * sunrise and sunset below the weather.
+     */
+    private void drawDial(Canvas canvas, int width, int height) {
+        final float centerX = width / 2f;
+        final float centerY = height / 2f;
+        final float radius = getDialRadius(width, height);
+        float[] marks = mSunTable.getHourMarks();
+        for (int hour = SunTable.FIRST_HOUR_MARK; hour <= SunTable.LAST_HOUR_MARK; hour++) {
+            int i = (hour - SunTable.FIRST_HOUR_MARK) * 2;
+            float inner = radius * (hour % 6 == 0 ? 0.82f : 0.9f);
+            canvas.drawLine(centerX + marks[i] * inner, centerY + marks[i + 1] * inner,
+                    centerX + marks[i] * radius, centerY + marks[i + 1] * radius,
+                    mHourMarkPaint);
+        }
+        if (null != mSunTimesText) {
+            float textWidth = mWeatherMessPaint.measureText(mSunTimesText);
+            canvas.drawText(mSunTimesText, centerX - textWidth / 2, height * 0.85f,
+                    mWeatherMessPaint);
+        }
+    }
+
+    /**
+     * Draws the sun on the rim and the shadow it casts, while it's up.
+     */
+    private void drawSun(Canvas canvas, int width, int height, long timeMillis) {
+        mSunTable.setTime(timeMillis);
+        if (mSunTable.getElevation() <= 0) {
+            return;
+        }
+        final float centerX = width / 2f;
+        final float centerY = height / 2f;
+        final float radius = getDialRadius(width, height);
+        float shadowLength = radius * 0.8f;
+        canvas.drawLine(centerX, centerY,
+                centerX + mSunTable.getShadowX() * shadowLength,
+                centerY + mSunTable.getShadowY() * shadowLength, mShadowPaint);
+        float sunDistance = radius - mSunRadius;
+        canvas.drawCircle(centerX + mSunTable.getSunX() * sunDistance,
+                centerY + mSunTable.getSunY() * sunDistance, mSunRadius, mSunPaint);
+    }
+
+    private void drawTime(Canvas canvas, int width) {
+        GlyphAtlas atlas;
+        if (mTextPaint.isAntiAlias()) {
+            if (null == mTimeAtlas) mTimeAtlas = new GlyphAtlas(mTextPaint);
+            atlas = mTimeAtlas;
+        } else {
+            if (null == mLowBitTimeAtlas) mLowBitTimeAtlas = new GlyphAtlas(mTextPaint);
+            atlas = mLowBitTimeAtlas;
+        }
+        float xPos = (width / 2) - atlas.measureText(mTimeChars, 0, mTimeLength) / 2;
+        atlas.drawText(canvas, mTimeChars, 0, mTimeLength, xPos, mYOffset, mGlyphPaint);
+    }
+
+    /**
+     * Decodes the background at the surface size, scaled and cropped to cover it, reusing the
+     * previous bitmap's memory where it's big enough.
+     */
+    private void loadBackground(int width, int height) {
+        if (null != mBackgroundBitmap && mBackgroundBitmap.getWidth() == width
+                && mBackgroundBitmap.getHeight() == height) {
+            return;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(mResources, R.drawable.bckg, options);
+        final int sourceWidth = options.outWidth;
+        final int sourceHeight = options.outHeight;
+        // Subsample while the image stays at least as big as the surface
+        int sampleSize = 1;
+        while (sourceWidth / (sampleSize * 2) >= width
+                && sourceHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        Bitmap decoded = BitmapFactory.decodeResource(mResources, R.drawable.bckg, options);
+
+        if (null != mBackgroundBitmap
+                && mBackgroundBitmap.getAllocationByteCount() >= width * height * 2) {
+            mBackgroundBitmap.reconfigure(width, height, Bitmap.Config.RGB_565);
+        } else {
+            if (null != mBackgroundBitmap) mBackgroundBitmap.recycle();
+            mBackgroundBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+        }
+
+        // Center crop: the largest part of the image with the surface's aspect ratio
+        final int decodedWidth = decoded.getWidth();
+        final int decodedHeight = decoded.getHeight();
+        float scale = Math.max(width / (float) decodedWidth, height / (float) decodedHeight);
+        int cropWidth = Math.round(width / scale);
+        int cropHeight = Math.round(height / scale);
+        int left = (decodedWidth - cropWidth) / 2;
+        int top = (decodedHeight - cropHeight) / 2;
+        new Canvas(mBackgroundBitmap).drawBitmap(decoded,
+                new Rect(left, top, left + cropWidth, top + cropHeight),
+                new Rect(0, 0, width, height), mScalePaint);
+        decoded.recycle();
+    }
+
+    private void drawWeather(Canvas canvas, int width) {
+        if (null == mWeatherIconBitmap) {
+            mWeatherIconBitmap = BitmapFactory.decodeResource(mResources, mWeatherIconResource);
+        }
+        final float rowY = mYOffset + mLetterBounds.height() / 2;
+        final int iconWidth = mWeatherIconBitmap.getWidth();
+        final int alpha = mWeatherStale ? STALE_ALPHA : 0xFF;
+        mWeatherMessPaint.setAlpha(alpha);
+        mBackgroundPaint.setAlpha(alpha);
+
+        // low temp, then the weather icon, then the high temp
+        float xPosLow = (width / 2) - iconWidth / 2 - mLowTextBounds.width();
+        canvas.drawText(mLowText, xPosLow - 5, rowY + 5, mWeatherMessPaint);
+
+        float xPosIcon = (width / 2) - iconWidth / 2;
+        canvas.drawBitmap(mWeatherIconBitmap, xPosIcon,
+                rowY - mWeatherIconBitmap.getHeight() / 2, mBackgroundPaint);
+
+        float xPosHigh = (width / 2) + iconWidth / 2;
+        canvas.drawText(mHighText, xPosHigh + 5, rowY + 5, mWeatherMessPaint);
+        mWeatherMessPaint.setAlpha(0xFF);
+        mBackgroundPaint.setAlpha(0xFF);
+
+        // AND FINALLY DRAW THE THIRD ROW FOR SOME TEXT
+        if (null == mConditionLayout) {
+            mConditionLayout = new StaticLayout(mConditionText, mLayoutPaint,
+                    mConditionLayoutWidth, Layout.Alignment.ALIGN_CENTER, 1, 1, true);
+        }
+        canvas.save();
+        canvas.translate((width / 2) - mConditionLayoutWidth / 2,
+                mYOffset + mReferenceTimeBounds.height() + 10);
+        mConditionLayout.draw(canvas);
+        canvas.restore();
+    }
+
+    private void drawNoData(Canvas canvas, int width) {
+        // Write text in case no data was sent from main sunshine app
+        if (null == mNoDataLayout || mNoDataLayoutSurfaceWidth != width) {
+            mNoDataLayout = new StaticLayout(mResources.getString(R.string.no_data), mLayoutPaint,
+                    width * 6 / 8, Layout.Alignment.ALIGN_CENTER, 1, 1, true);
+            mNoDataLayoutSurfaceWidth = width;
+        }
+        canvas.save();
+        canvas.translate(width / 8, mYOffset);
+        mNoDataLayout.draw(canvas);
+        canvas.restore();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.app;
+
+/**
+ * Works out when the face next needs to be redrawn in interactive mode.  Without seconds on
+ * screen nothing visible changes between minutes, so the face sleeps until the next minute
+ * boundary, or until an earlier event someone has scheduled.  Changes that arrive on their own,
+ * like new weather or entering ambient mode, invalidate directly and need no tick.
+ */
+public class TickScheduler {
+
+    static final long SECOND_IN_MILLIS = 1000;
+    static final long MINUTE_IN_MILLIS = 60 * SECOND_IN_MILLIS;
+
+    private boolean mShowSeconds;
+    private long mEventMillis = Long.MAX_VALUE;
+
+    /**
+     * Seconds on screen are the only thing that needs a tick every second.
+     */
+    public void setShowSeconds(boolean showSeconds) {
+        mShowSeconds = showSeconds;
+    }
+
+    public boolean isShowingSeconds() {
+        return mShowSeconds;
+    }
+
+    /**
+     * Asks for a wakeup at the given time, for something that will change the face then.  Only
+     * the earliest pending event is kept.
+     */
+    public void scheduleEvent(long timeMillis) {
+        if (timeMillis < mEventMillis) {
+            mEventMillis = timeMillis;
+        }
+    }
+
+    /**
+     * @return the time of the next redraw after {@code nowMillis}.
+     */
+    public long getNextTickMillis(long nowMillis) {
+        final long period = mShowSeconds ? SECOND_IN_MILLIS : MINUTE_IN_MILLIS;
+        long next = nowMillis - (nowMillis % period) + period;
+        if (mEventMillis <= nowMillis) {
+            // That event has happened; this tick is drawing it.
+            mEventMillis = Long.MAX_VALUE;
+        } else if (mEventMillis < next) {
+            next = mEventMillis;
+        }
+        return next;
+    }
+
+    /**
+     * @return how long to sleep from {@code nowMillis} until the next redraw.
+     */
+    public long getDelayMillis(long nowMillis) {
+        return getNextTickMillis(nowMillis) - nowMillis;
+    }
+}
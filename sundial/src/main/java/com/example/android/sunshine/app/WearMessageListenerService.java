@@ -1,9 +1,12 @@
 package com.example.android.sunshine.app;
 
-import android.content.Intent;
-import android.support.v4.content.LocalBroadcastManager;
 import android.util.Log;
 
+import com.example.android.sunshine.shared.ForecastCodec;
+import com.example.android.sunshine.shared.WearForecast;
+import com.google.android.gms.wearable.DataEvent;
+import com.google.android.gms.wearable.DataEventBuffer;
+import com.google.android.gms.wearable.DataItem;
 import com.google.android.gms.wearable.MessageEvent;
 import com.google.android.gms.wearable.WearableListenerService;
 
@@ -14,6 +17,23 @@ public class WearMessageListenerService extends WearableListenerService {
     private static final String WEAR_MESSAGE_PATH = "/some_message";
     private static final String TAG = "LISTENER";
 
+    @Override
+    public void onDataChanged(DataEventBuffer dataEvents) {
+        for (DataEvent event : dataEvents) {
+            DataItem item = event.getDataItem();
+            if (event.getType() != DataEvent.TYPE_CHANGED
+                    || !ForecastCodec.PATH.equals(item.getUri().getPath())) {
+                continue;
+            }
+            WearForecast forecast = ForecastCodec.decode(item.getData());
+            if (null == forecast) {
+                Log.w(TAG, "Couldn't read forecast from " + item.getUri());
+                continue;
+            }
+            WeatherStore.getInstance(this).update(forecast);
+        }
+    }
+
     @Override
     public void onMessageReceived(MessageEvent messageEvent) {
         if (messageEvent.getPath().equals("/some_message")) {
@@ -21,11 +41,13 @@ public class WearMessageListenerService extends WearableListenerService {
             Log.v("myTag", "Message path received on watch is: " + messageEvent.getPath());
             Log.v("myTag", "Message received on watch is: " + message);
 
-            // Broadcast message to wearable activity for display
-            Intent messageIntent = new Intent();
-            messageIntent.setAction(Intent.ACTION_SEND);
-            messageIntent.putExtra("message", message);
-            LocalBroadcastManager.getInstance(this).sendBroadcast(messageIntent);
+            // Older phones send today's weather as text
+            WeatherState state = WeatherState.parse(message, System.currentTimeMillis());
+            if (null == state) {
+                Log.w(TAG, "Ignoring malformed message: " + message);
+                return;
+            }
+            WeatherStore.getInstance(this).update(state);
         }
         else {
             super.onMessageReceived(messageEvent);
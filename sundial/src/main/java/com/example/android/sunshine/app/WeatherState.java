@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.app;
+
+import com.example.android.sunshine.shared.WearForecast;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * One day of the weather the phone sent, as the face shows it.  Instances never change; a new
+ * forecast or a new day produces a new instance.
+ */
+public final class WeatherState {
+
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000;
+
+    /**
+     * How old a forecast can get before the face says so.  The phone syncs every three hours
+     * and re-sends an unchanged forecast every six, so this is two missed refreshes.
+     */
+    static final long STALE_AFTER_MILLIS = 12 * 60 * 60 * 1000;
+
+    public final int weatherId;
+    // Rounded temperatures in the units the phone is set to
+    public final int high;
+    public final int low;
+    // When the phone fetched this, or failing that when the watch received it, in milliseconds
+    // since the epoch
+    public final long receivedMillis;
+    // Where the weather is for, in degrees, or NaN if the phone didn't say
+    public final double latitude;
+    public final double longitude;
+
+    public WeatherState(int weatherId, int high, int low, long receivedMillis) {
+        this(weatherId, high, low, receivedMillis, Double.NaN, Double.NaN);
+    }
+
+    public WeatherState(int weatherId, int high, int low, long receivedMillis,
+                        double latitude, double longitude) {
+        this.weatherId = weatherId;
+        this.high = high;
+        this.low = low;
+        this.receivedMillis = receivedMillis;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    /**
+     * @return whether the state says where it's for, so the sun can be drawn.
+     */
+    public boolean hasLocation() {
+        return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+    }
+
+    /**
+     * Parses the phone's "weatherId;high;low" message.
+     *
+     * @return the parsed state, or null if the message isn't in that form.
+     */
+    public static WeatherState parse(String message, long receivedMillis) {
+        if (null == message) {
+            return null;
+        }
+        String[] parts = message.split(";");
+        if (parts.length < 3) {
+            return null;
+        }
+        try {
+            return new WeatherState(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                    Integer.parseInt(parts[2]), receivedMillis);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Picks today's weather out of a forecast from the phone, in the units the user chose.
+     *
+     * @return the state, or null if the forecast has nothing for today or later.
+     */
+    public static WeatherState fromForecast(WearForecast forecast, long nowMillis,
+                                            TimeZone timeZone) {
+        int today = getEpochDay(nowMillis, timeZone);
+        for (WearForecast.Day day : forecast.days) {
+            if (day.epochDay >= today) {
+                return fromDay(forecast, day);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return one day of a forecast, in the units the user chose.
+     */
+    public static WeatherState fromDay(WearForecast forecast, WearForecast.Day day) {
+        return new WeatherState(day.weatherId,
+                (int) Math.round(forecast.toDisplayUnits(day.high)),
+                (int) Math.round(forecast.toDisplayUnits(day.low)),
+                forecast.fetchedMillis, forecast.latitude, forecast.longitude);
+    }
+
+    /**
+     * @return days since 1970-01-01 in the given time zone, as forecast days are numbered.
+     */
+    public static int getEpochDay(long timeMillis, TimeZone timeZone) {
+        long localMillis = timeMillis + timeZone.getOffset(timeMillis);
+        return (int) Math.floor(localMillis / (double) DAY_IN_MILLIS);
+    }
+
+    /**
+     * @return the next local midnight after the given time, when the face moves on a day.
+     */
+    public static long getNextDayMillis(long timeMillis, TimeZone timeZone) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTimeInMillis(timeMillis);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * @return when this weather becomes too old to show without saying so.
+     */
+    public long getStaleMillis() {
+        return receivedMillis + STALE_AFTER_MILLIS;
+    }
+
+    public boolean isStale(long nowMillis) {
+        return nowMillis >= getStaleMillis();
+    }
+
+    /**
+     * @return whether the two states would draw the same face, ignoring when they arrived.
+     */
+    public boolean sameWeatherAs(WeatherState other) {
+        return null != other && weatherId == other.weatherId
+                && high == other.high && low == other.low
+                && Double.compare(latitude, other.latitude) == 0
+                && Double.compare(longitude, other.longitude) == 0;
+    }
+}
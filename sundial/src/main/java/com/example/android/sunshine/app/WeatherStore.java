@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Base64;
+
+import com.example.android.sunshine.shared.ForecastCodec;
+import com.example.android.sunshine.shared.WearForecast;
+
+import java.util.Arrays;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the phone's last {@link WearForecast} in memory for the whole process, so the face can
+ * move on to the next day's weather at midnight by itself, and keep showing something, marked
+ * as old, when the phone is out of reach.  Updates swap the snapshot atomically and tell
+ * listeners on the main thread, once per actual change.  The forecast is also written to
+ * preferences in the background, in its wire format, only so that it survives the process
+ * being restarted.
+ */
+public class WeatherStore {
+
+    public interface Listener {
+        /**
+         * @param state today's weather from the new forecast, or null if there is none.
+         */
+        void onWeatherChanged(WeatherState state);
+    }
+
+    static final String PREFS_NAME = "sundial_prefs";
+    private static final String KEY_FORECAST = "forecast";
+    // Older versions kept only one day, with the numbers as strings.  They're read once, if
+    // there's no forecast yet, and removed on the next write.
+    private static final String KEY_WEATHER_ID = "weatherid";
+    private static final String KEY_HIGH = "high";
+    private static final String KEY_LOW = "low";
+    private static final String KEY_RECEIVED = "received";
+
+    /**
+     * Most days kept, from today on.  The phone sends two weeks.
+     */
+    static final int MAX_DAYS = 16;
+
+    private static WeatherStore sInstance;
+
+    private final SharedPreferences mPrefs;
+    private final AtomicReference<WearForecast> mForecast = new AtomicReference<WearForecast>();
+    private final CopyOnWriteArrayList<Listener> mListeners = new CopyOnWriteArrayList<Listener>();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    public static synchronized WeatherStore getInstance(Context context) {
+        if (null == sInstance) {
+            sInstance = new WeatherStore(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    WeatherStore(Context context) {
+        mPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        mForecast.set(load(mPrefs));
+    }
+
+    private static WearForecast load(SharedPreferences prefs) {
+        String encoded = prefs.getString(KEY_FORECAST, null);
+        if (null != encoded) {
+            try {
+                WearForecast forecast =
+                        ForecastCodec.decode(Base64.decode(encoded, Base64.DEFAULT));
+                if (null != forecast) {
+                    return forecast;
+                }
+            } catch (IllegalArgumentException e) {
+                // Not Base64; fall through to whatever else there is
+            }
+        }
+        return loadLegacy(prefs);
+    }
+
+    private static WearForecast loadLegacy(SharedPreferences prefs) {
+        try {
+            String weatherId = prefs.getString(KEY_WEATHER_ID, null);
+            String high = prefs.getString(KEY_HIGH, null);
+            String low = prefs.getString(KEY_LOW, null);
+            if (null == weatherId || null == high || null == low) {
+                return null;
+            }
+            long received = prefs.getLong(KEY_RECEIVED, 0);
+            return toForecast(new WeatherState(Integer.parseInt(weatherId),
+                    Integer.parseInt(high), Integer.parseInt(low), received),
+                    WeatherState.getEpochDay(received, TimeZone.getDefault()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A single day's weather as a one-day forecast.  Its temperatures are already in the
+     * user's units, so the forecast is marked metric, which shows them as they are.
+     */
+    private static WearForecast toForecast(WeatherState state, int epochDay) {
+        return new WearForecast(true, state.receivedMillis, new WearForecast.Day[]{
+                new WearForecast.Day(epochDay, state.weatherId, state.high, state.low)
+        }, state.latitude, state.longitude);
+    }
+
+    /**
+     * @return the whole forecast, or null if the phone hasn't sent any.
+     */
+    public WearForecast getForecast() {
+        return mForecast.get();
+    }
+
+    /**
+     * @return today's weather, or null if the phone hasn't sent any.
+     */
+    public WeatherState get() {
+        return get(System.currentTimeMillis(), TimeZone.getDefault());
+    }
+
+    /**
+     * @return the weather for the day containing this time, or, if the forecast has run out, for
+     * its last day, which will be stale by then.  Null if the phone hasn't sent any.
+     */
+    public WeatherState get(long nowMillis, TimeZone timeZone) {
+        return getState(mForecast.get(), nowMillis, timeZone);
+    }
+
+    private static WeatherState getState(WearForecast forecast, long nowMillis,
+                                         TimeZone timeZone) {
+        if (null == forecast || forecast.days.length == 0) {
+            return null;
+        }
+        WeatherState state = WeatherState.fromForecast(forecast, nowMillis, timeZone);
+        if (null == state) {
+            state = WeatherState.fromDay(forecast, forecast.days[forecast.days.length - 1]);
+        }
+        return state;
+    }
+
+    /**
+     * Replaces the forecast, less any days already over and past {@link #MAX_DAYS}.  Listeners
+     * are only told if it says something different, or if it's fresh where the weather shown
+     * had gone stale; a face showing stale weather won't look again until midnight.
+     */
+    public void update(WearForecast forecast) {
+        long nowMillis = System.currentTimeMillis();
+        TimeZone timeZone = TimeZone.getDefault();
+        forecast = trim(forecast, WeatherState.getEpochDay(nowMillis, timeZone));
+        WearForecast previous = mForecast.getAndSet(forecast);
+
+        mPrefs.edit()
+                .putString(KEY_FORECAST,
+                        Base64.encodeToString(ForecastCodec.encode(forecast), Base64.NO_WRAP))
+                .remove(KEY_WEATHER_ID)
+                .remove(KEY_HIGH)
+                .remove(KEY_LOW)
+                .remove(KEY_RECEIVED)
+                .apply();
+
+        boolean stalenessChanged = isStale(previous, nowMillis, timeZone)
+                != isStale(forecast, nowMillis, timeZone);
+        if (!forecast.sameForecastAs(previous) || stalenessChanged) {
+            mMainHandler.post(mNotifyListeners);
+        }
+    }
+
+    private static boolean isStale(WearForecast forecast, long nowMillis, TimeZone timeZone) {
+        WeatherState state = getState(forecast, nowMillis, timeZone);
+        return null != state && state.isStale(nowMillis);
+    }
+
+    /**
+     * Replaces the forecast with one day of weather, for today, as phones from before forecasts
+     * were sent whole still send it.
+     */
+    public void update(WeatherState state) {
+        update(toForecast(state, WeatherState.getEpochDay(System.currentTimeMillis(),
+                TimeZone.getDefault())));
+    }
+
+    /**
+     * Drops the days before today, unless that would leave none, and those past
+     * {@link #MAX_DAYS}.
+     */
+    static WearForecast trim(WearForecast forecast, int today) {
+        int first = 0;
+        while (first < forecast.days.length - 1 && forecast.days[first].epochDay < today) {
+            first++;
+        }
+        int end = Math.min(forecast.days.length, first + MAX_DAYS);
+        if (first == 0 && end == forecast.days.length) {
+            return forecast;
+        }
+        return new WearForecast(forecast.metric, forecast.fetchedMillis,
+                Arrays.copyOfRange(forecast.days, first, end),
+                forecast.latitude, forecast.longitude);
+    }
+
+    private final Runnable mNotifyListeners = new Runnable() {
+        @Override
+        public void run() {
+            WeatherState state = get();
+            for (Listener listener : mListeners) {
+                listener.onWeatherChanged(state);
+            }
+        }
+    };
+
+    public void addListener(Listener listener) {
+        mListeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+}